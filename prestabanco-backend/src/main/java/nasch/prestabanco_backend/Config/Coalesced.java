@@ -0,0 +1,26 @@
+package nasch.prestabanco_backend.Config;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a read whose concurrent identical calls share one execution: while a call is in flight,
+ * callers with the same key wait for it and receive its result (or its exception) instead of
+ * running their own. Applied by {@link CoalescingAspect}; the result object is shared between
+ * callers, so it must not be modified by them.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesced {
+
+    /**
+     * SpEL expression over the method parameters that identifies identical calls, e.g. "#id" or
+     * "#rut.toUpperCase()". When empty, calls are identical if all their arguments are equal.
+     */
+    String key() default "";
+
+    /**
+     * Name used in the metrics; defaults to Class.method.
+     */
+    String name() default "";
+}
@@ -0,0 +1,109 @@
+package nasch.prestabanco_backend.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Single-flight execution of {@link Coalesced} methods. The first caller for a key runs the method;
+ * callers arriving while it runs wait for its outcome. Nothing is cached: the entry is removed as soon
+ * as the call completes, so later callers always get a fresh execution.
+ * <p>
+ * Runs outside the transaction advice, so waiting callers hold no database connection. Callers that
+ * need read-your-writes consistency are never coalesced, since the shared call may have been served by
+ * a replica that has not seen their write.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CoalescingAspect {
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Expression> expressions = new ConcurrentHashMap<>();
+    private final Map<CallKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the coalescing counters are published to.
+
+    @Value("${prestabanco.coalescing.enabled:true}")
+    boolean enabled; // Runs every call on its own when false.
+
+    @Value("${prestabanco.coalescing.max-wait:PT5S}")
+    Duration maxWait; // How long a caller waits for a shared call before running its own.
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("prestabanco.coalescing.in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @Around("@annotation(nasch.prestabanco_backend.Config.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Coalesced coalesced = method.getAnnotation(Coalesced.class);
+        String name = !coalesced.name().isEmpty() ? coalesced.name()
+                : method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        if (!enabled || ReadYourWritesContext.wrote() || ReadYourWritesContext.readAfter() > 0) {
+            return count(name, "bypassed", joinPoint.proceed());
+        }
+
+        CallKey key = new CallKey(method, key(coalesced, method, joinPoint));
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> shared = inFlight.putIfAbsent(key, call);
+        if (shared != null) {
+            try {
+                return count(name, "coalesced", shared.get(maxWait.toNanos(), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                count(name, "coalesced", null);
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                return count(name, "timed-out", joinPoint.proceed());
+            }
+        }
+
+        try {
+            Object result = joinPoint.proceed();
+            call.complete(result);
+            return count(name, "executed", result);
+        } catch (Throwable e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private Object key(Coalesced coalesced, Method method, ProceedingJoinPoint joinPoint) {
+        if (coalesced.key().isEmpty()) return Arrays.asList(joinPoint.getArgs());
+        Expression expression = expressions.computeIfAbsent(method, ignored -> parser.parseExpression(coalesced.key()));
+        return expression.getValue(new MethodBasedEvaluationContext(joinPoint.getTarget(), method, joinPoint.getArgs(), parameterNames));
+    }
+
+    private Object count(String name, String outcome, Object result) {
+        meterRegistry.counter("prestabanco.coalescing.calls", "method", name, "outcome", outcome).increment();
+        return result;
+    }
+
+    private record CallKey(Method method, Object key) {
+    }
+}
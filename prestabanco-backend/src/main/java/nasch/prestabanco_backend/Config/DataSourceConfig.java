@@ -0,0 +1,76 @@
+package nasch.prestabanco_backend.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declares the JDBC DataSource used by JPA explicitly. Spring Boot backs off from its own
+ * DataSource auto-configuration as soon as an R2DBC ConnectionFactory is present, and the
+ * reactive read API needs both to live side by side.
+ * The DataSource handed to JPA routes read-only transactions to the configured read replicas.
+ */
+@Configuration
+@EnableConfigurationProperties({DataSourceProperties.class, ReplicaDataSourceProperties.class})
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             ReplicaDataSourceProperties replicaProperties,
+                                                             MeterRegistry meterRegistry) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        int index = 0;
+        for (ReplicaDataSourceProperties.Replica replica : replicaProperties.getReplicas()) {
+            String name = "replica-" + index++;
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : properties.getUsername());
+            dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : properties.getPassword());
+            dataSource.setMaximumPoolSize(replicaProperties.getReplicaPoolSize());
+            dataSource.setReadOnly(true);
+            // Replicas may be down at boot; the health check keeps them out of rotation until they answer.
+            dataSource.setInitializationFailTimeout(-1);
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, dataSource));
+        }
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaProperties.getMaxLag().toMillis());
+        routingDataSource.startHealthChecks(replicaProperties.getHealthCheckInterval());
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        // Defers the physical connection until the transaction's read-only flag has been bound.
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // The R2DBC starter adds a reactive transaction manager; @Transactional service methods use JPA's.
+    @Bean
+    @Primary
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
@@ -0,0 +1,117 @@
+package nasch.prestabanco_backend.Config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Second-level cache of the loan and user scalar state, and query cache of the RUT and version lookups.
+ * Entries are bounded in count and expire after a TTL, which also bounds how long a value read from a
+ * lagging replica can be served. Writes through JPA update the cache; writes through JDBC evict.
+ */
+@Configuration
+public class EntityCacheConfig {
+    public static final String LOAN_REGION = "loans";
+    public static final String USER_REGION = "users";
+
+    private static final List<String> ENTITY_REGIONS = List.of(LOAN_REGION, USER_REGION);
+
+    @Value("${prestabanco.cache.max-entries:10000}")
+    long maxEntries; // Entries kept per entity region and in the query region.
+
+    @Value("${prestabanco.cache.ttl:PT10M}")
+    Duration ttl; // How long an entry is served before it is read again.
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // A manager of its own rather than the provider's shared default, which a second application
+        // context in the same JVM would find already holding these regions.
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("prestabanco:hibernate:" + UUID.randomUUID()), provider.getDefaultClassLoader());
+        for (String region : ENTITY_REGIONS) cacheManager.createCache(region, bounded());
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded());
+        // Table update timestamps decide whether a cached query is stale, so they are never evicted.
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    /**
+     * Publishes hits, misses and the hit ratio of each region as "prestabanco.cache.*".
+     */
+    @Bean
+    public MeterBinder hibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : ENTITY_REGIONS) {
+                bind(registry, statistics, region, current -> current.getDomainDataRegionStatistics(region));
+            }
+            String queryRegion = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+            bind(registry, statistics, queryRegion, current -> current.getQueryRegionStatistics(queryRegion));
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> bounded() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    private static void bind(MeterRegistry registry, Statistics statistics, String region,
+                             Function<Statistics, CacheRegionStatistics> lookup) {
+        FunctionCounter.builder("prestabanco.cache.gets", statistics, count(lookup, CacheRegionStatistics::getHitCount))
+                .tags("region", region, "result", "hit").register(registry);
+        FunctionCounter.builder("prestabanco.cache.gets", statistics, count(lookup, CacheRegionStatistics::getMissCount))
+                .tags("region", region, "result", "miss").register(registry);
+        FunctionCounter.builder("prestabanco.cache.puts", statistics, count(lookup, CacheRegionStatistics::getPutCount))
+                .tag("region", region).register(registry);
+        Gauge.builder("prestabanco.cache.hit.ratio", statistics, current -> {
+            CacheRegionStatistics regionStatistics = lookup.apply(current);
+            if (regionStatistics == null) return 0;
+            long gets = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+            return gets == 0 ? 0 : (double) regionStatistics.getHitCount() / gets;
+        }).tag("region", region).register(registry);
+    }
+
+    private static ToDoubleFunction<Statistics> count(Function<Statistics, CacheRegionStatistics> lookup,
+                                                      ToLongFunction<CacheRegionStatistics> counter) {
+        return current -> {
+            CacheRegionStatistics regionStatistics = lookup.apply(current);
+            return regionStatistics != null ? counter.applyAsLong(regionStatistics) : 0;
+        };
+    }
+}
@@ -0,0 +1,160 @@
+package nasch.prestabanco_backend.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import nasch.prestabanco_backend.services.IdempotencyService;
+import nasch.prestabanco_backend.services.IdempotencyService.IdempotencyConflictException;
+import nasch.prestabanco_backend.services.IdempotencyService.IdempotencyMismatchException;
+import nasch.prestabanco_backend.services.IdempotencyService.ResponseUnavailableException;
+import nasch.prestabanco_backend.services.IdempotencyService.StoredResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Makes POSTs that carry an Idempotency-Key header safe to retry: the first request with a key is
+ * executed and its response stored, later ones get the stored response back with Idempotent-Replayed.
+ * A key is bound to a hash of what the request submits, its parameters and parts, so reusing it for a
+ * different request is answered 422 instead of with another request's response. Hashing reads the
+ * body, so this filter runs after upload admission.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> UNREPLAYED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.ROOT),
+            HttpHeaders.DATE.toLowerCase(Locale.ROOT),
+            HttpHeaders.CONNECTION.toLowerCase(Locale.ROOT));
+
+    @Autowired
+    IdempotencyService idempotencyService; // Injects the store of responses by idempotency key.
+
+    @Value("${prestabanco.idempotency.paths:/api/loans/,/api/users/,/api/loans/submissions/}")
+    List<String> paths; // POST endpoints that honour the Idempotency-Key header.
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        StoredResponse stored;
+        try {
+            stored = idempotencyService.execute(request.getRequestURI() + " " + key, fingerprint(request), () -> {
+                ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+                try {
+                    filterChain.doFilter(request, wrapper);
+                    return new IdempotencyService.Response(wrapper.getStatus(), replayableHeaders(wrapper), wrapper.getContentAsByteArray());
+                } finally {
+                    wrapper.copyBodyToResponse();
+                }
+            });
+        } catch (IdempotencyConflictException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
+        } catch (IdempotencyMismatchException e) {
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage());
+            return;
+        } catch (ResponseUnavailableException e) {
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
+        } catch (IOException | ServletException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+        if (stored != null) replay(stored, response);
+    }
+
+    /**
+     * Hashes what a request submits: its parameters, then the name, file name, type and content of each file part.
+     * @param request HttpServletRequest - a form or multipart request.
+     * @return String - the SHA-256 of the request, in hex.
+     */
+    static String fingerprint(HttpServletRequest request) throws IOException, ServletException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            update(digest, parameter.getKey());
+            for (String value : parameter.getValue()) update(digest, value);
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            List<Part> parts = new ArrayList<>(request.getParts());
+            parts.sort(Comparator.comparing(Part::getName));
+            byte[] buffer = new byte[8192];
+            for (Part part : parts) {
+                if (part.getSubmittedFileName() == null) continue; // A field, already among the parameters.
+                update(digest, part.getName());
+                update(digest, part.getSubmittedFileName());
+                update(digest, String.valueOf(part.getContentType()));
+                try (InputStream content = part.getInputStream()) {
+                    for (int read; (read = content.read(buffer)) > 0; ) digest.update(buffer, 0, read);
+                }
+                digest.update((byte) 0);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static Map<String, List<String>> replayableHeaders(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!UNREPLAYED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) headers.put(name, List.copyOf(response.getHeaders(name)));
+        }
+        return headers;
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        stored.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLengthLong(stored.getContentLength());
+        try (InputStream body = stored.openBody()) {
+            StreamUtils.copy(body, response.getOutputStream());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package nasch.prestabanco_backend.Config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nasch.prestabanco_backend.controllers.ReactiveLoanHandler;
+import nasch.prestabanco_backend.controllers.ReactiveUserHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Runs the reactive read API on its own Netty event loop, next to the servlet (MVC) server.
+ * Partner integrations use this port for listings and lookups; writes stay on the MVC endpoints.
+ */
+@Configuration
+public class ReactiveServerConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactiveLoanHandler loanHandler, ReactiveUserHandler userHandler) {
+        return RouterFunctions.route()
+                .GET("/api/reactive/loans/", loanHandler::listLoans)
+                .GET("/api/reactive/loans/search", loanHandler::searchLoans)
+                .GET("/api/reactive/loans/rut/{rut}", loanHandler::getLoanRut)
+                .GET("/api/reactive/loans/{id}", loanHandler::getLoanId)
+                .GET("/api/reactive/users/", userHandler::listUsers)
+                .GET("/api/reactive/users/rut/{rut}", userHandler::getUserRut)
+                .GET("/api/reactive/users/{id}", userHandler::getUserId)
+                .build();
+    }
+
+    @Bean
+    public ReactiveServer reactiveServer(RouterFunction<ServerResponse> reactiveRoutes, ObjectMapper objectMapper,
+                                         @Value("${prestabanco.reactive.enabled:true}") boolean enabled,
+                                         @Value("${prestabanco.reactive.port:1413}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper,
+                            MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ReactiveServer(RouterFunctions.toHttpHandler(reactiveRoutes, strategies), enabled, port);
+    }
+
+    /**
+     * Binds the reactive routes to a Reactor Netty server for the lifetime of the application context.
+     */
+    public static class ReactiveServer implements SmartLifecycle {
+        private final HttpHandler httpHandler;
+        private final boolean enabled;
+        private final int port;
+        private volatile DisposableServer server;
+
+        public ReactiveServer(HttpHandler httpHandler, boolean enabled, int port) {
+            this.httpHandler = httpHandler;
+            this.enabled = enabled;
+            this.port = port;
+        }
+
+        @Override
+        public void start() {
+            if (!enabled) return;
+            server = HttpServer.create()
+                    .port(port)
+                    .metrics(true, ReactiveServer::uriTemplate)
+                    .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                    .bindNow();
+        }
+
+        @Override
+        public void stop() {
+            DisposableServer current = server;
+            if (current != null) {
+                current.disposeNow();
+                server = null;
+            }
+        }
+
+        @Override
+        public boolean isRunning() {
+            return server != null;
+        }
+
+        /**
+         * Collapses path variables so reactor.netty.http.server metrics keep a bounded set of uri tags.
+         * @param uri String - the raw request path.
+         * @return String - the route template the path belongs to.
+         */
+        static String uriTemplate(String uri) {
+            int query = uri.indexOf('?');
+            String path = query >= 0 ? uri.substring(0, query) : uri;
+            if (path.matches("/api/reactive/(loans|users)/rut/[^/]+")) return path.replaceAll("/rut/[^/]+$", "/rut/{rut}");
+            if (path.matches("/api/reactive/(loans|users)/\\d+")) return path.replaceAll("/\\d+$", "/{id}");
+            if (path.matches("/api/reactive/(loans/|loans/search|users/)")) return path;
+            return "UNKNOWN";
+        }
+    }
+}
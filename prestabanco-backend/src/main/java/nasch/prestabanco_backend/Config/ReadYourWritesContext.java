@@ -0,0 +1,86 @@
+package nasch.prestabanco_backend.Config;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Per-thread consistency requirements consulted by {@link ReplicaRoutingDataSource}.
+ * A request that already wrote, or that carries a read-after token from an earlier write,
+ * must not be served by a replica that has not replayed that write yet.
+ * The write pin only lasts until the writing transaction completes, so pooled threads outside
+ * a request (the scheduler, submission workers) go back to the replicas after their write;
+ * a request keeps needing its write after the commit and turns the pin into a read-after instant.
+ */
+public final class ReadYourWritesContext {
+
+    public static final String HEADER = "X-Read-After";
+
+    private static final ThreadLocal<Long> READ_AFTER = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> WROTE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> IN_REQUEST = new ThreadLocal<>();
+
+    private ReadYourWritesContext() {
+    }
+
+    /**
+     * Requires reads on this thread to see every write committed up to the given instant.
+     * @param epochMillis long - commit time returned to the client in the X-Read-After header.
+     */
+    public static void readAfter(long epochMillis) {
+        READ_AFTER.set(epochMillis);
+    }
+
+    /**
+     * @return long - the instant reads must include, or 0 when any replica is acceptable.
+     */
+    public static long readAfter() {
+        Long value = READ_AFTER.get();
+        return value != null ? value : 0L;
+    }
+
+    /**
+     * Marks the current thread as serving a request until {@link #clear()}.
+     */
+    public static void beginRequest() {
+        IN_REQUEST.set(Boolean.TRUE);
+    }
+
+    /**
+     * Marks that this thread obtained a read-write connection, pinning its reads to the primary
+     * until the current transaction completes.
+     */
+    public static void markWrite() {
+        WROTE.set(Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    WROTE.remove();
+                    if (status == STATUS_COMMITTED && Boolean.TRUE.equals(IN_REQUEST.get())) {
+                        READ_AFTER.set(Math.max(readAfter(), System.currentTimeMillis()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return boolean - true if this thread already wrote to the primary.
+     */
+    public static boolean wrote() {
+        return Boolean.TRUE.equals(WROTE.get());
+    }
+
+    /**
+     * @return String - a token for the X-Read-After header covering every write committed so far.
+     */
+    public static String token() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    public static void clear() {
+        READ_AFTER.remove();
+        WROTE.remove();
+        IN_REQUEST.remove();
+    }
+}
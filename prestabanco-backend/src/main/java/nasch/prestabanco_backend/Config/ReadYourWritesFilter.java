@@ -0,0 +1,38 @@
+package nasch.prestabanco_backend.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds the X-Read-After token sent by clients after a write to the request thread,
+ * and clears the routing state once the request completes.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String readAfter = request.getHeader(ReadYourWritesContext.HEADER);
+        try {
+            ReadYourWritesContext.beginRequest();
+            if (readAfter != null) {
+                try {
+                    ReadYourWritesContext.readAfter(Long.parseLong(readAfter.trim()));
+                } catch (NumberFormatException e) {
+                    // An unreadable token cannot be honoured on a replica, so read from the primary.
+                    ReadYourWritesContext.readAfter(Long.MAX_VALUE);
+                }
+            }
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWritesContext.clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nasch.prestabanco_backend.Config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas used for read-only transactions, bound from "prestabanco.datasource.*".
+ * With no replicas configured every connection goes to spring.datasource.url.
+ */
+@Data
+@ConfigurationProperties("prestabanco.datasource")
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // Replicas further behind the primary than this are skipped until they catch up.
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    // Probed on the routing DataSource's own thread, so a replica that hangs on connect delays nothing else.
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    private int replicaPoolSize = 10;
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,176 @@
+package nasch.prestabanco_backend.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-write transactions to the primary and read-only transactions to a healthy replica.
+ * A replica is only eligible while its replication lag is under the configured maximum and it has
+ * replayed every write the current request depends on; otherwise reads fall back to the primary.
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the read-only flag is known when routing.
+ * The replica pools are not beans of their own: they are owned here and closed with it.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // Replay lag in milliseconds; 0 when the replica has replayed everything it received or is not in recovery.
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, long maxLagMillis) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLagMillis;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (Replica replica : this.replicas) targets.put(replica.name, replica.dataSource);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) ReadYourWritesContext.markWrite();
+            return PRIMARY;
+        }
+        if (ReadYourWritesContext.wrote()) return PRIMARY;
+
+        Replica replica = selectReplica(ReadYourWritesContext.readAfter());
+        return replica != null ? replica.name : PRIMARY;
+    }
+
+    /**
+     * Picks the next eligible replica in round-robin order.
+     * @param readAfter long - epoch millis of the latest write the caller must observe, 0 for none.
+     * @return Replica - an eligible replica, or null if reads must go to the primary.
+     */
+    Replica selectReplica(long readAfter) {
+        int size = replicas.size();
+        if (size == 0) return null;
+
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isEligible(readAfter, maxLagMillis)) return replica;
+        }
+        return null;
+    }
+
+    /**
+     * Probes the replicas on a dedicated thread rather than the shared @Scheduled one: a connect
+     * timeout against a dead replica would otherwise hold up the outbox relay and event polling.
+     * @param interval Duration - delay between the end of one probe round and the start of the next.
+     */
+    public void startHealthChecks(Duration interval) {
+        if (replicas.isEmpty()) return;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replica-health-");
+        threadFactory.setDaemon(true);
+        healthChecker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Probes every replica and refreshes its health and replication lag.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            long checkedAt = System.currentTimeMillis();
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                replica.update(true, resultSet.getLong(1), checkedAt);
+            } catch (Exception e) {
+                if (replica.healthy) logger.warn("Replica {} is unavailable, routing its reads to the primary: {}", replica.name, e.getMessage());
+                replica.update(false, Long.MAX_VALUE, checkedAt);
+            }
+        }
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Closes the replica pools when the context shuts down; the primary is a bean and closed by Spring.
+     */
+    @Override
+    public void destroy() {
+        if (healthChecker != null) healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Could not close replica {}: {}", replica.name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A replica target together with the state observed by the last health check.
+     */
+    public static class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagMillis = Long.MAX_VALUE;
+        // Every write committed on the primary before this instant is visible on the replica.
+        volatile long replayedUpTo;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void update(boolean healthy, long lagMillis, long checkedAt) {
+            this.lagMillis = lagMillis;
+            this.replayedUpTo = healthy ? checkedAt - lagMillis : 0L;
+            this.healthy = healthy;
+        }
+
+        boolean isEligible(long readAfter, long maxLagMillis) {
+            return healthy && lagMillis <= maxLagMillis && replayedUpTo >= readAfter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package nasch.prestabanco_backend.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The schema is owned by the versioned Flyway migrations in db/migration; Hibernate no longer diffs it at boot.
+ * New schema changes go in a new V&lt;n&gt;__description.sql script, never in an already applied one.
+ */
+@Configuration
+public class SchemaMigrationConfig {
+
+    /**
+     * Applies pending migrations at startup unless "prestabanco.flyway.migrate-on-start" is false, as in the
+     * AppCDS training run of the Docker build (no database) or when migrations run as a separate deploy step.
+     * Checked at runtime rather than with a condition, since AOT processing freezes conditions at build time.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${prestabanco.flyway.migrate-on-start:true}") boolean migrateOnStart) {
+        return flyway -> {
+            if (migrateOnStart) flyway.migrate();
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package nasch.prestabanco_backend.Config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nasch.prestabanco_backend.services.UploadAdmissionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits multipart uploads through the UploadAdmissionService before their body is read, and answers
+ * 429 Too Many Requests with Retry-After when the upload budget is exhausted.
+ * Runs ahead of every filter that parses the multipart body.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+    @Autowired
+    UploadAdmissionService uploadAdmissionService; // Injects the service that budgets in-flight uploads.
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType == null || !contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        UploadAdmissionService.Permit permit = admit(request);
+        if (permit == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(uploadAdmissionService.retryAfterSeconds()));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Upload capacity exhausted, retry later");
+            return;
+        }
+
+        try (permit) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private UploadAdmissionService.Permit admit(HttpServletRequest request) {
+        try {
+            return uploadAdmissionService.tryAdmit(request.getContentLengthLong());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package nasch.prestabanco_backend.Config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the size of every multipart upload, both for the whole request and per document part,
+ * tagged with the matched endpoint pattern and the outcome so it can be correlated with http.server.requests.
+ */
+@Component
+public class UploadMetricsFilter extends OncePerRequestFilter {
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the upload summaries are published to.
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Part sizes must be read before the multipart resolver cleans the parts up at the end of the request.
+        Map<String, Long> documentSizes = new LinkedHashMap<>();
+        try {
+            for (Part part : request.getParts()) {
+                if (part.getSubmittedFileName() != null) documentSizes.put(part.getName(), part.getSize());
+            }
+        } catch (IllegalStateException | ServletException e) {
+            // Oversized or malformed uploads are rejected by the multipart resolver further down the chain.
+        }
+
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            String method = request.getMethod();
+            // An exception escaping the chain becomes a 500 after this filter has returned.
+            String outcome = failed ? Outcome.SERVER_ERROR.name() : Outcome.forStatus(response.getStatus()).name();
+
+            uploadSummary("prestabanco.upload.request.bytes", method, uri, outcome, "all")
+                    .record(Math.max(request.getContentLengthLong(), 0));
+            documentSizes.forEach((part, size) ->
+                    uploadSummary("prestabanco.upload.document.bytes", method, uri, outcome, part).record(size));
+        }
+    }
+
+    private DistributionSummary uploadSummary(String name, String method, String uri, String outcome, String part) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags("method", method, "uri", uri, "outcome", outcome, "part", part)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,185 @@
+package nasch.prestabanco_backend.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.UserRepository;
+import nasch.prestabanco_backend.services.LoanService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms a new instance up before it takes traffic: fills the connection pools, runs the loan simulation
+ * math until the JIT has compiled it, and runs the lookup queries so their plans, statements and
+ * Hibernate query translations are prepared.
+ * <p>
+ * Spring Boot reports the readiness state as ACCEPTING_TRAFFIC only after every ApplicationRunner has
+ * returned, so /actuator/health/readiness stays OUT_OF_SERVICE for as long as this runs. A phase that
+ * fails or runs past the deadline is logged and skipped; warm-up never keeps the instance from starting.
+ * Each phase is timed as "prestabanco.warmup.duration".
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WarmUpRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(WarmUpRunner.class);
+    private static final String WARM_UP_RUT = "warm-up";
+
+    @Autowired
+    LoanService loanService; // Injects LoanService to exercise the simulation math through its proxy.
+
+    @Autowired
+    LoanRepository loanRepository; // Injects LoanRepository to run the loan lookups.
+
+    @Autowired
+    UserRepository userRepository; // Injects UserRepository to run the user lookups.
+
+    @Autowired
+    FieldProjectionRepository fieldProjectionRepository; // Injects FieldProjectionRepository to prepare the sparse fieldset queries.
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource; // Injects the primary pool to open its connections ahead of traffic.
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource; // Injects the routing DataSource to reach the replica pools.
+
+    @Autowired
+    PlatformTransactionManager transactionManager; // Injects the JPA transaction manager to run the lookups as in a request.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the warm-up timings are published to.
+
+    @Value("${prestabanco.warmup.enabled:true}")
+    boolean enabled; // Starts taking traffic right away when false.
+
+    @Value("${prestabanco.warmup.simulation-iterations:20000}")
+    int simulationIterations; // Calls of each simulation method; above the JIT's C2 compile threshold.
+
+    @Value("${prestabanco.warmup.query-iterations:200}")
+    int queryIterations; // Rounds of the lookup queries.
+
+    @Value("${prestabanco.warmup.connections:10}")
+    int connections; // Connections opened per pool, capped at the pool's maximum size.
+
+    @Value("${prestabanco.warmup.timeout:PT60S}")
+    Duration timeout; // Time after which the remaining warm-up is skipped.
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Timer.Sample total = Timer.start(meterRegistry);
+
+        phase("pool", deadline, () -> {
+            fillPool(primaryDataSource);
+            for (ReplicaRoutingDataSource.Replica replica : replicaRoutingDataSource.getReplicas()) {
+                fillPool(replica.dataSource);
+            }
+        });
+        phase("simulation", deadline, () -> simulate(deadline));
+        phase("queries", deadline, () -> query(deadline));
+
+        long nanos = total.stop(timer("total", "completed"));
+        log.info("Warm-up finished in {} ms", Duration.ofNanos(nanos).toMillis());
+    }
+
+    /**
+     * Holds up to the configured number of connections at once, so the pool creates them now instead of
+     * under the first burst of requests.
+     * @param dataSource DataSource - the pool to fill.
+     */
+    void fillPool(DataSource dataSource) throws Exception {
+        int target = dataSource instanceof HikariDataSource hikari
+                ? Math.min(connections, hikari.getMaximumPoolSize()) : connections;
+        List<Connection> held = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                Connection connection = dataSource.getConnection();
+                held.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : held) connection.close();
+        }
+    }
+
+    void simulate(long deadline) {
+        double sink = 0;
+        for (int i = 0; i < simulationIterations && System.nanoTime() < deadline; i++) {
+            // Varies the inputs so the compiled code is not specialised to a single constant.
+            long amount = 10_000_000L + (i % 997) * 100_000L;
+            float rate = 3.5f + (i % 35) / 10f;
+            int term = 5 + i % 26;
+            sink += loanService.mortgageCreditSimulation(amount, rate, term);
+            sink += loanService.totalCostCalculation(amount, rate, term, 0.0003f, 0.01f, 20000);
+        }
+        if (Double.isNaN(sink)) log.debug("Warm-up simulation produced NaN");
+    }
+
+    void query(long deadline) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<String> fields = List.of("id", "rut", "state");
+        for (int i = 0; i < queryIterations && System.nanoTime() < deadline; i++) {
+            readOnly.executeWithoutResult(status -> {
+                loanRepository.findCollectionStamp();
+                loanRepository.findByRut(WARM_UP_RUT);
+                loanRepository.findByState(WARM_UP_RUT);
+                loanRepository.findById(-1L);
+                loanRepository.findRevisionById(-1L);
+                userRepository.findCollectionStamp();
+                userRepository.findByRut(WARM_UP_RUT);
+                userRepository.findById(-1L);
+                fieldProjectionRepository.findById(LoanEntity.class, -1L, fields);
+            });
+        }
+    }
+
+    private void phase(String name, long deadline, WarmUpPhase phase) {
+        if (System.nanoTime() >= deadline) {
+            log.warn("Warm-up phase {} skipped, the warm-up timeout of {} was reached", name, timeout);
+            timer(name, "skipped").record(Duration.ZERO);
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "completed";
+        try {
+            phase.run();
+            if (System.nanoTime() >= deadline) outcome = "timed-out";
+        } catch (Exception e) {
+            outcome = "failed";
+            log.warn("Warm-up phase {} failed: {}", name, e.getMessage());
+        }
+        sample.stop(timer(name, outcome));
+    }
+
+    private Timer timer(String phase, String outcome) {
+        return Timer.builder("prestabanco.warmup.duration")
+                .tags("phase", phase, "outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    interface WarmUpPhase {
+        void run() throws Exception;
+    }
+}
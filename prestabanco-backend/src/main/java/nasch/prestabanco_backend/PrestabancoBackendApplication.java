@@ -2,8 +2,10 @@ package nasch.prestabanco_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PrestabancoBackendApplication {
 
 	public static void main(String[] args) {
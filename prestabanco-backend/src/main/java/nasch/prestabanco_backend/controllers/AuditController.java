@@ -0,0 +1,45 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.dto.AuditRecord;
+import nasch.prestabanco_backend.services.AuditLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/audit")
+@CrossOrigin("*")
+public class AuditController {
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    AuditLog auditLog; // Injects the AuditLog dependency to read the recorded changes.
+
+    /**
+     * Retrieves the recorded loan and user changes, oldest first. Pass the sequence of the last
+     * record received as "after" to page through the log.
+     * @param rut String - optional RUT the changes belong to.
+     * @param entity String - optional entity, "loan" or "user".
+     * @param id Long - optional identifier of the entity.
+     * @param from Instant - optional earliest time, ISO-8601.
+     * @param to Instant - optional latest time, ISO-8601.
+     * @param after long - the last sequence already read, 0 to start from the beginning.
+     * @param limit int - the maximum number of records to return, up to 1000.
+     * @return ResponseEntity<List<AuditRecord>> - an HTTP response containing the matching records.
+     */
+    @GetMapping("/")
+    public ResponseEntity<List<AuditRecord>> queryAudit(@RequestParam(value = "rut", required = false) String rut,
+                                                        @RequestParam(value = "entity", required = false) String entity,
+                                                        @RequestParam(value = "id", required = false) Long id,
+                                                        @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                        @RequestParam(value = "after", defaultValue = "0") long after,
+                                                        @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(auditLog.query(after, from, to, AuditLog.matching(rut, entity, id),
+                Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
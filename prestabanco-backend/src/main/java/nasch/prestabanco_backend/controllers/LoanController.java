@@ -1,13 +1,28 @@
 package nasch.prestabanco_backend.controllers;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nasch.prestabanco_backend.Config.ReadYourWritesContext;
+import nasch.prestabanco_backend.dto.CollectionStamp;
+import nasch.prestabanco_backend.dto.MaxAmountRequest;
+import nasch.prestabanco_backend.dto.MaxAmountResult;
+import nasch.prestabanco_backend.dto.RefinancingRequest;
+import nasch.prestabanco_backend.dto.RefinancingResult;
+import nasch.prestabanco_backend.services.AmortizationEngine;
+import nasch.prestabanco_backend.services.BulkSimulationService;
 import nasch.prestabanco_backend.entities.LoanEntity;
 import nasch.prestabanco_backend.services.LoanService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -17,14 +32,107 @@ public class LoanController {
     @Autowired
     LoanService loanService; // Injects the LoanService dependency to access loan-related operations.
 
+    @Autowired
+    AmortizationEngine amortizationEngine; // Injects the AmortizationEngine dependency to simulate prepayments and refinancings.
+
+    @Autowired
+    BulkSimulationService bulkSimulationService; // Injects the BulkSimulationService dependency to simulate uploaded portfolios.
+
     /**
-     * Retrieves a list of all loans.
-     * @return ResponseEntity<List<LoanEntity>> - an HTTP response containing the list of all loans.
+     * Retrieves a list of all loans, or only some of their fields when "fields" is given
+     * (e.g. ?fields=id,rut,state,amount); only the requested columns are read from the database.
+     * Neither form includes documents, and they cannot be requested as fields; documents are downloaded
+     * from /api/loans/id/{id}/documents/{slot}.
+     * Answers 304 Not Modified without loading any loan when the client's ETag is still current.
+     * The ETag is weak and names the field set, and the response varies on Accept.
+     * @param fields String - optional comma-separated loan fields to return.
+     * @param webRequest WebRequest - the request, used to evaluate If-None-Match and If-Modified-Since.
+     * @param response HttpServletResponse - the response, marked as varying on Accept.
+     * @return ResponseEntity<?> - an HTTP response containing the list of all loans, or of their requested fields.
      */
     @GetMapping("/")
-    public ResponseEntity<List<LoanEntity>> listLoan() {
+    public ResponseEntity<?> listLoan(@RequestParam(value = "fields", required = false) String fields, WebRequest webRequest,
+                                      HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        CollectionStamp stamp = loanService.getLoansStamp();
+        String eTag = stamp.eTag(fields);
+        if (webRequest.checkNotModified(eTag, stamp.lastModifiedMillis())) return null;
+
+        if (fields != null) return ResponseEntity.ok().eTag(eTag).body(loanService.getAllLoans(fields));
         List<LoanEntity> loans = loanService.getAllLoans();
-        return ResponseEntity.ok(loans);
+        return ResponseEntity.ok().eTag(eTag).body(loans);
+    }
+
+    /**
+     * Retrieves the loans whose affordability metrics are within the given bounds, e.g.
+     * ?state=En Evaluación&min_payment_to_income=35 for the loans under evaluation with a payment above 35% of income.
+     * @param state String - optional loan state.
+     * @param min_payment_to_income Double - optional lower bound of the payment-to-income, in percent, exclusive.
+     * @param max_payment_to_income Double - optional upper bound of the payment-to-income, in percent, inclusive.
+     * @param max_loan_to_value Double - optional upper bound of the loan-to-value, in percent, inclusive.
+     * @param max_age_at_maturity Integer - optional upper bound of the applicant's age when the loan ends, inclusive.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, 100 by default and at most 1000.
+     * @return ResponseEntity<List<LoanEntity>> - an HTTP response containing the matching loans, ordered by id.
+     */
+    @GetMapping("/affordability")
+    public ResponseEntity<List<LoanEntity>> getLoansByAffordability(@RequestParam(value = "state", required = false) String state,
+                                                                    @RequestParam(value = "min_payment_to_income", required = false) Double min_payment_to_income,
+                                                                    @RequestParam(value = "max_payment_to_income", required = false) Double max_payment_to_income,
+                                                                    @RequestParam(value = "max_loan_to_value", required = false) Double max_loan_to_value,
+                                                                    @RequestParam(value = "max_age_at_maturity", required = false) Integer max_age_at_maturity,
+                                                                    @RequestParam(value = "after", defaultValue = "0") long after,
+                                                                    @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(loanService.getByAffordability(state, min_payment_to_income, max_payment_to_income,
+                max_loan_to_value, max_age_at_maturity, after, limit));
+    }
+
+    /**
+     * Retrieves the loans created within a time range, e.g. ?from=2026-09-01T00:00:00Z&to=2026-10-01T00:00:00Z.
+     * @param from Instant - start of the range, inclusive, in ISO-8601.
+     * @param to Instant - end of the range, exclusive, in ISO-8601.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, 100 by default and at most 1000.
+     * @return ResponseEntity<List<LoanEntity>> - an HTTP response containing the loans created in the range, ordered by id.
+     */
+    @GetMapping("/created")
+    public ResponseEntity<List<LoanEntity>> getLoansCreated(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                            @RequestParam(value = "after", defaultValue = "0") long after,
+                                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(loanService.getCreatedBetween(from, to, after, limit));
+    }
+
+    /**
+     * Retrieves the loans created in the last days.
+     * @param days int - how many days back to look, 7 by default.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, 100 by default and at most 1000.
+     * @return ResponseEntity<List<LoanEntity>> - an HTTP response containing the recent loans, ordered by id.
+     */
+    @GetMapping("/recent")
+    public ResponseEntity<List<LoanEntity>> getRecentLoans(@RequestParam(value = "days", defaultValue = "7") int days,
+                                                           @RequestParam(value = "after", defaultValue = "0") long after,
+                                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(loanService.getRecent(days, after, limit));
+    }
+
+    /**
+     * Exports the loans created within a time range as a CSV download, without their documents.
+     * The file is streamed while the loans are read, so any range can be exported.
+     * @param from Instant - start of the range, inclusive, in ISO-8601.
+     * @param to Instant - end of the range, exclusive, in ISO-8601.
+     * @param response HttpServletResponse - the response the CSV is streamed to.
+     * @throws IOException - if the CSV cannot be written.
+     */
+    @GetMapping("/export")
+    public void exportLoans(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                            HttpServletResponse response) throws IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("text/csv");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"loans.csv\"");
+        loanService.exportCreatedBetween(from, to, response.getOutputStream());
     }
 
     /**
@@ -49,6 +157,27 @@ public class LoanController {
         return ResponseEntity.ok(loan);
     }
 
+    /**
+     * Retrieves a loan by its ID, including loans that were archived.
+     * @param id Long - unique identifier of the loan.
+     * @return ResponseEntity<LoanEntity> - an HTTP response containing the loan entity, or 404 if it does not exist.
+     */
+    @GetMapping("/id/{id}")
+    public ResponseEntity<LoanEntity> getLoanId(@PathVariable Long id) {
+        return ResponseEntity.ok(loanService.getById(id));
+    }
+
+    /**
+     * Downloads one document of a loan; loans are returned without their documents.
+     * @param id Long - unique identifier of the loan.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @return ResponseEntity<byte[]> - an HTTP response containing the document, or 404 if it does not exist.
+     */
+    @GetMapping("/id/{id}/documents/{slot}")
+    public ResponseEntity<byte[]> getLoanDocument(@PathVariable Long id, @PathVariable int slot) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(loanService.getDocument(id, slot));
+    }
+
     /**
      * Saves a new loan to the system.
      * @param rut String - the RUT of the applicant.
@@ -62,7 +191,7 @@ public class LoanController {
      * @param age int - applicant's age.
      * @param state String - state of the loan application.
      * @param document1, document2, document3, document4 MultipartFile - optional supporting documents.
-     * @return ResponseEntity<LoanEntity> - an HTTP response containing the saved loan entity.
+     * @return ResponseEntity<LoanEntity> - an HTTP response containing the saved loan entity and an X-Read-After token.
      * @throws IOException - if there is an error reading the document files.
      */
     @PostMapping("/")
@@ -87,7 +216,7 @@ public class LoanController {
 
         LoanEntity loanNew = loanService.saveLoan(null, rut, type, property_price, amount, term,
                 interest_rate, income, working_time, age, state, document1Data, document2Data, document3Data, document4Data);
-        return ResponseEntity.ok(loanNew);
+        return ResponseEntity.ok().header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token()).body(loanNew);
     }
 
     /**
@@ -95,7 +224,7 @@ public class LoanController {
      * @param id Long - unique identifier of the loan.
      * @param rut, type, property_price, amount, term, interest_rate, income, working_time, age, state - new loan details.
      * @param document1, document2, document3, document4 MultipartFile - optional updated supporting documents.
-     * @return ResponseEntity<LoanEntity> - an HTTP response containing the updated loan entity.
+     * @return ResponseEntity<LoanEntity> - an HTTP response containing the updated loan entity and an X-Read-After token.
      * @throws IOException - if there is an error reading the document files.
      */
     @PutMapping("/{id}")
@@ -121,7 +250,7 @@ public class LoanController {
 
         LoanEntity loanUpdated = loanService.updateLoan(id, rut, type, property_price, amount, term,
                 interest_rate, income, working_time, age, state, document1Data, document2Data, document3Data, document4Data);
-        return ResponseEntity.ok(loanUpdated);
+        return ResponseEntity.ok().header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token()).body(loanUpdated);
     }
 
     /**
@@ -138,18 +267,43 @@ public class LoanController {
 
     /**
      * Simulates a mortgage credit calculation based on the amount, interest rate, and term.
+     * When "type" is given, the terms are first checked against that loan product's rules.
      * @param amount long - loan amount.
      * @param interest_rate float - annual interest rate.
      * @param term int - term in years.
+     * @param type String - optional loan type to check the terms against.
+     * @param property_price Long - optional property price, to check the financing percentage.
      * @return ResponseEntity<Double> - an HTTP response containing the monthly payment.
      */
     @PostMapping("/simulation")
     public ResponseEntity<Double> simulateCredit(@RequestParam("amount") long amount,
                                                  @RequestParam("interest_rate") float interest_rate,
-                                                 @RequestParam("term") int term) {
+                                                 @RequestParam("term") int term,
+                                                 @RequestParam(value = "type", required = false) String type,
+                                                 @RequestParam(value = "property_price", required = false) Long property_price) {
+        if (type != null) loanService.checkProduct(type, property_price, amount, term, interest_rate);
         return ResponseEntity.ok(loanService.mortgageCreditSimulation(amount, interest_rate, term));
     }
 
+    /**
+     * Simulates a portfolio of hypothetical loans uploaded as the request body, streaming one result per row
+     * back in the order of the input. The response starts before the upload has been fully read.
+     * CSV rows are amount,interest_rate,term[,desgravament,admin_com_por[,secure...]], with an optional header;
+     * NDJSON lines are objects with the same fields. Results come back in the same format, each with the
+     * input line number it answers, and the total cost only when fees or insurances were given.
+     * @param request HttpServletRequest - the request, whose body is the text/csv or application/x-ndjson upload.
+     * @param response HttpServletResponse - the response the results are streamed to.
+     * @throws IOException - if the upload cannot be read or the results cannot be written.
+     */
+    @PostMapping(value = "/simulation/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public void bulkSimulation(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean ndjson = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON);
+        BulkSimulationService.Format format = ndjson ? BulkSimulationService.Format.NDJSON : BulkSimulationService.Format.CSV;
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : "text/csv");
+        bulkSimulationService.simulate(request.getInputStream(), response.getOutputStream(), format);
+    }
+
     /**
      * Calculates the total cost of the loan including additional charges.
      * @param amount long - loan amount.
@@ -169,5 +323,53 @@ public class LoanController {
                                                   @RequestParam(required = false) int... secure) {
         return ResponseEntity.ok(loanService.totalCostCalculation(amount, interest_rate, term, desgravament, admin_cor_por, secure));
     }
-}
 
+    /**
+     * Computes the largest loan amount whose monthly payment stays within a share of the income.
+     * When desgravament, admin_com_por or secure is given, the total monthly cost is bounded instead.
+     * @param income long - monthly income of the applicant.
+     * @param interest_rate float - annual interest rate.
+     * @param term int - term in years.
+     * @param max_ratio double - largest share of the income the monthly payment may take, e.g. 0.35.
+     * @param desgravament Float - optional insurance cost as a percentage of the amount.
+     * @param admin_com_por Float - optional administration fee as a percentage of the amount.
+     * @param type String - optional loan type whose term and rate rules apply.
+     * @param property_price Long - optional property price; with a type, the amount is capped at the product's financing.
+     * @param secure int... - optional additional costs.
+     * @return ResponseEntity<MaxAmountResult> - an HTTP response containing the maximum amount and its payment.
+     */
+    @PostMapping("/max_amount")
+    public ResponseEntity<MaxAmountResult> maxAmount(@RequestParam("income") long income,
+                                                     @RequestParam("interest_rate") float interest_rate,
+                                                     @RequestParam("term") int term,
+                                                     @RequestParam("max_ratio") double max_ratio,
+                                                     @RequestParam(value = "desgravament", required = false) Float desgravament,
+                                                     @RequestParam(value = "admin_com_por", required = false) Float admin_com_por,
+                                                     @RequestParam(value = "type", required = false) String type,
+                                                     @RequestParam(value = "property_price", required = false) Long property_price,
+                                                     @RequestParam(value = "secure", required = false) int... secure) {
+        MaxAmountRequest request = new MaxAmountRequest(income, interest_rate, term, max_ratio,
+                desgravament, admin_com_por, secure, type, property_price);
+        return ResponseEntity.ok(loanService.maxAffordableAmount(request));
+    }
+
+    /**
+     * Computes the maximum loan amount of many applicants in one request.
+     * @param requests List<MaxAmountRequest> - the applicants, at most LoanService.MAX_AMOUNT_BATCH_SIZE.
+     * @return ResponseEntity<List<MaxAmountResult>> - one result per applicant, in order; invalid applicants carry an error.
+     */
+    @PostMapping("/max_amount/batch")
+    public ResponseEntity<List<MaxAmountResult>> maxAmountBatch(@RequestBody List<MaxAmountRequest> requests) {
+        return ResponseEntity.ok(loanService.maxAffordableAmounts(requests));
+    }
+
+    /**
+     * Simulates lump-sum prepayments, rate changes and term changes on a loan's amortization schedule.
+     * @param request RefinancingRequest - the loan (amount, interest_rate, term) and the events to apply.
+     * @return ResponseEntity<RefinancingResult> - an HTTP response containing the interest saved and the new schedule.
+     */
+    @PostMapping("/refinancing_simulation")
+    public ResponseEntity<RefinancingResult> refinancingSimulation(@RequestBody RefinancingRequest request) {
+        return ResponseEntity.ok(amortizationEngine.simulate(request));
+    }
+}
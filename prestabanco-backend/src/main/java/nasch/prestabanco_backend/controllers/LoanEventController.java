@@ -0,0 +1,32 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.services.LoanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/loans/events")
+@CrossOrigin("*")
+public class LoanEventController {
+    private static final int MAX_LIMIT = 1000;
+
+    @Autowired
+    LoanService loanService; // Injects the LoanService dependency to read the published loan changes.
+
+    /**
+     * Retrieves the loan changes published after a sequence, so consumers can tail the stream
+     * instead of re-reading the loan table. Pass the sequence of the last event received as "after".
+     * @param after long - the last sequence the consumer has seen, 0 to start from the oldest retained event.
+     * @param limit int - the maximum number of events to return, up to 1000.
+     * @return ResponseEntity<List<LoanChangeEvent>> - an HTTP response containing the events in sequence order.
+     */
+    @GetMapping("/")
+    public ResponseEntity<List<LoanChangeEvent>> tailEvents(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(loanService.getEventsAfter(after, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
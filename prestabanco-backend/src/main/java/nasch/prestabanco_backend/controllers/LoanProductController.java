@@ -0,0 +1,43 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.dto.LoanProduct;
+import nasch.prestabanco_backend.services.LoanProductCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.Collection;
+
+@RestController
+@RequestMapping("/api/products")
+@CrossOrigin("*")
+public class LoanProductController {
+    @Autowired
+    LoanProductCatalog loanProductCatalog; // Injects the LoanProductCatalog dependency to read and reload the products.
+
+    /**
+     * Retrieves the loan products and their rules.
+     * @return ResponseEntity<Collection<LoanProduct>> - an HTTP response containing the products in effect.
+     */
+    @GetMapping("/")
+    public ResponseEntity<Collection<LoanProduct>> listProducts() {
+        return ResponseEntity.ok(loanProductCatalog.getProducts());
+    }
+
+    /**
+     * Reads the product catalog again from its configured location, without a restart.
+     * A catalog that cannot be read or breaks a rule is rejected and the current one stays in effect.
+     * @return ResponseEntity<Collection<LoanProduct>> - an HTTP response containing the products now in effect.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Collection<LoanProduct>> reloadProducts() {
+        try {
+            return ResponseEntity.ok(loanProductCatalog.reload());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Catalog not reloaded: " + e.getMessage());
+        }
+    }
+}
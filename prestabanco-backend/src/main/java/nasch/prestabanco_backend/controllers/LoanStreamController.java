@@ -0,0 +1,38 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.dto.LoanStreamFilter;
+import nasch.prestabanco_backend.services.LoanEventBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/loans/stream")
+@CrossOrigin("*")
+public class LoanStreamController {
+    @Autowired
+    LoanEventBroadcaster loanEventBroadcaster; // Injects the broadcaster that pushes loan changes to subscribers.
+
+    /**
+     * Opens a Server-Sent Events stream of loan changes (CREATED, UPDATED, STATE_CHANGED, DELETED),
+     * so dashboards can react to changes instead of re-reading the loan list.
+     * Each event id is a sequence; a reconnecting client sends it back as Last-Event-ID to receive what it missed.
+     * When it missed more than can be replayed, the stream starts with a RESET event instead and the client
+     * must reload the loans it shows before applying the changes that follow.
+     * @param state Set<String> - optional loan states of interest; matches loans entering or leaving them.
+     * @param type Set<String> - optional loan types of interest.
+     * @param rut Set<String> - optional applicant RUTs of interest.
+     * @param lastEventId Long - optional sequence of the last event received.
+     * @return SseEmitter - the event stream.
+     */
+    @GetMapping(value = "/", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLoans(@RequestParam(value = "state", required = false) Set<String> state,
+                                  @RequestParam(value = "type", required = false) Set<String> type,
+                                  @RequestParam(value = "rut", required = false) Set<String> rut,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return loanEventBroadcaster.subscribe(new LoanStreamFilter(state, type, rut), lastEventId);
+    }
+}
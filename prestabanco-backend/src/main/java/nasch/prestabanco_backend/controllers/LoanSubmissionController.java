@@ -0,0 +1,72 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.Config.ReadYourWritesContext;
+import nasch.prestabanco_backend.dto.SubmissionStatus;
+import nasch.prestabanco_backend.services.LoanSubmissionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Asynchronous loan submission: the loan is committed at once and its documents are processed in
+ * the background, with their progress available by polling the returned tracking id.
+ */
+@RestController
+@RequestMapping("/api/loans/submissions")
+@CrossOrigin("*")
+public class LoanSubmissionController {
+    @Autowired
+    LoanSubmissionService loanSubmissionService; // Injects the LoanSubmissionService to accept and track submissions.
+
+    /**
+     * Submits a new loan, answering before its documents are stored.
+     * @param rut, type, property_price, amount, term, interest_rate, income, working_time, age, state - loan details.
+     * @param document1, document2, document3, document4 MultipartFile - optional supporting documents.
+     * @return ResponseEntity<SubmissionStatus> - an HTTP 202 response with the tracking id, its location and an X-Read-After token.
+     * @throws IOException - if there is an error spooling the document files.
+     */
+    @PostMapping("/")
+    public ResponseEntity<SubmissionStatus> submitLoan(@RequestParam("rut") String rut,
+                                                       @RequestParam("type") String type,
+                                                       @RequestParam("property_price") long property_price,
+                                                       @RequestParam("amount") long amount,
+                                                       @RequestParam("term") int term,
+                                                       @RequestParam("interest_rate") float interest_rate,
+                                                       @RequestParam("income") long income,
+                                                       @RequestParam("working_time") int working_time,
+                                                       @RequestParam("age") int age,
+                                                       @RequestParam("state") String state,
+                                                       @RequestParam(value = "document1", required = false) MultipartFile document1,
+                                                       @RequestParam(value = "document2", required = false) MultipartFile document2,
+                                                       @RequestParam(value = "document3", required = false) MultipartFile document3,
+                                                       @RequestParam(value = "document4", required = false) MultipartFile document4) throws IOException {
+        Map<Integer, MultipartFile> documents = new HashMap<>();
+        documents.put(1, document1);
+        documents.put(2, document2);
+        documents.put(3, document3);
+        documents.put(4, document4);
+
+        SubmissionStatus status = loanSubmissionService.submit(rut, type, property_price, amount, term,
+                interest_rate, income, working_time, age, state, documents);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/loans/submissions/" + status.trackingId()))
+                .header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token())
+                .body(status);
+    }
+
+    /**
+     * Retrieves the progress of a submission.
+     * @param trackingId String - identifier returned when the submission was accepted.
+     * @return ResponseEntity<SubmissionStatus> - an HTTP response containing the submission progress.
+     */
+    @GetMapping("/{trackingId}")
+    public ResponseEntity<SubmissionStatus> getSubmission(@PathVariable String trackingId) {
+        return ResponseEntity.ok(loanSubmissionService.status(trackingId));
+    }
+}
@@ -0,0 +1,60 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.dto.LoanSummaryTotals;
+import nasch.prestabanco_backend.entities.LoanSummaryEntity;
+import nasch.prestabanco_backend.services.LoanService;
+import nasch.prestabanco_backend.services.LoanSummaryProjector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/loans/summary")
+@CrossOrigin("*")
+public class LoanSummaryController {
+    @Autowired
+    LoanService loanService; // Injects the LoanService dependency to read the loan summary.
+
+    @Autowired
+    LoanSummaryProjector loanSummaryProjector; // Injects the LoanSummaryProjector dependency to rebuild the loan summary.
+
+    /**
+     * Lists and searches the loan summaries: id, rut, applicant name, type, amount, state, monthly payment
+     * and ratios, without reading the loan table. Pages are read with "after" set to the last id of the previous one.
+     * @param rut String - optional RUT filter.
+     * @param type String - optional loan type filter.
+     * @param state String - optional loan state filter.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of summaries to return, 0 for no limit.
+     * @return ResponseEntity<List<LoanSummaryEntity>> - an HTTP response containing the matching summaries, ordered by id.
+     */
+    @GetMapping("/")
+    public ResponseEntity<List<LoanSummaryEntity>> searchSummaries(@RequestParam(value = "rut", required = false) String rut,
+                                                                   @RequestParam(value = "type", required = false) String type,
+                                                                   @RequestParam(value = "state", required = false) String state,
+                                                                   @RequestParam(value = "after", defaultValue = "0") long after,
+                                                                   @RequestParam(value = "limit", defaultValue = "0") int limit) {
+        return ResponseEntity.ok(loanService.searchSummaries(rut, type, state, after, limit));
+    }
+
+    /**
+     * Retrieves the dashboard totals of the loans by state and type.
+     * @return ResponseEntity<List<LoanSummaryTotals>> - an HTTP response containing the totals of each state and type.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<List<LoanSummaryTotals>> getDashboard() {
+        return ResponseEntity.ok(loanService.getSummaryTotals());
+    }
+
+    /**
+     * Rebuilds the loan summary from the loans and users, e.g. after a change to how it is computed.
+     * @return ResponseEntity<Map<String, Long>> - an HTTP response containing the number of loans summarized.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildSummary() {
+        return ResponseEntity.ok(Map.of("loans", loanSummaryProjector.rebuild()));
+    }
+}
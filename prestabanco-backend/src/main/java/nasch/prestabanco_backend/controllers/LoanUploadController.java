@@ -0,0 +1,97 @@
+package nasch.prestabanco_backend.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import nasch.prestabanco_backend.Config.ReadYourWritesContext;
+import nasch.prestabanco_backend.dto.UploadStatus;
+import nasch.prestabanco_backend.services.ChunkedUploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Resumable upload of loan documents: open a session, PUT chunks at increasing offsets, query the
+ * session to learn where to resume after a dropped connection, then complete it.
+ */
+@RestController
+@RequestMapping("/api/loans/uploads")
+@CrossOrigin("*")
+public class LoanUploadController {
+    static final String OFFSET_HEADER = "Upload-Offset";
+    static final String CHECKSUM_HEADER = "Upload-Checksum";
+
+    @Autowired
+    ChunkedUploadService chunkedUploadService; // Injects the ChunkedUploadService to manage upload sessions.
+
+    /**
+     * Opens an upload session for one document of a loan.
+     * @param loanId Long - unique identifier of the loan.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @param length long - total size of the document in bytes.
+     * @param sha256 String - optional hex SHA-256 of the whole document, verified on completion.
+     * @return ResponseEntity<UploadStatus> - an HTTP 201 response with the session and its location.
+     */
+    @PostMapping("/")
+    public ResponseEntity<UploadStatus> createUpload(@RequestParam("loanId") Long loanId,
+                                                     @RequestParam("slot") int slot,
+                                                     @RequestParam("length") long length,
+                                                     @RequestParam(value = "sha256", required = false) String sha256) {
+        UploadStatus status = chunkedUploadService.create(loanId, slot, length, sha256);
+        return ResponseEntity.created(URI.create("/api/loans/uploads/" + status.uploadId()))
+                .header(OFFSET_HEADER, Long.toString(status.offset()))
+                .body(status);
+    }
+
+    /**
+     * Retrieves the state of an upload, including the offset the next chunk must start at.
+     * @param uploadId String - identifier of the upload session.
+     * @return ResponseEntity<UploadStatus> - an HTTP response containing the session state.
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> getUpload(@PathVariable String uploadId) {
+        UploadStatus status = chunkedUploadService.status(uploadId);
+        return ResponseEntity.ok().header(OFFSET_HEADER, Long.toString(status.offset())).body(status);
+    }
+
+    /**
+     * Appends the request body as a chunk of the document.
+     * @param uploadId String - identifier of the upload session.
+     * @param offset long - position of the chunk within the document, from the Upload-Offset header.
+     * @param checksum String - optional "sha256 &lt;base64 digest&gt;" of the chunk, from the Upload-Checksum header.
+     * @param request HttpServletRequest - the request whose body is the chunk.
+     * @return ResponseEntity<UploadStatus> - an HTTP response containing the session state after the chunk.
+     * @throws IOException - if the request body cannot be opened.
+     */
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<UploadStatus> uploadChunk(@PathVariable String uploadId,
+                                                    @RequestHeader(OFFSET_HEADER) long offset,
+                                                    @RequestHeader(value = CHECKSUM_HEADER, required = false) String checksum,
+                                                    HttpServletRequest request) throws IOException {
+        UploadStatus status = chunkedUploadService.appendChunk(uploadId, offset, request.getInputStream(), checksum);
+        return ResponseEntity.ok().header(OFFSET_HEADER, Long.toString(status.offset())).body(status);
+    }
+
+    /**
+     * Verifies a fully received upload and stores it as the loan document.
+     * @param uploadId String - identifier of the upload session.
+     * @return ResponseEntity<UploadStatus> - an HTTP response containing the final state and an X-Read-After token.
+     */
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadStatus> completeUpload(@PathVariable String uploadId) {
+        UploadStatus status = chunkedUploadService.complete(uploadId);
+        return ResponseEntity.ok().header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token()).body(status);
+    }
+
+    /**
+     * Abandons an upload and deletes what was received.
+     * @param uploadId String - identifier of the upload session.
+     * @return ResponseEntity<Void> - an HTTP response with no content.
+     */
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId) {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,80 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.entities.LoanReadEntity;
+import nasch.prestabanco_backend.services.ReactiveLoanService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+public class ReactiveLoanHandler {
+    @Autowired
+    ReactiveLoanService reactiveLoanService; // Injects the ReactiveLoanService dependency for non-blocking loan reads.
+
+    /**
+     * Streams all loans as newline-delimited JSON.
+     * @param request ServerRequest - the incoming request.
+     * @return Mono<ServerResponse> - a streaming response with one loan per line.
+     */
+    public Mono<ServerResponse> listLoans(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reactiveLoanService.getAllLoans(), LoanReadEntity.class);
+    }
+
+    /**
+     * Retrieves a loan by its ID.
+     * @param request ServerRequest - the incoming request with the "id" path variable.
+     * @return Mono<ServerResponse> - the loan, 404 if it does not exist, or 400 if the id is not a number.
+     */
+    public Mono<ServerResponse> getLoanId(ServerRequest request) {
+        Long id;
+        try {
+            id = Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return badRequest("id must be a number");
+        }
+        return reactiveLoanService.getById(id)
+                .flatMap(loan -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(loan))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * Streams the loans of an applicant as newline-delimited JSON.
+     * @param request ServerRequest - the incoming request with the "rut" path variable.
+     * @return Mono<ServerResponse> - a streaming response with the applicant's loans.
+     */
+    public Mono<ServerResponse> getLoanRut(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reactiveLoanService.getByRut(request.pathVariable("rut")), LoanReadEntity.class);
+    }
+
+    /**
+     * Streams the loans matching the optional "rut", "type" and "state" query parameters.
+     * @param request ServerRequest - the incoming request; "limit" caps the number of results.
+     * @return Mono<ServerResponse> - a streaming response with the matching loans, or 400 if the limit is not a non-negative number.
+     */
+    public Mono<ServerResponse> searchLoans(ServerRequest request) {
+        int limit;
+        try {
+            limit = request.queryParam("limit").map(Integer::parseInt).orElse(0);
+        } catch (NumberFormatException e) {
+            return badRequest("limit must be a number");
+        }
+        if (limit < 0) return badRequest("limit must not be negative");
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reactiveLoanService.search(request.queryParam("rut").orElse(null),
+                        request.queryParam("type").orElse(null),
+                        request.queryParam("state").orElse(null),
+                        limit), LoanReadEntity.class);
+    }
+
+    static Mono<ServerResponse> badRequest(String message) {
+        return ServerResponse.badRequest().contentType(MediaType.TEXT_PLAIN).bodyValue(message);
+    }
+}
@@ -0,0 +1,55 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.entities.UserReadEntity;
+import nasch.prestabanco_backend.services.ReactiveUserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+public class ReactiveUserHandler {
+    @Autowired
+    ReactiveUserService reactiveUserService; // Injects the ReactiveUserService dependency for non-blocking user reads.
+
+    /**
+     * Streams all users as newline-delimited JSON.
+     * @param request ServerRequest - the incoming request.
+     * @return Mono<ServerResponse> - a streaming response with one user per line.
+     */
+    public Mono<ServerResponse> listUsers(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reactiveUserService.getAllUsers(), UserReadEntity.class);
+    }
+
+    /**
+     * Retrieves a user by their ID.
+     * @param request ServerRequest - the incoming request with the "id" path variable.
+     * @return Mono<ServerResponse> - the user, 404 if they do not exist, or 400 if the id is not a number.
+     */
+    public Mono<ServerResponse> getUserId(ServerRequest request) {
+        Long id;
+        try {
+            id = Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return ReactiveLoanHandler.badRequest("id must be a number");
+        }
+        return reactiveUserService.getUserById(id)
+                .flatMap(user -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(user))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * Retrieves a user by their RUT.
+     * @param request ServerRequest - the incoming request with the "rut" path variable.
+     * @return Mono<ServerResponse> - the user, or 404 if it does not exist.
+     */
+    public Mono<ServerResponse> getUserRut(ServerRequest request) {
+        return reactiveUserService.getUserByRut(request.pathVariable("rut"))
+                .flatMap(user -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(user))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+}
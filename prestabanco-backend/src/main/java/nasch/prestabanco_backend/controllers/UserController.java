@@ -1,14 +1,21 @@
 package nasch.prestabanco_backend.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
+import nasch.prestabanco_backend.Config.ReadYourWritesContext;
+import nasch.prestabanco_backend.dto.CollectionStamp;
 import nasch.prestabanco_backend.entities.UserEntity;
 import nasch.prestabanco_backend.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/users")
@@ -18,24 +25,62 @@ public class UserController {
     UserService userService; // Injects the UserService dependency to access user-related operations.
 
     /**
-     * Retrieves a list of all users.
-     * @return ResponseEntity<List<UserEntity>> - an HTTP response containing the list of all users.
+     * Retrieves a list of all users, or only some of their fields when "fields" is given
+     * (e.g. ?fields=id,rut,name); only the requested columns are read from the database.
+     * Neither form includes documents, and they cannot be requested as fields; the document is downloaded from /api/users/{id}/document.
+     * Answers 304 Not Modified without loading any user when the client's ETag is still current.
+     * The ETag is weak and names the field set, and the response varies on Accept.
+     * @param fields String - optional comma-separated user fields to return.
+     * @param webRequest WebRequest - the request, used to evaluate If-None-Match and If-Modified-Since.
+     * @param response HttpServletResponse - the response, marked as varying on Accept.
+     * @return ResponseEntity<?> - an HTTP response containing the list of all users, or of their requested fields.
      */
     @GetMapping("/")
-    public ResponseEntity<List<UserEntity>> listUsers() {
+    public ResponseEntity<?> listUsers(@RequestParam(value = "fields", required = false) String fields, WebRequest webRequest,
+                                       HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        CollectionStamp stamp = userService.getUsersStamp();
+        String eTag = stamp.eTag(fields);
+        if (webRequest.checkNotModified(eTag, stamp.lastModifiedMillis())) return null;
+
+        if (fields != null) return ResponseEntity.ok().eTag(eTag).body(userService.getAllUsers(fields));
         List<UserEntity> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+        return ResponseEntity.ok().eTag(eTag).body(users);
     }
 
     /**
-     * Retrieves a specific user by their ID.
+     * Retrieves a specific user by their ID, or only some of their fields when "fields" is given.
+     * Answers 304 Not Modified from the version column alone, without loading the document,
+     * when the client's ETag matches the current version.
      * @param id Long - unique identifier of the user.
-     * @return ResponseEntity<UserEntity> - an HTTP response containing the user entity.
+     * @param fields String - optional comma-separated user fields to return.
+     * @param webRequest WebRequest - the request, used to evaluate If-None-Match.
+     * @param response HttpServletResponse - the response, marked as varying on Accept.
+     * @return ResponseEntity<?> - an HTTP response containing the user entity, or its requested fields.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserEntity> getUserId(@PathVariable Long id) {
+    public ResponseEntity<?> getUserId(@PathVariable Long id, @RequestParam(value = "fields", required = false) String fields,
+                                       WebRequest webRequest, HttpServletResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        Long version = userService.getUserVersion(id);
+        if (version != null && webRequest.checkNotModified(versionTag(version, fields))) return null;
+
+        if (fields != null) {
+            Map<String, Object> user = userService.getUserById(id, fields);
+            return ResponseEntity.ok().eTag(versionTag(version, fields)).body(user);
+        }
         UserEntity user = userService.getUserById(id);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(versionTag(user.getVersion(), null)).body(user);
+    }
+
+    /**
+     * Downloads the document of a user; users are returned without it.
+     * @param id Long - unique identifier of the user.
+     * @return ResponseEntity<byte[]> - an HTTP response containing the document, or 404 if it does not exist.
+     */
+    @GetMapping("/{id}/document")
+    public ResponseEntity<byte[]> getUserDocument(@PathVariable Long id) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(userService.getUserDocument(id));
     }
 
     /**
@@ -44,7 +89,7 @@ public class UserController {
      * @param name String - name of the user.
      * @param email String - email address of the user.
      * @param document MultipartFile - optional document file associated with the user.
-     * @return ResponseEntity<UserEntity> - an HTTP response containing the saved user entity.
+     * @return ResponseEntity<UserEntity> - an HTTP response containing the saved user entity and an X-Read-After token.
      * @throws IOException - if there is an error reading the document file.
      */
     @PostMapping("/")
@@ -55,7 +100,7 @@ public class UserController {
         byte[] documentData = document.getBytes();
 
         UserEntity userNew = userService.saveUser(null, rut, name, email, documentData);
-        return ResponseEntity.ok(userNew);
+        return ResponseEntity.ok().header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token()).body(userNew);
     }
 
     /**
@@ -65,7 +110,7 @@ public class UserController {
      * @param name String - name of the user.
      * @param email String - email address of the user.
      * @param document MultipartFile - optional document file associated with the user.
-     * @return ResponseEntity<UserEntity> - an HTTP response containing the updated user entity.
+     * @return ResponseEntity<UserEntity> - an HTTP response containing the updated user entity and an X-Read-After token.
      * @throws IOException - if there is an error reading the document file.
      */
     @PutMapping("/{id}")
@@ -77,7 +122,7 @@ public class UserController {
         byte[] documentData = document != null ? document.getBytes() : null;
 
         UserEntity userUpdated = userService.updateUser(id, rut, name, email, documentData);
-        return ResponseEntity.ok(userUpdated);
+        return ResponseEntity.ok().header(ReadYourWritesContext.HEADER, ReadYourWritesContext.token()).body(userUpdated);
     }
 
     /**
@@ -91,4 +136,8 @@ public class UserController {
         var isDeleted = userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static String versionTag(long version, String fields) {
+        return CollectionStamp.weakTag(Long.toString(version), fields);
+    }
 }
\ No newline at end of file
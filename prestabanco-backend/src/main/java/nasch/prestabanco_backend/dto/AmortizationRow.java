@@ -0,0 +1,15 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * One month of an amortization schedule.
+ * @param month int - month of the loan, starting at 1.
+ * @param interest_rate float - annual interest rate in effect.
+ * @param payment double - regular payment made, interest plus principal.
+ * @param interest double - interest part of the payment.
+ * @param principal double - principal part of the payment.
+ * @param prepayment double - lump sum prepaid at the start of the month, 0 if none.
+ * @param balance double - outstanding balance after the month.
+ */
+public record AmortizationRow(int month, float interest_rate, double payment, double interest, double principal,
+                              double prepayment, double balance) {
+}
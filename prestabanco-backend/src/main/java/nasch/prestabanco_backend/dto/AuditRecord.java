@@ -0,0 +1,18 @@
+package nasch.prestabanco_backend.dto;
+
+import java.time.Instant;
+
+/**
+ * One committed change to a loan or user, as kept in the audit log.
+ * @param sequence long - position of the record in the log, strictly increasing.
+ * @param timestamp Instant - when the change was committed.
+ * @param entity String - "loan" or "user".
+ * @param action String - CREATE, UPDATE, DELETE or DOCUMENT.
+ * @param entityId Long - identifier of the changed entity.
+ * @param version long - version of the entity after the change.
+ * @param rut String - RUT the entity belongs to.
+ * @param detail String - loan state after the change, or the document slot replaced; may be null.
+ */
+public record AuditRecord(long sequence, Instant timestamp, String entity, String action, Long entityId,
+                          long version, String rut, String detail) {
+}
@@ -0,0 +1,55 @@
+package nasch.prestabanco_backend.dto;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Cheap fingerprint of a whole table, computed with a single aggregate query and used to answer
+ * conditional GETs on collection endpoints without loading any row.
+ * @param count Long - number of rows.
+ * @param versionSum Long - sum of the row versions; grows on every update.
+ * @param lastModified Instant - most recent update timestamp, or null if unknown.
+ * @param maxId Long - highest id; changes when a row is deleted and another one inserted.
+ */
+public record CollectionStamp(Long count, Long versionSum, Instant lastModified, Long maxId) {
+
+    /**
+     * @return String - the strong ETag value for the collection.
+     */
+    public String eTag() {
+        return "\"" + count + "-" + versionSum + "-" + maxId + "\"";
+    }
+
+    /**
+     * The ETag of one representation of the collection. It is weak, because JSON, CBOR and Smile
+     * encode the same content differently and the responses carry Vary: Accept, and it names the
+     * field set so a projection never validates a cached full listing or another projection.
+     * @param fields String - the requested comma-separated fields, or null for the full entities.
+     * @return String - the weak ETag value for this representation.
+     */
+    public String eTag(String fields) {
+        return weakTag(count + "-" + versionSum + "-" + maxId, fields);
+    }
+
+    /**
+     * @param value String - the version the tag stands for.
+     * @param fields String - the requested comma-separated fields, or null for the full entities.
+     * @return String - a weak ETag for that version and field set; the order of the fields does not matter.
+     */
+    public static String weakTag(String value, String fields) {
+        if (fields == null) return "W/\"" + value + "\"";
+        Set<String> names = new TreeSet<>();
+        for (String field : fields.split(",")) {
+            if (!field.isBlank()) names.add(field.trim());
+        }
+        return "W/\"" + value + "-f" + Integer.toHexString(String.join(",", names).hashCode()) + "\"";
+    }
+
+    /**
+     * @return long - the Last-Modified value in epoch millis, or -1 when no row has a timestamp.
+     */
+    public long lastModifiedMillis() {
+        return lastModified != null ? lastModified.toEpochMilli() : -1;
+    }
+}
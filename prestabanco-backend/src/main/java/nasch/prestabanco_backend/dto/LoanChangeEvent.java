@@ -0,0 +1,22 @@
+package nasch.prestabanco_backend.dto;
+
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A published loan change, as delivered to sinks and to consumers tailing the stream.
+ * Delivery is at least once; consumers deduplicate on the sequence.
+ * @param sequence long - position of the event in the stream, strictly increasing.
+ * @param loanId Long - the loan that changed.
+ * @param type String - CREATED, UPDATED or DELETED.
+ * @param payload Map<String, Object> - scalar loan fields after the change; empty for a deletion.
+ * @param occurredAt Instant - when the change was made.
+ */
+public record LoanChangeEvent(long sequence, Long loanId, String type, Map<String, Object> payload, Instant occurredAt) {
+
+    public static LoanChangeEvent from(LoanEventEntity event) {
+        return new LoanChangeEvent(event.getSequence(), event.getLoan_id(), event.getEvent_type(), event.getPayload(), event.getOccurred_at());
+    }
+}
@@ -0,0 +1,18 @@
+package nasch.prestabanco_backend.dto;
+
+import java.time.Instant;
+
+/**
+ * A loan change as pushed to stream subscribers.
+ * @param sequence long - sequence of the underlying change event; clients resume from it with Last-Event-ID.
+ * @param loanId Long - the loan that changed.
+ * @param event String - CREATED, UPDATED, STATE_CHANGED or DELETED.
+ * @param previousState String - state before the change, when known.
+ * @param state String - state after the change; null for a deletion.
+ * @param type String - type of the loan.
+ * @param rut String - RUT of the applicant.
+ * @param occurredAt Instant - when the change was made.
+ */
+public record LoanNotification(long sequence, Long loanId, String event, String previousState, String state,
+                               String type, String rut, Instant occurredAt) {
+}
@@ -0,0 +1,12 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * Lending rules of one loan type.
+ * @param name String - the loan type, as stored in the loan's "type".
+ * @param max_term int - longest term allowed, in years.
+ * @param min_rate float - lowest annual interest rate allowed.
+ * @param max_rate float - highest annual interest rate allowed.
+ * @param max_financing int - largest amount allowed, as a percentage of the property price.
+ */
+public record LoanProduct(String name, int max_term, float min_rate, float max_rate, int max_financing) {
+}
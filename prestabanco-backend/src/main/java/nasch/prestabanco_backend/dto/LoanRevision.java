@@ -0,0 +1,12 @@
+package nasch.prestabanco_backend.dto;
+
+import java.time.Instant;
+
+/**
+ * The stored columns of a loan that an update or deletion carries over, read in one query without the documents.
+ * @param version long - current version, so the merge is not rejected as a stale update.
+ * @param created_at Instant - creation time, which is never rewritten.
+ * @param state String - current state, recorded as the state the loan left.
+ */
+public record LoanRevision(long version, Instant created_at, String state) {
+}
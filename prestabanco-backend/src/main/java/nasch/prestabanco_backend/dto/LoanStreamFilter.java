@@ -0,0 +1,29 @@
+package nasch.prestabanco_backend.dto;
+
+import java.util.Set;
+
+/**
+ * Selects the notifications a stream subscriber receives; an empty set accepts every value.
+ * A state filter matches both the state a loan enters and the state it leaves.
+ * @param states Set<String> - loan states of interest.
+ * @param types Set<String> - loan types of interest.
+ * @param ruts Set<String> - applicant RUTs of interest.
+ */
+public record LoanStreamFilter(Set<String> states, Set<String> types, Set<String> ruts) {
+
+    public LoanStreamFilter {
+        states = states != null ? Set.copyOf(states) : Set.of();
+        types = types != null ? Set.copyOf(types) : Set.of();
+        ruts = ruts != null ? Set.copyOf(ruts) : Set.of();
+    }
+
+    public boolean matches(LoanNotification notification) {
+        return (states.isEmpty() || contains(states, notification.state()) || contains(states, notification.previousState()))
+                && (types.isEmpty() || contains(types, notification.type()))
+                && (ruts.isEmpty() || contains(ruts, notification.rut()));
+    }
+
+    private static boolean contains(Set<String> values, String value) {
+        return value != null && values.contains(value);
+    }
+}
@@ -0,0 +1,12 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * Dashboard figures for the loans in one state and of one type, aggregated from the loan summary.
+ * @param state String - state of the loans.
+ * @param type String - type of the loans.
+ * @param count Long - number of loans.
+ * @param total_amount Long - sum of the loan amounts.
+ * @param average_payment_to_income Double - mean monthly payment over income, in percent, of the loans with an income.
+ */
+public record LoanSummaryTotals(String state, String type, Long count, Long total_amount, Double average_payment_to_income) {
+}
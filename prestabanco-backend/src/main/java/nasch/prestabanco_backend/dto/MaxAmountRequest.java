@@ -0,0 +1,24 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * One applicant for the maximum affordable loan: the largest amount whose monthly payment stays within
+ * max_ratio of the income. When desgravament or admin_com_por is given, the total monthly cost of
+ * totalCostCalculation is bounded instead of the bare mortgage payment.
+ * @param income long - monthly income of the applicant.
+ * @param interest_rate float - annual interest rate.
+ * @param term int - loan term in years.
+ * @param max_ratio double - largest share of the income the monthly payment may take, e.g. 0.35.
+ * @param desgravament Float - desgravament (life insurance) rate, or null.
+ * @param admin_com_por Float - administrative commission percentage, or null.
+ * @param secure int[] - monthly costs of additional insurance policies, or null.
+ * @param type String - loan type whose rules the term and rate must follow, or null.
+ * @param property_price Long - price of the property; with a type, caps the amount at the product's financing. May be null.
+ */
+public record MaxAmountRequest(long income, float interest_rate, int term, double max_ratio,
+                               Float desgravament, Float admin_com_por, int[] secure,
+                               String type, Long property_price) {
+
+    public boolean boundsTotalCost() {
+        return desgravament != null || admin_com_por != null || (secure != null && secure.length > 0);
+    }
+}
@@ -0,0 +1,15 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * The maximum affordable loan of one applicant, or why it could not be computed.
+ * @param amount Long - the largest loan amount within the ratio, 0 if none is; null on error.
+ * @param monthly_payment Double - monthly mortgage payment of that amount; null on error.
+ * @param monthly_cost Double - total monthly cost of that amount, when the total cost was bounded; otherwise null.
+ * @param error String - reason the request was rejected, if any.
+ */
+public record MaxAmountResult(Long amount, Double monthly_payment, Double monthly_cost, String error) {
+
+    public static MaxAmountResult failed(String error) {
+        return new MaxAmountResult(null, null, null, error);
+    }
+}
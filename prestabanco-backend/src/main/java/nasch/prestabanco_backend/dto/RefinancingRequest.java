@@ -0,0 +1,13 @@
+package nasch.prestabanco_backend.dto;
+
+import java.util.List;
+
+/**
+ * A loan and the prepayments and refinancings to simulate on it.
+ * @param amount long - loan amount.
+ * @param interest_rate float - annual interest rate at the start.
+ * @param term int - loan term in years at the start.
+ * @param events List<ScheduleEvent> - the changes to apply, in any order; may be empty.
+ */
+public record RefinancingRequest(long amount, float interest_rate, int term, List<ScheduleEvent> events) {
+}
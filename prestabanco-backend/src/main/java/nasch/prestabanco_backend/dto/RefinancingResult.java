@@ -0,0 +1,17 @@
+package nasch.prestabanco_backend.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a prepayment or refinancing simulation, compared with the loan left unchanged.
+ * @param baseline_interest double - total interest of the unchanged loan.
+ * @param baseline_months int - months of the unchanged loan.
+ * @param total_interest double - total interest after the events.
+ * @param months int - months until the loan is repaid after the events.
+ * @param interest_saved double - baseline_interest minus total_interest; negative if the events cost more.
+ * @param months_saved int - baseline_months minus months.
+ * @param schedule List<AmortizationRow> - the new schedule, one row per month.
+ */
+public record RefinancingResult(double baseline_interest, int baseline_months, double total_interest, int months,
+                                double interest_saved, int months_saved, List<AmortizationRow> schedule) {
+}
@@ -0,0 +1,17 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * A change to a loan applied at the start of a month, before that month's payment.
+ * @param month int - month of the loan the event happens in, starting at 1.
+ * @param type Type - what changes.
+ * @param amount Double - for PREPAYMENT, the lump sum paid.
+ * @param interest_rate Float - for RATE_CHANGE, the new annual interest rate.
+ * @param term Integer - for TERM_CHANGE, the new total term in years, counted from the start of the loan.
+ * @param recalculate Recalculation - for PREPAYMENT, whether to shorten the term (default) or lower the payment.
+ */
+public record ScheduleEvent(int month, Type type, Double amount, Float interest_rate, Integer term, Recalculation recalculate) {
+
+    public enum Type { PREPAYMENT, RATE_CHANGE, TERM_CHANGE }
+
+    public enum Recalculation { REDUCE_TERM, REDUCE_PAYMENT }
+}
@@ -0,0 +1,18 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * One hypothetical loan of a bulk simulation, as read from an NDJSON line or a CSV row.
+ * @param amount long - loan amount.
+ * @param interest_rate float - annual interest rate.
+ * @param term int - loan term in years.
+ * @param desgravament Float - desgravament (life insurance) rate, or null.
+ * @param admin_com_por Float - administrative commission percentage, or null.
+ * @param secure int[] - monthly costs of additional insurance policies, or null.
+ */
+public record SimulationScenario(long amount, float interest_rate, int term, Float desgravament, Float admin_com_por,
+                                 int[] secure) {
+
+    public boolean hasCosts() {
+        return desgravament != null || admin_com_por != null || (secure != null && secure.length > 0);
+    }
+}
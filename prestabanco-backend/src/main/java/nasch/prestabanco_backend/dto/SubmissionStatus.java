@@ -0,0 +1,26 @@
+package nasch.prestabanco_backend.dto;
+
+import java.util.List;
+
+/**
+ * Progress of an asynchronous loan submission as reported to the client.
+ * @param trackingId String - identifier to poll the submission with.
+ * @param loanId Long - the loan committed when the submission was accepted.
+ * @param state State - overall state, derived from the documents.
+ * @param documents List<DocumentStatus> - progress of each submitted document.
+ */
+public record SubmissionStatus(String trackingId, Long loanId, State state, List<DocumentStatus> documents) {
+
+    public enum State { PENDING, PROCESSING, COMPLETED, FAILED }
+
+    /**
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @param size long - size of the document in bytes.
+     * @param sha256 String - hex SHA-256 of the document, once computed.
+     * @param state State - state of this document.
+     * @param attempts int - storage attempts made so far.
+     * @param error String - reason of the last failure, if any.
+     */
+    public record DocumentStatus(int slot, long size, String sha256, State state, int attempts, String error) {
+    }
+}
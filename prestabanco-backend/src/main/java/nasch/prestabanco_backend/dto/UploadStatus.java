@@ -0,0 +1,15 @@
+package nasch.prestabanco_backend.dto;
+
+/**
+ * State of a resumable document upload as reported to the client.
+ * @param uploadId String - identifier of the upload session.
+ * @param loanId Long - loan the document is attached to on completion.
+ * @param slot int - document slot of the loan, from 1 to 4.
+ * @param length long - total size of the document in bytes.
+ * @param offset long - bytes received and verified so far; the next chunk must start here.
+ */
+public record UploadStatus(String uploadId, Long loanId, int slot, long length, long offset) {
+    public boolean isComplete() {
+        return offset == length;
+    }
+}
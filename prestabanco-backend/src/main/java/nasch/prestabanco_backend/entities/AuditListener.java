@@ -0,0 +1,40 @@
+package nasch.prestabanco_backend.entities;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import nasch.prestabanco_backend.services.AuditLog;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Writes loan and user changes to the audit log. The records are appended when the transaction
+ * commits, so rolled back changes are never audited.
+ */
+public class AuditListener {
+
+    @Autowired
+    AuditLog auditLog; // Injects the AuditLog; Hibernate creates the listener through the Spring bean container.
+
+    @PostPersist
+    public void created(Object entity) {
+        record(entity, "CREATE");
+    }
+
+    @PostUpdate
+    public void updated(Object entity) {
+        record(entity, "UPDATE");
+    }
+
+    @PostRemove
+    public void deleted(Object entity) {
+        record(entity, "DELETE");
+    }
+
+    private void record(Object entity, String action) {
+        if (entity instanceof LoanEntity loan) {
+            auditLog.recordAfterCommit("loan", action, loan.getId(), loan.getVersion(), loan.getRut(), loan.getState());
+        } else if (entity instanceof UserEntity user) {
+            auditLog.recordAfterCommit("user", action, user.getId(), user.getVersion(), user.getRut(), null);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package nasch.prestabanco_backend.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * An idempotency key claimed by a request, shared by every instance. Unlike the stored responses it is
+ * never evicted before its TTL, so a key that was answered is never executed again.
+ */
+@Entity
+@Table(name = "idempotency_key")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyEntity {
+
+    // The request path and the client's key, separated by a space.
+    @Id
+    private String id;
+
+    // SHA-256, in hex, of what the claiming request submitted.
+    private String request_hash;
+
+    // Status of the successful response; null while the claiming request is executing.
+    private Integer status;
+
+    private Instant created_at;
+}
@@ -1,13 +1,27 @@
 package nasch.prestabanco_backend.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.LazyGroup;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 
 @Entity
 @Table(name = "loan")
+@EntityListeners(AuditListener.class)
+@Cacheable
+// Scalar state only; the documents are lazy, read from the database one at a time, and served by
+// their own endpoint rather than as part of the loan.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "loans", includeLazy = false)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,18 +44,66 @@ public class LoanEntity {
     private String state;
 
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("document1")
+    @JsonIgnore
     @Column(name = "document1")
     private byte[] document1;
 
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("document2")
+    @JsonIgnore
     @Column(name = "document2")
     private byte[] document2;
 
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("document3")
+    @JsonIgnore
     @Column(name = "document3")
     private byte[] document3;
 
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("document4")
+    @JsonIgnore
     @Column(name = "document4")
     private byte[] document4;
+
+    // Affordability metrics, computed by LoanService whenever the loan is written so they can be
+    // filtered on in SQL. Derived from the fields above, so they take no part in equality.
+    @EqualsAndHashCode.Exclude
+    private Double monthly_payment;
+
+    // Monthly payment over monthly income, in percent; null when the income is unknown.
+    @EqualsAndHashCode.Exclude
+    private Double payment_to_income;
+
+    // Amount over property price, in percent; null when the property price is unknown.
+    @EqualsAndHashCode.Exclude
+    private Double loan_to_value;
+
+    @EqualsAndHashCode.Exclude
+    private Integer age_at_maturity;
+
+    // Incremented on every update; used as the strong ETag of the loan.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    // Set once on insert; the loan table is range-partitioned by it, one partition per month.
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Instant created_at;
+
+    @UpdateTimestamp
+    private Instant updated_at;
+
+    public LoanEntity(Long id, String rut, String type, long property_price, long amount, int term,
+                      float interest_rate, long income, int working_time, int age, String state,
+                      byte[] document1, byte[] document2, byte[] document3, byte[] document4) {
+        this(id, rut, type, property_price, amount, term, interest_rate, income, working_time, age, state,
+                document1, document2, document3, document4, null, null, null, null, 0L, null, null);
+    }
 }
@@ -0,0 +1,83 @@
+package nasch.prestabanco_backend.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A loan change written to the outbox in the same transaction as the change itself.
+ * The sequence is assigned when the relay publishes the event, so it follows publication order
+ * even when transactions commit in a different order than they inserted their events.
+ */
+@Entity
+@Table(name = "loan_outbox", indexes = @Index(name = "loan_outbox_sequence_idx", columnList = "sequence", unique = true))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEventEntity {
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(unique = true, nullable = false)
+    private Long id;
+
+    private Long sequence;
+    private Long loan_id;
+    private String event_type;
+
+    // Scalar loan fields after the change; documents are never part of an event.
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Object> payload;
+
+    private Instant occurred_at;
+    private Instant published_at;
+
+    /**
+     * Builds the event describing a change to a loan.
+     * @param eventType String - CREATED, UPDATED or DELETED.
+     * @param loanId Long - unique identifier of the loan.
+     * @param loan LoanEntity - the loan after the change, or null for a deletion.
+     * @return LoanEventEntity - an unpublished event.
+     */
+    public static LoanEventEntity of(String eventType, Long loanId, LoanEntity loan) {
+        return of(eventType, loanId, loan, null);
+    }
+
+    /**
+     * Builds the event describing a change to a loan, along with the state the loan had before it,
+     * so consumers can tell state transitions without remembering earlier events.
+     * @param eventType String - CREATED, UPDATED or DELETED.
+     * @param loanId Long - unique identifier of the loan.
+     * @param loan LoanEntity - the loan after the change, or null for a deletion.
+     * @param previousState String - state stored before the change, or null if there was none.
+     * @return LoanEventEntity - an unpublished event.
+     */
+    public static LoanEventEntity of(String eventType, Long loanId, LoanEntity loan, String previousState) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (loan != null) {
+            payload.put("rut", loan.getRut());
+            payload.put("type", loan.getType());
+            payload.put("property_price", loan.getProperty_price());
+            payload.put("amount", loan.getAmount());
+            payload.put("term", loan.getTerm());
+            payload.put("interest_rate", loan.getInterest_rate());
+            payload.put("income", loan.getIncome());
+            payload.put("working_time", loan.getWorking_time());
+            payload.put("age", loan.getAge());
+            payload.put("state", loan.getState());
+        }
+        if (previousState != null) payload.put("previous_state", previousState);
+        return new LoanEventEntity(null, null, loanId, eventType, payload, Instant.now(), null);
+    }
+}
@@ -0,0 +1,39 @@
+package nasch.prestabanco_backend.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Read-only R2DBC view of the "loan" table used by the reactive read API.
+ * Only scalar columns are mapped, so streaming listings never pull the document blobs.
+ */
+@Table("loan")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReadEntity {
+
+    @Id
+    private Long id;
+
+    private String rut;
+    private String type;
+    private long property_price;
+    private long amount;
+    private int term;
+    private float interest_rate;
+    private long income;
+    private int working_time;
+    private int age;
+    private String state;
+    private Double monthly_payment;
+    private Double payment_to_income;
+    private Double loan_to_value;
+    private Integer age_at_maturity;
+    private Instant created_at;
+}
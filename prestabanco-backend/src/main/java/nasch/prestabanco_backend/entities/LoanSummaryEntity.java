@@ -0,0 +1,42 @@
+package nasch.prestabanco_backend.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A row of the loan_summary read model: what the listings show of a loan, with its applicant's name
+ * and derived figures precomputed. Written only by LoanSummaryProjector.
+ */
+@Entity
+@Table(name = "loan_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanSummaryEntity {
+
+    // The id of the loan; assigned by the write side, never generated here.
+    @Id
+    private Long id;
+
+    private String rut;
+    private String user_name;
+    private String type;
+    private long amount;
+    private String state;
+    private double monthly_payment;
+
+    // Monthly payment over monthly income, in percent; null when the income is unknown.
+    private Double payment_to_income;
+
+    // Amount over property price, in percent; null when the property price is unknown.
+    private Double financing_ratio;
+
+    // Sequence of the last loan change applied; older or repeated deliveries are ignored.
+    private long last_sequence;
+
+    private Instant updated_at;
+}
@@ -4,11 +4,21 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(AuditListener.class)
+@Cacheable
+// Scalar state only; the document is lazy, read from the database, and served by its own endpoint.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users", includeLazy = false)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,9 +34,28 @@ public class UserEntity {
     private String email;
 
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @JsonIgnore
     @Column(name = "document")
     private byte[] document;
 
+    // Incremented on every update; used as the strong ETag of the user.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    // Set once on insert.
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Instant created_at;
+
+    @UpdateTimestamp
+    private Instant updated_at;
+
+    public UserEntity(Long id, String rut, String name, String email, byte[] document) {
+        this(id, rut, name, email, document, 0L, null, null);
+    }
+
     public UserEntity(String rut, String name, String email, byte[] documentData) {
     }
 }
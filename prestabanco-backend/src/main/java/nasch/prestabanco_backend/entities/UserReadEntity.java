@@ -0,0 +1,25 @@
+package nasch.prestabanco_backend.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Read-only R2DBC view of the "users" table used by the reactive read API.
+ * The document blob is intentionally not mapped.
+ */
+@Table("users")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserReadEntity {
+
+    @Id
+    private Long id;
+
+    private String rut;
+    private String name;
+    private String email;
+}
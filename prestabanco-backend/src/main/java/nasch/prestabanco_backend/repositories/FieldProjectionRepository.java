@@ -0,0 +1,108 @@
+package nasch.prestabanco_backend.repositories;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.stereotype.Repository;
+
+import java.lang.reflect.AnnotatedElement;
+import java.util.*;
+
+/**
+ * Reads only the requested columns of an entity, for the sparse fieldsets of the "fields" query parameter.
+ * The selected attributes become the SELECT list, so unrequested columns such as the documents are never read.
+ */
+@Repository
+public class FieldProjectionRepository {
+
+    @PersistenceContext
+    EntityManager entityManager; // Injects the shared EntityManager to build the projection queries.
+
+    /**
+     * Lists the attributes of an entity that can be requested as fields. Attributes left out of the
+     * entity's JSON, such as the documents served by their own endpoints, cannot be requested either,
+     * so a projection never returns more than the full representation.
+     * @param entityClass Class<?> - the entity.
+     * @return Set<String> - the names of its single-valued attributes that are serialized.
+     */
+    public Set<String> getFieldNames(Class<?> entityClass) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityClass);
+        Set<String> names = new HashSet<>();
+        for (Attribute<?, ?> attribute : entity.getSingularAttributes()) {
+            if (attribute.getJavaMember() instanceof AnnotatedElement member) {
+                JsonIgnore ignore = member.getAnnotation(JsonIgnore.class);
+                if (ignore != null && ignore.value()) continue;
+            }
+            names.add(attribute.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Parses a comma-separated list of field names.
+     * @param fields String - the requested fields, e.g. "id,rut,state".
+     * @param known Set<String> - the fields that exist, as returned by getFieldNames.
+     * @return List<String> - the distinct field names, in the requested order.
+     * @throws IllegalArgumentException - if the list is empty or names an unknown field.
+     */
+    public static List<String> parseFields(String fields, Set<String> known) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) continue;
+            if (!known.contains(name)) throw new IllegalArgumentException("Unknown field: " + name);
+            resolved.add(name);
+        }
+        if (resolved.isEmpty()) throw new IllegalArgumentException("No fields requested");
+        return new ArrayList<>(resolved);
+    }
+
+    /**
+     * Reads the given attributes of every row of an entity, ordered by id.
+     * @param entityClass Class<?> - the entity to read.
+     * @param fields List<String> - attribute names, as returned by parseFields.
+     * @return List<Map<String, Object>> - one map of attribute name to value per row.
+     */
+    public List<Map<String, Object>> findAll(Class<?> entityClass, List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = select(query, entityClass, fields);
+        query.orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList().stream().map(FieldProjectionRepository::toMap).toList();
+    }
+
+    /**
+     * Reads the given attributes of one row of an entity.
+     * @param entityClass Class<?> - the entity to read.
+     * @param id Long - unique identifier of the row.
+     * @param fields List<String> - attribute names, as returned by parseFields.
+     * @return Optional<Map<String, Object>> - attribute name to value, or empty if the row does not exist.
+     */
+    public Optional<Map<String, Object>> findById(Class<?> entityClass, Long id, List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<?> root = select(query, entityClass, fields);
+        query.where(builder.equal(root.get("id"), id));
+        return entityManager.createQuery(query).getResultList().stream().findFirst().map(FieldProjectionRepository::toMap);
+    }
+
+    private static Root<?> select(CriteriaQuery<Tuple> query, Class<?> entityClass, List<String> fields) {
+        Root<?> root = query.from(entityClass);
+        query.multiselect(fields.stream().map(field -> root.get(field).alias(field)).toArray(Selection[]::new));
+        return root;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) row.put(element.getAlias(), tuple.get(element));
+        return row;
+    }
+}
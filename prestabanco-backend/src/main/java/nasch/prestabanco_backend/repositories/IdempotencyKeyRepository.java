@@ -0,0 +1,66 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+    /**
+     * Claims a key for a request unless another request holds it. A claim that expired, or whose request
+     * never completed, is taken over.
+     * @param id String - the request path and the client's key.
+     * @param hash String - the hash of what the request submitted.
+     * @param now Instant - when the claim is made.
+     * @param expiredBefore Instant - claims made before it have expired.
+     * @param abandonedBefore Instant - claims made before it and still not completed were abandoned.
+     * @return int - 1 if the key was claimed, 0 if another request holds it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_key (id, request_hash, status, created_at) VALUES (:id, :hash, NULL, :now) "
+            + "ON CONFLICT (id) DO UPDATE SET request_hash = EXCLUDED.request_hash, status = NULL, created_at = EXCLUDED.created_at "
+            + "WHERE idempotency_key.created_at < :expiredBefore "
+            + "OR (idempotency_key.status IS NULL AND idempotency_key.created_at < :abandonedBefore)", nativeQuery = true)
+    public int claim(@Param("id") String id, @Param("hash") String hash, @Param("now") Instant now,
+                     @Param("expiredBefore") Instant expiredBefore, @Param("abandonedBefore") Instant abandonedBefore);
+
+    /**
+     * Records that the request holding a key succeeded.
+     * @param id String - the request path and the client's key.
+     * @param hash String - the hash of what the request submitted.
+     * @param status int - the status of the response.
+     * @return int - 1 if the claim was still held, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyKeyEntity k SET k.status = :status WHERE k.id = :id AND k.request_hash = :hash")
+    public int complete(@Param("id") String id, @Param("hash") String hash, @Param("status") int status);
+
+    /**
+     * Gives up the claim of a request that failed, so a retry can execute.
+     * @param id String - the request path and the client's key.
+     * @param hash String - the hash of what the request submitted.
+     * @return int - 1 if the claim was released, 0 if it was not held.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.id = :id AND k.request_hash = :hash AND k.status IS NULL")
+    public int release(@Param("id") String id, @Param("hash") String hash);
+
+    /**
+     * Deletes the claims made before the given instant.
+     * @param before Instant - claims made before it are deleted.
+     * @return int - the number of deleted claims.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.created_at < :before")
+    public int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,64 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface LoanEventRepository extends JpaRepository<LoanEventEntity, Long> {
+    /**
+     * Takes the transaction-scoped advisory lock that makes a single relay publish at a time.
+     * @param key long - identifier of the lock.
+     * @return boolean - true if the lock was taken, false if another relay holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    public boolean tryAdvisoryLock(@Param("key") long key);
+
+    /**
+     * Waits for the transaction-scoped advisory lock, for work that must not interleave with the relay.
+     * @param key long - identifier of the lock.
+     * @return long - always 1, once the lock is held.
+     */
+    @Query(value = "SELECT count(*) FROM (SELECT pg_advisory_xact_lock(:key)) AS lock", nativeQuery = true)
+    public long advisoryLock(@Param("key") long key);
+
+    /**
+     * Retrieves the oldest events not published yet.
+     * @param pageable Pageable - the maximum number of events to retrieve.
+     * @return List<LoanEventEntity> - unpublished events in insertion order.
+     */
+    @Query("SELECT e FROM LoanEventEntity e WHERE e.sequence IS NULL ORDER BY e.id")
+    public List<LoanEventEntity> findUnpublished(Pageable pageable);
+
+    /**
+     * @return long - the sequence of the last published event, 0 if none.
+     */
+    @Query("SELECT COALESCE(MAX(e.sequence), 0L) FROM LoanEventEntity e")
+    public long findLastSequence();
+
+    /**
+     * Retrieves published events after a sequence, for consumers tailing the stream.
+     * @param after long - the last sequence the consumer has seen.
+     * @param pageable Pageable - the maximum number of events to retrieve.
+     * @return List<LoanEventEntity> - published events in sequence order.
+     */
+    @Query("SELECT e FROM LoanEventEntity e WHERE e.sequence > :after ORDER BY e.sequence")
+    public List<LoanEventEntity> findPublishedAfter(@Param("after") long after, Pageable pageable);
+
+    /**
+     * Deletes published events older than the given instant. The last published event is always
+     * kept, since the next sequence continues from it.
+     * @param before Instant - events published before it are deleted.
+     * @return int - the number of deleted events.
+     */
+    @Modifying
+    @Query("DELETE FROM LoanEventEntity e WHERE e.published_at < :before AND e.sequence < (SELECT MAX(x.sequence) FROM LoanEventEntity x)")
+    public int deletePublishedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,16 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.LoanReadEntity;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface LoanReadRepository extends ReactiveCrudRepository<LoanReadEntity, Long> {
+    /**
+     * Streams the loans associated with the applicant's RUT.
+     * @param rut String - the RUT of the applicant.
+     * @return Flux<LoanReadEntity> - the loans associated with the given RUT.
+     */
+    public Flux<LoanReadEntity> findByRut(String rut);
+}
@@ -1,16 +1,33 @@
 package nasch.prestabanco_backend.repositories;
 
+import jakarta.persistence.QueryHint;
+import nasch.prestabanco_backend.dto.CollectionStamp;
+import nasch.prestabanco_backend.dto.LoanRevision;
 import nasch.prestabanco_backend.entities.LoanEntity;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
+public interface LoanRepository extends JpaRepository<LoanEntity, Long>, JpaSpecificationExecutor<LoanEntity> {
     /**
      * Retrieves a loan based on the applicant's RUT (unique identifier).
      * @param rut String - the RUT of the applicant.
      * @return LoanEntity - the loan associated with the given RUT.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     public LoanEntity findByRut(String rut);
 
     /**
@@ -19,6 +36,85 @@ public interface LoanRepository extends JpaRepository<LoanEntity, Long> {
      * @return LoanEntity - the loan associated with the given state.
      */
     public LoanEntity findByState(String state);
-}
 
+    /**
+     * Retrieves the version, creation time and state of a loan in one query, without loading its documents.
+     * @param id Long - unique identifier of the loan.
+     * @return Optional<LoanRevision> - the stored columns, or empty if the loan does not exist.
+     */
+    @Query("SELECT new nasch.prestabanco_backend.dto.LoanRevision(l.version, l.created_at, l.state) FROM LoanEntity l WHERE l.id = :id")
+    public Optional<LoanRevision> findRevisionById(@Param("id") Long id);
+
+    /**
+     * Computes the fingerprint of the loan table used for conditional GETs on the listing.
+     * @return CollectionStamp - row count, version sum, last update and highest id.
+     */
+    @Query("SELECT new nasch.prestabanco_backend.dto.CollectionStamp(COUNT(l), COALESCE(SUM(l.version), 0L), MAX(l.updated_at), COALESCE(MAX(l.id), 0L)) FROM LoanEntity l")
+    public CollectionStamp findCollectionStamp();
+
+    /**
+     * Reads the fields the loan summary is built from, without the documents, in id order after a given id.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param pageable Pageable - the maximum number of loans to read.
+     * @return List<Object[]> - id, rut, applicant name, type, property_price, amount, term, interest_rate, income and state of each loan.
+     */
+    @Query("SELECT l.id, l.rut, (SELECT MAX(u.name) FROM UserEntity u WHERE u.rut = l.rut), l.type, l.property_price, l.amount, "
+            + "l.term, l.interest_rate, l.income, l.state FROM LoanEntity l WHERE l.id > :after ORDER BY l.id")
+    public List<Object[]> findSummarySourcesAfter(@Param("after") long after, Pageable pageable);
+
+    /**
+     * Finds the loans ready to be archived: in a terminal state and not updated since a given instant.
+     * @param states Collection<String> - the terminal states.
+     * @param before Instant - only loans last updated before it, or created before it if never updated, are returned.
+     * @param pageable Pageable - the maximum number of loans to return.
+     * @return List<Long> - the ids of the loans, in id order.
+     */
+    @Query("SELECT l.id FROM LoanEntity l WHERE l.state IN :states AND COALESCE(l.updated_at, l.created_at) < :before ORDER BY l.id")
+    public List<Long> findArchivableIds(@Param("states") Collection<String> states, @Param("before") Instant before, Pageable pageable);
 
+    /**
+     * Retrieves loans by id with their documents in a single query.
+     * @param ids Collection<Long> - unique identifiers of the loans.
+     * @return List<LoanEntity> - the loans that exist, in id order.
+     */
+    @EntityGraph(attributePaths = {"document1", "document2", "document3", "document4"})
+    @Query("SELECT l FROM LoanEntity l WHERE l.id IN :ids ORDER BY l.id")
+    public List<LoanEntity> findWithDocumentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves a page of the loans created within a time range, without their documents.
+     * The range is on the partition key, so only the partitions of the months it covers are scanned.
+     * @param from Instant - start of the range, inclusive.
+     * @param to Instant - end of the range, exclusive.
+     * @param after long - only loans with a greater id are returned.
+     * @param pageable Pageable - the maximum number of loans to return.
+     * @return List<LoanEntity> - the loans created in the range, in id order.
+     */
+    @Query("SELECT l FROM LoanEntity l WHERE l.created_at >= :from AND l.created_at < :to AND l.id > :after ORDER BY l.id")
+    public List<LoanEntity> findCreatedBetween(@Param("from") Instant from, @Param("to") Instant to, @Param("after") long after,
+                                               Pageable pageable);
+
+    /**
+     * Counts the loans created within a time range, scanning only the partitions it covers.
+     * @param from Instant - start of the range, inclusive.
+     * @param to Instant - end of the range, exclusive.
+     * @return long - the number of loans created in the range.
+     */
+    @Query("SELECT COUNT(l) FROM LoanEntity l WHERE l.created_at >= :from AND l.created_at < :to")
+    public long countCreatedBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Streams the scalar fields of the loans created within a time range, fetching rows in batches
+     * instead of materializing the whole range. Must be consumed inside a transaction and closed.
+     * @param from Instant - start of the range, inclusive.
+     * @param to Instant - end of the range, exclusive.
+     * @return Stream<Object[]> - id, rut, type, property_price, amount, term, interest_rate, income, working_time,
+     * age, state, monthly_payment, payment_to_income, loan_to_value, age_at_maturity, created_at and updated_at of each loan, oldest first.
+     */
+    @Query("SELECT l.id, l.rut, l.type, l.property_price, l.amount, l.term, l.interest_rate, l.income, l.working_time, l.age, "
+            + "l.state, l.monthly_payment, l.payment_to_income, l.loan_to_value, l.age_at_maturity, l.created_at, l.updated_at "
+            + "FROM LoanEntity l WHERE l.created_at >= :from AND l.created_at < :to ORDER BY l.created_at, l.id")
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    public Stream<Object[]> streamExportRows(@Param("from") Instant from, @Param("to") Instant to);
+}
@@ -0,0 +1,49 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.dto.LoanSummaryTotals;
+import nasch.prestabanco_backend.entities.LoanSummaryEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface LoanSummaryRepository extends JpaRepository<LoanSummaryEntity, Long> {
+    /**
+     * Searches the summaries by any combination of RUT, type and state, in id order after a given id.
+     * @param rut String - optional RUT filter, null for any.
+     * @param type String - optional loan type filter, null for any.
+     * @param state String - optional loan state filter, null for any.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param pageable Pageable - the maximum number of summaries to retrieve.
+     * @return List<LoanSummaryEntity> - the matching summaries, ordered by id.
+     */
+    @Query("SELECT s FROM LoanSummaryEntity s WHERE (:rut IS NULL OR s.rut = :rut) AND (:type IS NULL OR s.type = :type) "
+            + "AND (:state IS NULL OR s.state = :state) AND s.id > :after ORDER BY s.id")
+    public List<LoanSummaryEntity> search(@Param("rut") String rut, @Param("type") String type, @Param("state") String state,
+                                          @Param("after") long after, Pageable pageable);
+
+    /**
+     * Aggregates the summaries by state and type, for the dashboard.
+     * @return List<LoanSummaryTotals> - one row per state and type.
+     */
+    @Query("SELECT new nasch.prestabanco_backend.dto.LoanSummaryTotals(s.state, s.type, COUNT(s), COALESCE(SUM(s.amount), 0L), AVG(s.payment_to_income)) "
+            + "FROM LoanSummaryEntity s GROUP BY s.state, s.type ORDER BY s.state, s.type")
+    public List<LoanSummaryTotals> findTotals();
+
+    /**
+     * Copies a user's new name to the summaries of their loans.
+     * @param rut String - the RUT of the user.
+     * @param name String - the name of the user.
+     * @return int - the number of summaries updated.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE LoanSummaryEntity s SET s.user_name = :name WHERE s.rut = :rut")
+    public int updateUserName(@Param("rut") String rut, @Param("name") String name);
+}
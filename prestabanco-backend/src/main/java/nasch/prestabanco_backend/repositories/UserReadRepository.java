@@ -0,0 +1,16 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.UserReadEntity;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface UserReadRepository extends ReactiveCrudRepository<UserReadEntity, Long> {
+    /**
+     * Retrieves a user based on their RUT without blocking the caller.
+     * @param rut String - the RUT of the user.
+     * @return Mono<UserReadEntity> - the user associated with the given RUT, or empty.
+     */
+    public Mono<UserReadEntity> findFirstByRut(String rut);
+}
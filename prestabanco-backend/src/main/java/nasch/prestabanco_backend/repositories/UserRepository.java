@@ -1,9 +1,18 @@
 package nasch.prestabanco_backend.repositories;
 
+import jakarta.persistence.QueryHint;
+import nasch.prestabanco_backend.dto.CollectionStamp;
 import nasch.prestabanco_backend.entities.UserEntity;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Optional;
+
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     /**
@@ -11,5 +20,39 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
      * @param rut String - the RUT of the user.
      * @return UserEntity - the user associated with the given RUT.
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     public UserEntity findByRut(String rut);
+
+    /**
+     * Retrieves the name of the user with a RUT. RUTs are not unique in the users table, so when several
+     * users share one the greatest name is returned, as the loan summary rebuild does.
+     * @param rut String - the RUT of the user.
+     * @return String - the name, or null if no user has the RUT.
+     */
+    @Query("SELECT MAX(u.name) FROM UserEntity u WHERE u.rut = :rut")
+    public String findNameByRut(@Param("rut") String rut);
+
+    /**
+     * Retrieves only the version of a user, without loading their document.
+     * @param id Long - unique identifier of the user.
+     * @return Optional<Long> - the current version, or empty if the user does not exist.
+     */
+    @Query("SELECT u.version FROM UserEntity u WHERE u.id = :id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    public Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Retrieves only the creation time of a user, without loading their document.
+     * @param id Long - unique identifier of the user.
+     * @return Optional<Instant> - when the user was created, or empty if the user does not exist.
+     */
+    @Query("SELECT u.created_at FROM UserEntity u WHERE u.id = :id")
+    public Optional<Instant> findCreatedAtById(@Param("id") Long id);
+
+    /**
+     * Computes the fingerprint of the users table used for conditional GETs on the listing.
+     * @return CollectionStamp - row count, version sum, last update and highest id.
+     */
+    @Query("SELECT new nasch.prestabanco_backend.dto.CollectionStamp(COUNT(u), COALESCE(SUM(u.version), 0L), MAX(u.updated_at), COALESCE(MAX(u.id), 0L)) FROM UserEntity u")
+    public CollectionStamp findCollectionStamp();
 }
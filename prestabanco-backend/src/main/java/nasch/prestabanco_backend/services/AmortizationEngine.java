@@ -0,0 +1,267 @@
+package nasch.prestabanco_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.dto.AmortizationRow;
+import nasch.prestabanco_backend.dto.RefinancingRequest;
+import nasch.prestabanco_backend.dto.RefinancingResult;
+import nasch.prestabanco_backend.dto.ScheduleEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies prepayments, rate changes and term changes to the fixed-payment schedule of mortgageCreditSimulation.
+ * <p>
+ * Nothing changes before the first event, so the unchanged schedule of a loan is computed once, kept in a
+ * cache bounded by the memory its months take, and its rows up to the first event are copied instead of
+ * recomputed. Moving an event, as
+ * an interactive slider does, only recomputes the months from that event onwards.
+ */
+@Service
+public class AmortizationEngine {
+    static final int MAX_TERM_YEARS = 50;
+    private static final double PAID_OFF = 0.005; // Balances below half a cent count as repaid.
+    private static final int BYTES_PER_MONTH = Float.BYTES + 6 * Double.BYTES; // One slot of each Schedule array.
+
+    @Value("${prestabanco.amortization.cache-max-memory:32MB}")
+    DataSize cacheMaxMemory; // Memory taken by the unchanged schedules kept for reuse.
+
+    Cache<Loan, Schedule> baselines;
+
+    @PostConstruct
+    public void init() {
+        // Weighed by length: a 50-year schedule takes twenty times the memory of a 30-month one.
+        baselines = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxMemory.toBytes())
+                .weigher((Loan loan, Schedule schedule) -> schedule.rate.length * BYTES_PER_MONTH)
+                .build();
+    }
+
+    /**
+     * Simulates a loan with prepayments and refinancings and compares it with the loan left unchanged.
+     * Events in the same month apply in the order given; events after the loan is repaid are ignored.
+     * @param request RefinancingRequest - the loan and the events to apply.
+     * @return RefinancingResult - the interest and months saved, and the new schedule.
+     * @throws ResponseStatusException - 400 if the loan or an event is invalid.
+     */
+    public RefinancingResult simulate(RefinancingRequest request) {
+        try {
+            Loan loan = new Loan(request.amount(), request.interest_rate(), request.term());
+            loan.check();
+            List<ScheduleEvent> events = request.events() != null ? new ArrayList<>(request.events()) : new ArrayList<>();
+            for (ScheduleEvent event : events) check(event);
+            events.sort(Comparator.comparingInt(ScheduleEvent::month)); // Stable, so same-month events keep their order.
+
+            Schedule baseline = baselines.get(loan, AmortizationEngine::baseline);
+            Schedule schedule = events.isEmpty() ? baseline : recompute(loan, baseline, events);
+            return new RefinancingResult(baseline.totalInterest(), baseline.months, schedule.totalInterest(), schedule.months,
+                    baseline.totalInterest() - schedule.totalInterest(), baseline.months - schedule.months, schedule.rows());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    static Schedule baseline(Loan loan) {
+        int months = loan.term() * 12;
+        Schedule schedule = new Schedule(months);
+        double r = monthlyRate(loan.interest_rate());
+        double payment = annuity(loan.amount(), r, months);
+        double balance = loan.amount();
+        for (int month = 1; balance > PAID_OFF; month++) {
+            balance = schedule.pay(month, loan.interest_rate(), r, payment, 0, balance, month == months);
+        }
+        return schedule;
+    }
+
+    /**
+     * Copies the unchanged months before the first event and simulates the rest.
+     */
+    static Schedule recompute(Loan loan, Schedule baseline, List<ScheduleEvent> events) {
+        int first = events.get(0).month();
+        if (first > baseline.months) return baseline;
+
+        int capacity = baseline.months;
+        for (ScheduleEvent event : events) {
+            if (event.type() == ScheduleEvent.Type.TERM_CHANGE) capacity = Math.max(capacity, event.term() * 12);
+        }
+        Schedule schedule = baseline.prefix(first - 1, capacity);
+
+        float rate = baseline.rate[first - 1];
+        double r = monthlyRate(rate);
+        double payment = baseline.payment[0];
+        double balance = first == 1 ? loan.amount() : baseline.balance[first - 2];
+        int lastMonth = baseline.months;
+        int next = 0;
+
+        for (int month = first; balance > PAID_OFF; month++) {
+            double prepaid = 0;
+            for (; next < events.size() && events.get(next).month() == month; next++) {
+                ScheduleEvent event = events.get(next);
+                switch (event.type()) {
+                    case PREPAYMENT -> {
+                        double lump = Math.min(event.amount(), balance);
+                        prepaid += lump;
+                        balance -= lump;
+                        if (balance <= PAID_OFF) break;
+                        if (event.recalculate() == ScheduleEvent.Recalculation.REDUCE_PAYMENT) {
+                            payment = annuity(balance, r, lastMonth - month + 1);
+                        } else {
+                            lastMonth = Math.min(lastMonth, month - 1 + monthsToRepay(balance, r, payment));
+                        }
+                    }
+                    case RATE_CHANGE -> {
+                        rate = event.interest_rate();
+                        r = monthlyRate(rate);
+                        payment = annuity(balance, r, lastMonth - month + 1);
+                    }
+                    case TERM_CHANGE -> {
+                        if (event.term() * 12 < month) {
+                            throw new IllegalArgumentException("Term of " + event.term() + " years ends before month " + month);
+                        }
+                        lastMonth = event.term() * 12;
+                        payment = annuity(balance, r, lastMonth - month + 1);
+                    }
+                }
+            }
+            if (balance <= PAID_OFF) {
+                schedule.prepay(month, rate, prepaid);
+                break;
+            }
+            balance = schedule.pay(month, rate, r, payment, prepaid, balance, month >= lastMonth);
+        }
+        return schedule;
+    }
+
+    // In double precision: mortgageCreditSimulation compounds a float rate, which is within a few pesos per
+    // payment but would leave the last payment of a long schedule visibly off from the others.
+    static double monthlyRate(float interest_rate) {
+        return interest_rate / 1200.0;
+    }
+
+    static double annuity(double balance, double r, int months) {
+        if (r == 0) return balance / months;
+        return balance * ((r * Math.pow((1 + r), months)) / (Math.pow((1 + r), months) - 1));
+    }
+
+    static int monthsToRepay(double balance, double r, double payment) {
+        if (r == 0) return (int) Math.ceil(balance / payment - 1e-9);
+        return (int) Math.ceil(-Math.log(1 - balance * r / payment) / Math.log(1 + r) - 1e-9);
+    }
+
+    private static void check(ScheduleEvent event) {
+        if (event == null || event.type() == null) throw new IllegalArgumentException("Event without a type");
+        if (event.month() < 1) throw new IllegalArgumentException("Event month must be at least 1");
+        switch (event.type()) {
+            case PREPAYMENT -> {
+                if (event.amount() == null || !(event.amount() > 0)) throw new IllegalArgumentException("PREPAYMENT needs a positive amount");
+            }
+            case RATE_CHANGE -> {
+                if (event.interest_rate() == null || event.interest_rate() < 0) throw new IllegalArgumentException("RATE_CHANGE needs a non-negative interest_rate");
+            }
+            case TERM_CHANGE -> {
+                if (event.term() == null || event.term() < 1 || event.term() > MAX_TERM_YEARS) {
+                    throw new IllegalArgumentException("TERM_CHANGE needs a term between 1 and " + MAX_TERM_YEARS + " years");
+                }
+            }
+        }
+    }
+
+    record Loan(long amount, float interest_rate, int term) {
+        void check() {
+            if (amount <= 0) throw new IllegalArgumentException("amount must be positive");
+            if (interest_rate < 0) throw new IllegalArgumentException("interest_rate must not be negative");
+            if (term < 1 || term > MAX_TERM_YEARS) throw new IllegalArgumentException("term must be between 1 and " + MAX_TERM_YEARS + " years");
+        }
+    }
+
+    /**
+     * A schedule held as parallel arrays, one slot per month, so a prefix can be copied in bulk.
+     * Only read once built, which makes cached schedules safe to share.
+     */
+    static final class Schedule {
+        final float[] rate;
+        final double[] payment;
+        final double[] interest;
+        final double[] principal;
+        final double[] prepayment;
+        final double[] balance;
+        final double[] cumulativeInterest;
+        int months;
+
+        Schedule(int capacity) {
+            rate = new float[capacity];
+            payment = new double[capacity];
+            interest = new double[capacity];
+            principal = new double[capacity];
+            prepayment = new double[capacity];
+            balance = new double[capacity];
+            cumulativeInterest = new double[capacity];
+        }
+
+        Schedule prefix(int length, int capacity) {
+            Schedule copy = new Schedule(capacity);
+            System.arraycopy(rate, 0, copy.rate, 0, length);
+            System.arraycopy(payment, 0, copy.payment, 0, length);
+            System.arraycopy(interest, 0, copy.interest, 0, length);
+            System.arraycopy(principal, 0, copy.principal, 0, length);
+            System.arraycopy(prepayment, 0, copy.prepayment, 0, length);
+            System.arraycopy(balance, 0, copy.balance, 0, length);
+            System.arraycopy(cumulativeInterest, 0, copy.cumulativeInterest, 0, length);
+            copy.months = length;
+            return copy;
+        }
+
+        /**
+         * Records a regular payment; the last one repays whatever balance is left.
+         * @return double - the balance after the month.
+         */
+        double pay(int month, float annualRate, double r, double regularPayment, double prepaid, double opening, boolean last) {
+            int i = month - 1;
+            if (i >= rate.length) throw new IllegalArgumentException("The payment does not repay the loan within its term");
+            double monthInterest = opening * r;
+            double monthPrincipal = regularPayment - monthInterest;
+            if (last || monthPrincipal >= opening) monthPrincipal = opening;
+            if (monthPrincipal <= 0) throw new IllegalArgumentException("The payment does not cover the interest in month " + month);
+            rate[i] = annualRate;
+            interest[i] = monthInterest;
+            principal[i] = monthPrincipal;
+            payment[i] = monthInterest + monthPrincipal;
+            prepayment[i] = prepaid;
+            balance[i] = opening - monthPrincipal;
+            cumulativeInterest[i] = (i > 0 ? cumulativeInterest[i - 1] : 0) + monthInterest;
+            months = month;
+            return balance[i];
+        }
+
+        /**
+         * Records a month in which a prepayment repaid the whole balance.
+         */
+        void prepay(int month, float annualRate, double prepaid) {
+            int i = month - 1;
+            rate[i] = annualRate;
+            prepayment[i] = prepaid;
+            cumulativeInterest[i] = i > 0 ? cumulativeInterest[i - 1] : 0;
+            months = month;
+        }
+
+        double totalInterest() {
+            return months == 0 ? 0 : cumulativeInterest[months - 1];
+        }
+
+        List<AmortizationRow> rows() {
+            List<AmortizationRow> rows = new ArrayList<>(months);
+            for (int i = 0; i < months; i++) {
+                rows.add(new AmortizationRow(i + 1, rate[i], payment[i], interest[i], principal[i], prepayment[i], balance[i]));
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nasch.prestabanco_backend.dto.AuditRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit trail of loan and user changes, kept out of the database.
+ * Records are compact binary entries written into memory-mapped segment files, so an append is a
+ * copy into memory under a short lock. A background thread forces dirty pages to disk every sync
+ * interval (group commit), which bounds what a crash can lose to that interval.
+ * <p>
+ * Segment files are named after the sequence of their first record. Each record is
+ * [int body length][int CRC32C of body][body], where the body is sequence, timestamp, entity,
+ * action, entity id, version, RUT and detail; a zero length marks the end of the written data.
+ * Timestamps never decrease in sequence order, so a reader can stop at the first record after a range.
+ * <p>
+ * The directory has no default: it must be durable storage that outlives the instance, such as a
+ * mounted volume, and each instance needs its own, since sequences are numbered per log.
+ */
+@Service
+public class AuditLog {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_TEXT_BYTES = 255;
+    private static final String[] ENTITIES = {"loan", "user"};
+    private static final String[] ACTIONS = {"CREATE", "UPDATE", "DELETE", "DOCUMENT"};
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the append and sync timings are published to.
+
+    @Value("${prestabanco.audit.dir}")
+    Path directory; // Where the segment files are kept; durable storage of this instance.
+
+    @Value("${prestabanco.audit.segment-size:64MB}")
+    DataSize segmentSize; // Size of each memory-mapped segment file.
+
+    @Value("${prestabanco.audit.sync-interval:PT0.01S}")
+    Duration syncInterval; // Group commit interval; the most a crash can lose.
+
+    private final Object appendLock = new Object();
+    private ScheduledExecutorService syncer;
+    private Segment active;
+    private final Deque<Segment> retired = new ArrayDeque<>(); // Full segments not forced to disk yet.
+    private long nextSequence;
+    private long lastTimestamp; // Of the last record; a clock that goes back does not reorder the log.
+    private Timer appendTimer;
+    private Timer syncTimer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            active = Segment.create(directory, 1, (int) segmentSize.toBytes());
+            nextSequence = 1;
+        } else {
+            // Reopen the last segment after its last intact record; a torn tail is overwritten.
+            Path last = segments.get(segments.size() - 1);
+            active = Segment.open(last);
+            long[] end = Segment.findEnd(active.buffer, firstSequence(last));
+            active.buffer.position((int) end[0]);
+            active.synced = (int) end[0];
+            nextSequence = end[1];
+            lastTimestamp = end[2];
+            if (active.buffer.remaining() >= HEADER_BYTES) active.buffer.putLong((int) end[0], 0L);
+        }
+
+        appendTimer = Timer.builder("prestabanco.audit.append").publishPercentileHistogram().register(meterRegistry);
+        syncTimer = Timer.builder("prestabanco.audit.sync").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("prestabanco.audit.unsynced.bytes", this, log -> log.unsyncedBytes()).baseUnit("bytes").register(meterRegistry);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("audit-sync-");
+        threadFactory.setDaemon(true);
+        syncer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        syncer.scheduleWithFixedDelay(this::sync, syncInterval.toNanos(), syncInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+    }
+
+    /**
+     * Records a change once the surrounding transaction commits, or immediately outside a transaction.
+     * @param entity String - "loan" or "user".
+     * @param action String - CREATE, UPDATE, DELETE or DOCUMENT.
+     * @param entityId Long - identifier of the changed entity.
+     * @param version long - version of the entity after the change.
+     * @param rut String - RUT the entity belongs to.
+     * @param detail String - optional detail of the change.
+     */
+    public void recordAfterCommit(String entity, String action, Long entityId, long version, String rut, String detail) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(entity, action, entityId, version, rut, detail);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                append(entity, action, entityId, version, rut, detail);
+            }
+        });
+    }
+
+    /**
+     * Appends a record to the log. Returns once the record is in memory; it reaches disk with the next group commit.
+     * @return long - the sequence of the record.
+     */
+    public long append(String entity, String action, Long entityId, long version, String rut, String detail) {
+        long start = System.nanoTime();
+        byte entityCode = code(ENTITIES, entity);
+        byte actionCode = code(ACTIONS, action);
+        byte[] rutBytes = text(rut);
+        byte[] detailBytes = text(detail);
+        int bodyLength = 8 + 8 + 1 + 1 + 8 + 8 + 2 + rutBytes.length + 2 + detailBytes.length;
+
+        long sequence;
+        synchronized (appendLock) {
+            sequence = nextSequence;
+            // Taken under the lock, so that timestamps follow the sequence order scan relies on.
+            long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+            lastTimestamp = timestamp;
+            if (active.buffer.remaining() < HEADER_BYTES + bodyLength + 4) roll(sequence);
+
+            MappedByteBuffer buffer = active.buffer;
+            int recordStart = buffer.position();
+            buffer.position(recordStart + HEADER_BYTES);
+            buffer.putLong(sequence).putLong(timestamp).put(entityCode).put(actionCode)
+                    .putLong(entityId != null ? entityId : -1L).putLong(version)
+                    .putShort((short) rutBytes.length).put(rutBytes)
+                    .putShort((short) detailBytes.length).put(detailBytes);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(recordStart + HEADER_BYTES, bodyLength));
+            buffer.putInt(recordStart + 4, (int) crc.getValue());
+            // The length goes in last: readers stop at a zero length, so a half-written record is never visible.
+            buffer.putInt(recordStart, bodyLength);
+            nextSequence = sequence + 1;
+        }
+        appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return sequence;
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    public void sync() {
+        long start = System.nanoTime();
+        Segment segment;
+        int from;
+        int to;
+        List<Segment> full;
+        synchronized (appendLock) {
+            full = new ArrayList<>(retired);
+            retired.clear();
+            segment = active;
+            from = segment.synced;
+            to = segment.buffer.position();
+        }
+        try {
+            for (Segment done : full) done.buffer.force();
+            if (to > from) {
+                segment.buffer.force(from, to - from);
+                synchronized (appendLock) {
+                    if (segment == active) segment.synced = Math.max(segment.synced, to);
+                }
+            } else if (full.isEmpty()) {
+                return;
+            }
+            syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            logger.error("Could not sync the audit log", e);
+        }
+    }
+
+    /**
+     * Reads the records matching a filter, in sequence order.
+     * @param after long - only records with a greater sequence are returned.
+     * @param from Instant - optional earliest timestamp.
+     * @param to Instant - optional latest timestamp.
+     * @param filter Predicate<AuditRecord> - further conditions on the record.
+     * @param limit int - the maximum number of records to return.
+     * @return List<AuditRecord> - the matching records.
+     */
+    public List<AuditRecord> query(long after, Instant from, Instant to, Predicate<AuditRecord> filter, int limit) {
+        sync();
+        try {
+            return scan(directory, after, from, to, filter, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds the filter of a query by RUT, entity and entity id.
+     * @param rut String - optional RUT the records belong to.
+     * @param entity String - optional entity, "loan" or "user".
+     * @param entityId Long - optional entity identifier; only meaningful together with the entity.
+     * @return Predicate<AuditRecord> - the filter.
+     */
+    public static Predicate<AuditRecord> matching(String rut, String entity, Long entityId) {
+        return record -> (rut == null || rut.equals(record.rut()))
+                && (entity == null || entity.equals(record.entity()))
+                && (entityId == null || entityId.equals(record.entityId()));
+    }
+
+    private long unsyncedBytes() {
+        synchronized (appendLock) {
+            return active.buffer.position() - active.synced;
+        }
+    }
+
+    private void roll(long sequence) {
+        retired.add(active);
+        try {
+            active = Segment.create(directory, sequence, (int) segmentSize.toBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the records of the segments in a directory; used by the service and by the offline tool.
+     */
+    static List<AuditRecord> scan(Path directory, long after, Instant from, Instant to,
+                                  Predicate<AuditRecord> filter, int limit) throws IOException {
+        List<Path> segments = segments(directory);
+        List<AuditRecord> matches = new ArrayList<>();
+        for (int i = 0; i < segments.size() && matches.size() < limit; i++) {
+            // Skip segments that end before the requested sequence or time.
+            if (i + 1 < segments.size()) {
+                Path next = segments.get(i + 1);
+                if (firstSequence(next) <= after + 1) continue;
+                if (from != null) {
+                    Instant nextStart = firstTimestamp(next);
+                    if (nextStart != null && nextStart.isBefore(from)) continue;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                AuditRecord record;
+                while ((record = Segment.read(buffer)) != null && matches.size() < limit) {
+                    if (to != null && record.timestamp().isAfter(to)) return matches;
+                    if (record.sequence() <= after) continue;
+                    if (from != null && record.timestamp().isBefore(from)) continue;
+                    if (filter.test(record)) matches.add(record);
+                }
+            }
+        }
+        return matches;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return segments;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        segments.sort(Comparator.comparingLong(AuditLog::firstSequence));
+        return segments;
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Instant firstTimestamp(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            AuditRecord first = Segment.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1024)));
+            return first != null ? first.timestamp() : null;
+        }
+    }
+
+    private static byte code(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) if (names[i].equals(name)) return (byte) i;
+        throw new IllegalArgumentException("Unknown audit value: " + name);
+    }
+
+    private static byte[] text(String value) {
+        if (value == null) return new byte[0];
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_TEXT_BYTES ? bytes : Arrays.copyOf(bytes, MAX_TEXT_BYTES);
+    }
+
+    /**
+     * A memory-mapped segment file; the buffer position is the end of the written data.
+     */
+    private static class Segment {
+        final MappedByteBuffer buffer;
+        int synced; // Bytes known to be on disk.
+
+        private Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path directory, long firstSequence, int size) throws IOException {
+            Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+            return map(file, size);
+        }
+
+        static Segment open(Path file) throws IOException {
+            return map(file, (int) Files.size(file));
+        }
+
+        private static Segment map(Path file, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed.
+                return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        /**
+         * Finds the end of the intact records of a segment.
+         * @return long[] - the end position, the sequence that follows the last record and the timestamp of the last record.
+         */
+        static long[] findEnd(MappedByteBuffer buffer, long firstSequence) {
+            java.nio.ByteBuffer view = buffer.duplicate().position(0);
+            long next = firstSequence;
+            int end = 0;
+            long timestamp = 0;
+            AuditRecord record;
+            while ((record = read(view)) != null) {
+                next = record.sequence() + 1;
+                end = view.position();
+                timestamp = record.timestamp().toEpochMilli();
+            }
+            return new long[]{end, next, timestamp};
+        }
+
+        /**
+         * Reads the record at the buffer position and moves past it.
+         * @return AuditRecord - the record, or null at the end of the data or at a torn record.
+         */
+        static AuditRecord read(java.nio.ByteBuffer buffer) {
+            if (buffer.remaining() < HEADER_BYTES) return null;
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) return null;
+            int checksum = buffer.getInt(start + 4);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(start + HEADER_BYTES, length));
+            if ((int) crc.getValue() != checksum) return null;
+
+            buffer.position(start + HEADER_BYTES);
+            long sequence = buffer.getLong();
+            long timestamp = buffer.getLong();
+            byte entity = buffer.get();
+            byte action = buffer.get();
+            long entityId = buffer.getLong();
+            long version = buffer.getLong();
+            String rut = readText(buffer);
+            String detail = readText(buffer);
+            buffer.position(start + HEADER_BYTES + length);
+            return new AuditRecord(sequence, Instant.ofEpochMilli(timestamp), ENTITIES[entity], ACTIONS[action],
+                    entityId >= 0 ? entityId : null, version, rut, detail);
+        }
+
+        private static String readText(java.nio.ByteBuffer buffer) {
+            int length = buffer.getShort();
+            if (length == 0) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
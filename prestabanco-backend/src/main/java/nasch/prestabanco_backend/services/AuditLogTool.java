@@ -0,0 +1,46 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.dto.AuditRecord;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the audit log segments offline, without starting the application. Run it from the packaged jar:
+ * <pre>
+ * java -cp backend.jar -Dloader.main=nasch.prestabanco_backend.services.AuditLogTool \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher /path/to/audit rut=12345678-9 from=2024-01-01T00:00:00Z
+ * </pre>
+ * Accepted filters are rut, entity, id, from, to, after and limit; records are printed one per line, oldest first.
+ */
+public class AuditLogTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditLogTool <directory> [rut=] [entity=] [id=] [from=] [to=] [after=] [limit=]");
+            System.exit(2);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) throw new IllegalArgumentException("Expected name=value, got " + args[i]);
+            options.put(option[0], option[1]);
+        }
+        String id = options.get("id");
+        String from = options.get("from");
+        String to = options.get("to");
+
+        for (AuditRecord record : AuditLog.scan(Path.of(args[0]),
+                Long.parseLong(options.getOrDefault("after", "0")),
+                from != null ? Instant.parse(from) : null,
+                to != null ? Instant.parse(to) : null,
+                AuditLog.matching(options.get("rut"), options.get("entity"), id != null ? Long.valueOf(id) : null),
+                Integer.parseInt(options.getOrDefault("limit", String.valueOf(Integer.MAX_VALUE))))) {
+            System.out.printf("%d\t%s\t%s\t%s\t%s\t%d\t%s\t%s%n", record.sequence(), record.timestamp(), record.entity(),
+                    record.action(), record.entityId(), record.version(), record.rut(),
+                    record.detail() != null ? record.detail() : "");
+        }
+    }
+}
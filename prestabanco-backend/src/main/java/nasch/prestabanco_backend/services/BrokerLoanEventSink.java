@@ -0,0 +1,64 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Stands in for a message broker producer: events go to a partition chosen by loan id, so the
+ * changes of one loan stay in order, and each partition keeps a bounded tail of records.
+ * Swapping in a real producer only means implementing LoanEventSink with the same partitioning.
+ */
+@Service
+public class BrokerLoanEventSink implements LoanEventSink {
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the per-partition record counters are published to.
+
+    @Value("${prestabanco.outbox.broker.partitions:4}")
+    int partitions; // Number of partitions of the topic.
+
+    @Value("${prestabanco.outbox.broker.retention:1000}")
+    int retention; // Records kept per partition.
+
+    private List<Deque<LoanChangeEvent>> topic;
+
+    @Override
+    public String getName() {
+        return "broker";
+    }
+
+    @Override
+    public synchronized void publish(List<LoanChangeEvent> events) {
+        if (topic == null) {
+            topic = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) topic.add(new ArrayDeque<>());
+        }
+        for (LoanChangeEvent event : events) {
+            int partition = partitionOf(event.loanId());
+            Deque<LoanChangeEvent> records = topic.get(partition);
+            records.addLast(event);
+            if (records.size() > retention) records.removeFirst();
+            meterRegistry.counter("prestabanco.outbox.broker.records", "partition", Integer.toString(partition)).increment();
+        }
+    }
+
+    /**
+     * Retrieves the records retained in a partition.
+     * @param partition int - the partition to read.
+     * @return List<LoanChangeEvent> - the retained records, oldest first.
+     */
+    public synchronized List<LoanChangeEvent> records(int partition) {
+        return topic == null ? List.of() : List.copyOf(topic.get(partition));
+    }
+
+    int partitionOf(Long loanId) {
+        return loanId == null ? 0 : Math.floorMod(Long.hashCode(loanId), partitions);
+    }
+}
@@ -0,0 +1,240 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nasch.prestabanco_backend.dto.SimulationScenario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs mortgageCreditSimulation and totalCostCalculation over an uploaded file of scenarios and streams
+ * the results back in input order.
+ * <p>
+ * The request thread reads the input in chunks of lines and hands each chunk to a shared worker pool,
+ * then writes finished chunks in the order they were read. At most a fixed number of chunks are in
+ * flight, so memory stays bounded whatever the size of the file, and reading pauses while the client
+ * is slow to take the output.
+ * <p>
+ * Each output line carries the input line number it answers; blank lines produce no output and a row
+ * that cannot be simulated produces an error instead of stopping the job.
+ */
+@Service
+public class BulkSimulationService {
+    public static final String CSV_HEADER = "line,monthly_payment,total_cost,error";
+
+    public enum Format { CSV, NDJSON }
+
+    @Autowired
+    ObjectMapper objectMapper; // Injects the shared ObjectMapper to read NDJSON scenarios and escape errors.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the bulk simulation counters are published to.
+
+    @Value("${prestabanco.bulk.workers:0}")
+    int workers; // Threads simulating chunks, shared by every job; 0 uses one per processor.
+
+    @Value("${prestabanco.bulk.chunk-size:8192}")
+    int chunkSize; // Lines per chunk handed to a worker.
+
+    @Value("${prestabanco.bulk.max-concurrent-jobs:2}")
+    int maxConcurrentJobs; // Jobs running at once; further uploads are rejected with 429.
+
+    private ExecutorService executor;
+    private Semaphore jobs;
+    private ObjectReader scenarioReader;
+    private Counter simulatedCounter;
+    private Counter failedCounter;
+    private Timer jobTimer;
+
+    @PostConstruct
+    public void init() {
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bulk-simulation-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newFixedThreadPool(workers, threadFactory);
+        jobs = new Semaphore(maxConcurrentJobs);
+        scenarioReader = objectMapper.readerFor(SimulationScenario.class);
+        simulatedCounter = meterRegistry.counter("prestabanco.bulk.rows", "outcome", "simulated");
+        failedCounter = meterRegistry.counter("prestabanco.bulk.rows", "outcome", "failed");
+        jobTimer = meterRegistry.timer("prestabanco.bulk.jobs");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Simulates every scenario of the input and writes one result line per scenario, in input order.
+     * CSV input has the columns amount,interest_rate,term[,desgravament,admin_com_por[,secure...]] and an
+     * optional header line; NDJSON input has one SimulationScenario object per line.
+     * @param input InputStream - the scenarios, UTF-8.
+     * @param output OutputStream - where the results are written, in the same format as the input.
+     * @param format Format - format of the input and the output.
+     * @return long - number of lines read.
+     * @throws IOException - if reading the input or writing the output fails.
+     * @throws ResponseStatusException - 429 if the maximum number of jobs is already running.
+     */
+    public long simulate(InputStream input, OutputStream output, Format format) throws IOException {
+        if (!jobs.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many bulk simulations running, retry later");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+            int maxInFlight = workers * 2;
+            long lineNumber = 0;
+
+            String line = reader.readLine();
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                if (line != null && isCsvHeader(line)) {
+                    lineNumber++;
+                    line = reader.readLine();
+                }
+            }
+            while (line != null) {
+                long firstLine = lineNumber + 1;
+                List<String> chunk = new ArrayList<>(chunkSize);
+                for (; line != null && chunk.size() < chunkSize; line = reader.readLine()) chunk.add(line);
+                lineNumber += chunk.size();
+                pending.add(executor.submit(() -> simulateChunk(chunk, firstLine, format)));
+                while (pending.size() >= maxInFlight) writer.write(next(pending));
+            }
+            while (!pending.isEmpty()) writer.write(next(pending));
+            writer.flush();
+            return lineNumber;
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            sample.stop(jobTimer);
+            jobs.release();
+        }
+    }
+
+    private static String next(ArrayDeque<Future<String>> pending) throws IOException {
+        try {
+            return pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk simulation interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Bulk simulation failed", e.getCause());
+        }
+    }
+
+    String simulateChunk(List<String> lines, long firstLine, Format format) {
+        StringBuilder out = new StringBuilder(lines.size() * 48);
+        long simulated = 0;
+        long failed = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) continue;
+            long lineNumber = firstLine + i;
+            double payment;
+            Double cost;
+            try {
+                SimulationScenario scenario = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                if (scenario.term() <= 0) throw new IllegalArgumentException("term must be positive");
+                if (scenario.amount() < 0) throw new IllegalArgumentException("amount must not be negative");
+                payment = LoanService.monthlyPayment(scenario.amount(), scenario.interest_rate(), scenario.term());
+                cost = scenario.hasCosts() ? LoanService.monthlyCost(scenario.amount(), scenario.interest_rate(), scenario.term(),
+                        orZero(scenario.desgravament()), orZero(scenario.admin_com_por()),
+                        scenario.secure() != null ? scenario.secure() : new int[0]) : null;
+                if (!Double.isFinite(payment)) throw new IllegalArgumentException("interest_rate gives no finite payment");
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                failed++;
+                appendError(out, format, lineNumber, e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage());
+                continue;
+            }
+            simulated++;
+            appendResult(out, format, lineNumber, payment, cost);
+        }
+        simulatedCounter.increment(simulated);
+        failedCounter.increment(failed);
+        return out.toString();
+    }
+
+    /**
+     * @return boolean - true if the line is a header rather than a scenario, i.e. does not start with a number.
+     */
+    static boolean isCsvHeader(String line) {
+        String first = line.split(",", 2)[0].trim();
+        return !first.isEmpty() && !Character.isDigit(first.charAt(0)) && first.charAt(0) != '-' && first.charAt(0) != '.';
+    }
+
+    static SimulationScenario parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 3) throw new IllegalArgumentException("Expected amount,interest_rate,term");
+        try {
+            long amount = Long.parseLong(fields[0].trim());
+            float interestRate = Float.parseFloat(fields[1].trim());
+            int term = Integer.parseInt(fields[2].trim());
+            Float desgravament = fields.length > 3 && !fields[3].isBlank() ? Float.valueOf(fields[3].trim()) : null;
+            Float adminComPor = fields.length > 4 && !fields[4].isBlank() ? Float.valueOf(fields[4].trim()) : null;
+            int[] secure = new int[Math.max(0, fields.length - 5)];
+            int count = 0;
+            for (int i = 5; i < fields.length; i++) {
+                if (!fields[i].isBlank()) secure[count++] = Integer.parseInt(fields[i].trim());
+            }
+            return new SimulationScenario(amount, interestRate, term, desgravament, adminComPor,
+                    count > 0 ? Arrays.copyOf(secure, count) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+        }
+    }
+
+    private SimulationScenario parseJson(String line) throws JsonProcessingException {
+        return scenarioReader.readValue(line);
+    }
+
+    private static float orZero(Float value) {
+        return value != null ? value : 0f;
+    }
+
+    private static void appendResult(StringBuilder out, Format format, long line, double payment, Double cost) {
+        if (format == Format.CSV) {
+            out.append(line).append(',').append(payment).append(',');
+            if (cost != null) out.append(cost.doubleValue());
+            out.append(",\n");
+        } else {
+            out.append("{\"line\":").append(line).append(",\"monthly_payment\":").append(payment)
+                    .append(",\"total_cost\":").append(cost).append(",\"error\":null}\n");
+        }
+    }
+
+    private void appendError(StringBuilder out, Format format, long line, String error) {
+        if (format == Format.CSV) {
+            out.append(line).append(",,,\"").append(error.replace("\"", "\"\"").replace('\n', ' ')).append("\"\n");
+        } else {
+            String quoted;
+            try {
+                quoted = objectMapper.writeValueAsString(error);
+            } catch (JsonProcessingException e) {
+                quoted = "\"Invalid scenario\"";
+            }
+            out.append("{\"line\":").append(line).append(",\"monthly_payment\":null,\"total_cost\":null,\"error\":")
+                    .append(quoted).append("}\n");
+        }
+    }
+}
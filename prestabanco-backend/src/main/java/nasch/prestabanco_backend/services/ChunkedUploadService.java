@@ -0,0 +1,388 @@
+package nasch.prestabanco_backend.services;
+
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.dto.UploadStatus;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives loan documents in chunks so an interrupted upload resumes from the last verified byte
+ * instead of starting over. Chunks are written in place at their offset into a part file on disk,
+ * so memory stays flat whatever the document size, and the session metadata is kept next to it so
+ * uploads also survive a restart. A completed upload is streamed into the loan's document column.
+ */
+@Service
+public class ChunkedUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".properties";
+
+    @Autowired
+    LoanDocumentStore loanDocumentStore; // Injects the store completed documents are written to.
+
+    @Autowired
+    LoanRepository loanRepository; // Injects the LoanRepository to check the target loan exists.
+
+    @Value("${prestabanco.uploads.dir:${java.io.tmpdir}/prestabanco-uploads}")
+    Path directory; // Where part files and session metadata are kept.
+
+    @Value("${prestabanco.uploads.max-document-size:100MB}")
+    DataSize maxDocumentSize; // Largest document a session may declare.
+
+    @Value("${prestabanco.uploads.session-ttl:PT24H}")
+    Duration sessionTtl; // Sessions idle for longer than this are discarded.
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the upload directory and restores the sessions left by a previous run.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> metadata = Files.newDirectoryStream(directory, "*" + META_SUFFIX)) {
+            for (Path file : metadata) {
+                try {
+                    Session session = Session.load(file);
+                    // Bytes past the recorded offset belong to a chunk that was never verified.
+                    try (FileChannel channel = FileChannel.open(partFile(session.id), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                        channel.truncate(session.offset);
+                    }
+                    sessions.put(session.id, session);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Discarding unreadable upload session {}: {}", file.getFileName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens an upload session for a loan document.
+     * @param loanId Long - unique identifier of the loan.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @param length long - total size of the document in bytes.
+     * @param sha256 String - optional hex SHA-256 of the whole document, verified on completion.
+     * @return UploadStatus - the new session, with offset 0.
+     */
+    public UploadStatus create(Long loanId, int slot, long length, String sha256) {
+        if (!LoanDocumentStore.isValidSlot(slot)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid document slot: " + slot);
+        if (length <= 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Document length must be positive");
+        if (length > maxDocumentSize.toBytes()) throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Document exceeds " + maxDocumentSize);
+        if (sha256 != null && !sha256.matches("[0-9a-fA-F]{64}")) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed SHA-256");
+        if (!loanRepository.existsById(loanId)) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found: " + loanId);
+
+        Session session = new Session(UUID.randomUUID().toString(), loanId, slot, length,
+                sha256 != null ? sha256.toLowerCase(Locale.ROOT) : null);
+        try {
+            Files.createFile(partFile(session.id));
+            save(session);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sessions.put(session.id, session);
+        return session.status();
+    }
+
+    /**
+     * Retrieves the state of an upload, so a client can resume from the returned offset.
+     * @param uploadId String - identifier of the upload session.
+     * @return UploadStatus - the current state of the session.
+     */
+    public UploadStatus status(String uploadId) {
+        Session session = find(uploadId);
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    /**
+     * Appends a chunk at the given offset. The offset must equal the bytes received so far.
+     * With a checksum the chunk is all or nothing; without one, whatever arrived before a dropped
+     * connection is kept so the client can resume from there.
+     * @param uploadId String - identifier of the upload session.
+     * @param offset long - position of the chunk within the document.
+     * @param content InputStream - the chunk bytes.
+     * @param checksum String - optional "sha256 &lt;base64 digest&gt;" of the chunk.
+     * @return UploadStatus - the state of the session after the chunk.
+     * @throws ResponseStatusException - 400 if the client's stream fails, 409 on a wrong offset or while another chunk is being received.
+     * @throws UncheckedIOException - if the chunk cannot be written to the local part file.
+     */
+    public UploadStatus appendChunk(String uploadId, long offset, InputStream content, String checksum) {
+        byte[] expectedDigest = parseChecksum(checksum);
+        Session session = find(uploadId);
+        synchronized (session) {
+            if (offset != session.offset) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Expected offset " + session.offset + " but got " + offset);
+            }
+            if (session.receiving) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Another chunk of upload " + uploadId + " is being received");
+            }
+            session.receiving = true;
+        }
+        // The body is read without holding the monitor, so a slow client does not hold up status and
+        // abort calls on its session; the receiving flag keeps any other chunk out meanwhile.
+        try {
+            return receive(session, offset, content, expectedDigest);
+        } finally {
+            synchronized (session) {
+                session.receiving = false;
+            }
+        }
+    }
+
+    private UploadStatus receive(Session session, long offset, InputStream content, byte[] expectedDigest) {
+        MessageDigest digest = sha256();
+        long position = offset;
+        boolean tooLarge = false;
+        IOException interrupted = null;
+        try (FileChannel channel = FileChannel.open(partFile(session.id), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                int read;
+                try {
+                    read = content.read(buffer);
+                } catch (IOException e) {
+                    interrupted = e;
+                    break;
+                }
+                if (read == -1) break;
+                if (position + read > session.length) {
+                    tooLarge = true;
+                    break;
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) position += channel.write(chunk, position);
+                digest.update(buffer, 0, read);
+            }
+
+            synchronized (session) {
+                if (sessions.get(session.id) != session) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload aborted: " + session.id);
+                }
+                if (tooLarge) {
+                    channel.truncate(offset);
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Chunk runs past the declared length " + session.length);
+                }
+                if (interrupted != null) {
+                    if (expectedDigest != null) channel.truncate(offset);
+                    else advance(session, channel, position);
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk interrupted at offset " + session.offset, interrupted);
+                }
+                if (expectedDigest != null && !MessageDigest.isEqual(expectedDigest, digest.digest())) {
+                    channel.truncate(offset);
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Chunk checksum mismatch");
+                }
+                advance(session, channel, position);
+                return session.status();
+            }
+        } catch (IOException e) {
+            // Only the part file gets here; a failing client stream was handled above. Bytes written past
+            // the recorded offset are overwritten by the retried chunk.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Verifies a fully received upload and stores it as the loan document.
+     * @param uploadId String - identifier of the upload session.
+     * @return UploadStatus - the final state of the session.
+     */
+    public UploadStatus complete(String uploadId) {
+        Session session = find(uploadId);
+        synchronized (session) {
+            if (session.offset != session.length) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload incomplete: " + session.offset + " of " + session.length + " bytes");
+            }
+            Path part = partFile(session.id);
+            try {
+                if (session.sha256 != null && !session.sha256.equals(HexFormat.of().formatHex(digest(part)))) {
+                    // No way to tell which chunk is wrong, so the upload starts over.
+                    try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                        channel.truncate(0);
+                    }
+                    session.offset = 0;
+                    save(session);
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Document checksum mismatch, upload restarted");
+                }
+                if (!loanDocumentStore.attach(session.loanId, session.slot, part)) {
+                    discard(session);
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found: " + session.loanId);
+                }
+                discard(session);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return session.status();
+        }
+    }
+
+    /**
+     * Abandons an upload and deletes what was received.
+     * @param uploadId String - identifier of the upload session.
+     */
+    public void abort(String uploadId) {
+        Session session = find(uploadId);
+        synchronized (session) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Discards sessions that have been idle for longer than the configured time to live.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.uploads.cleanup-interval:PT10M}")
+    public void expireSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtl.toMillis();
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.updatedAt < cutoff && !session.receiving) discard(session);
+            }
+        }
+    }
+
+    private Session find(String uploadId) {
+        Session session = sessions.get(uploadId);
+        if (session == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found: " + uploadId);
+        return session;
+    }
+
+    private void advance(Session session, FileChannel channel, long position) throws IOException {
+        channel.force(false);
+        session.offset = position;
+        session.updatedAt = System.currentTimeMillis();
+        save(session);
+    }
+
+    private void discard(Session session) {
+        sessions.remove(session.id);
+        try {
+            Files.deleteIfExists(partFile(session.id));
+            Files.deleteIfExists(metaFile(session.id));
+        } catch (IOException e) {
+            logger.warn("Could not delete files of upload {}: {}", session.id, e.getMessage());
+        }
+    }
+
+    private void save(Session session) throws IOException {
+        Path tmp = directory.resolve(session.id + META_SUFFIX + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            session.toProperties().store(out, null);
+        }
+        Files.move(tmp, metaFile(session.id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path partFile(String id) {
+        return directory.resolve(id + PART_SUFFIX);
+    }
+
+    private Path metaFile(String id) {
+        return directory.resolve(id + META_SUFFIX);
+    }
+
+    private static byte[] parseChecksum(String checksum) {
+        if (checksum == null || checksum.isBlank()) return null;
+        String[] parts = checksum.trim().split("\\s+");
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase("sha256")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Checksum must be \"sha256 <base64 digest>\"");
+        }
+        try {
+            return Base64.getDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed checksum digest");
+        }
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Mutable state of one upload; guarded by its own monitor.
+     */
+    private static class Session {
+        final String id;
+        final Long loanId;
+        final int slot;
+        final long length;
+        final String sha256;
+        long offset;
+        long updatedAt = System.currentTimeMillis();
+        boolean receiving; // A chunk is being read into the part file; not persisted.
+
+        Session(String id, Long loanId, int slot, long length, String sha256) {
+            this.id = id;
+            this.loanId = loanId;
+            this.slot = slot;
+            this.length = length;
+            this.sha256 = sha256;
+        }
+
+        UploadStatus status() {
+            return new UploadStatus(id, loanId, slot, length, offset);
+        }
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("id", id);
+            properties.setProperty("loanId", loanId.toString());
+            properties.setProperty("slot", Integer.toString(slot));
+            properties.setProperty("length", Long.toString(length));
+            if (sha256 != null) properties.setProperty("sha256", sha256);
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("updatedAt", Long.toString(updatedAt));
+            return properties;
+        }
+
+        static Session load(Path file) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            Session session = new Session(properties.getProperty("id"),
+                    Long.valueOf(properties.getProperty("loanId")),
+                    Integer.parseInt(properties.getProperty("slot")),
+                    Long.parseLong(properties.getProperty("length")),
+                    properties.getProperty("sha256"));
+            session.offset = Long.parseLong(properties.getProperty("offset"));
+            session.updatedAt = Long.parseLong(properties.getProperty("updatedAt"));
+            return session;
+        }
+    }
+}
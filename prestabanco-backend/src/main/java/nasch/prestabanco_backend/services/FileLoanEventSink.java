@@ -0,0 +1,48 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends loan changes to a local newline-delimited JSON log, one event per line, synced per batch.
+ */
+@Service
+public class FileLoanEventSink implements LoanEventSink {
+    @Autowired
+    ObjectMapper objectMapper; // Injects the ObjectMapper used to write each event as a JSON line.
+
+    @Value("${prestabanco.outbox.file:${java.io.tmpdir}/prestabanco-loan-events.ndjson}")
+    Path file; // The log the events are appended to.
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void publish(List<LoanChangeEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (LoanChangeEvent event : events) {
+            objectMapper.writeValue(lines, event);
+            lines.write('\n');
+        }
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        }
+    }
+}
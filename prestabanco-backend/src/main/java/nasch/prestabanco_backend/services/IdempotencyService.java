@@ -0,0 +1,340 @@
+package nasch.prestabanco_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.entities.IdempotencyKeyEntity;
+import nasch.prestabanco_backend.repositories.IdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Remembers the response to each idempotency key for a limited time, so a retried request is answered
+ * from the store instead of being executed again. Concurrent requests with the same key are
+ * single-flighted: one executes, the others wait for its response and replay it.
+ * Only successful responses are kept; after a failure the next request with the key executes again.
+ * <p>
+ * Response bodies are kept by this instance within a memory and disk budget, so they can be evicted
+ * early. Which keys were claimed, and by which request, is kept in the database for the whole TTL and
+ * shared by every instance: a key claimed elsewhere, or answered and no longer replayable, is refused
+ * rather than executed twice, and a key reused for a different request is rejected.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Autowired
+    IdempotencyKeyRepository idempotencyKeyRepository; // Injects IdempotencyKeyRepository to claim keys across instances.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the executed, replayed and conflict counters are published to.
+
+    @Value("${prestabanco.idempotency.ttl:PT24H}")
+    Duration ttl; // How long a response is replayed for its key.
+
+    @Value("${prestabanco.idempotency.max-memory:64MB}")
+    DataSize maxMemory; // Heap held by stored response bodies.
+
+    @Value("${prestabanco.idempotency.memory-threshold:64KB}")
+    DataSize memoryThreshold; // Bodies larger than this are kept on disk instead of on the heap.
+
+    @Value("${prestabanco.idempotency.max-disk:1GB}")
+    DataSize maxDisk; // Disk held by response bodies kept on disk.
+
+    @Value("${prestabanco.idempotency.dir:${java.io.tmpdir}/prestabanco-idempotency}")
+    Path directory; // Where large response bodies are kept.
+
+    @Value("${prestabanco.idempotency.lock-timeout:PT30S}")
+    Duration lockTimeout; // How long a duplicate waits for the request executing its key.
+
+    @Value("${prestabanco.idempotency.abandon-after:PT5M}")
+    Duration abandonAfter; // How long a claim may stay incomplete before its instance is presumed dead.
+
+    private Cache<String, CompletableFuture<StoredResponse>> responses;
+    private Counter executedCounter;
+    private Counter replayedCounter;
+    private Counter conflictCounter;
+    private Counter refusedCounter;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxMemory.toBytes())
+                // Heap and disk share one weight budget: a byte on disk weighs maxMemory/maxDisk, so
+                // neither the heap nor the spill directory can outgrow its own limit.
+                .weigher((String key, CompletableFuture<StoredResponse> future) -> weight(future))
+                .removalListener((String key, CompletableFuture<StoredResponse> future, RemovalCause cause) -> {
+                    // Completed entries are re-inserted as themselves only to be re-weighed.
+                    if (cause != RemovalCause.REPLACED) release(future);
+                })
+                .build();
+
+        executedCounter = meterRegistry.counter("prestabanco.idempotency.requests", "outcome", "executed");
+        replayedCounter = meterRegistry.counter("prestabanco.idempotency.requests", "outcome", "replayed");
+        conflictCounter = meterRegistry.counter("prestabanco.idempotency.requests", "outcome", "conflict");
+        refusedCounter = meterRegistry.counter("prestabanco.idempotency.requests", "outcome", "refused");
+    }
+
+    /**
+     * Deletes the claims whose TTL is over.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        int purged = idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (purged > 0) logger.info("Purged {} expired idempotency keys", purged);
+    }
+
+    /**
+     * Executes the action for a key unless a response for it is stored or being produced.
+     * @param key String - the idempotency key, scoped by the caller to the operation.
+     * @param requestHash String - the hash of what the request submits; a key is only replayed for the same hash.
+     * @param action Action - produces the response when this request is the one that executes.
+     * @return StoredResponse - the response to replay, or null if the action was executed by this call.
+     * @throws IdempotencyConflictException - if the request executing the key did not finish in time, or
+     * executes on another instance.
+     * @throws IdempotencyMismatchException - if the key was used for a different request.
+     * @throws ResponseUnavailableException - if the key was answered but its response is no longer kept.
+     * @throws Exception - whatever the action throws.
+     */
+    public StoredResponse execute(String key, String requestHash, Action action) throws Exception {
+        long deadline = System.nanoTime() + lockTimeout.toNanos();
+        while (true) {
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(key, mine);
+            if (existing == null) {
+                boolean claimed = false;
+                try {
+                    claimed = claim(key, requestHash);
+                } finally {
+                    if (!claimed) {
+                        responses.asMap().remove(key, mine);
+                        mine.complete(null);
+                    }
+                }
+                if (!claimed) throw refusal(key, requestHash);
+                executedCounter.increment();
+                lead(key, requestHash, mine, action);
+                return null;
+            }
+
+            StoredResponse stored;
+            try {
+                stored = existing.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                conflictCounter.increment();
+                throw new IdempotencyConflictException(key);
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (stored != null) {
+                if (!stored.requestHash.equals(requestHash)) {
+                    refusedCounter.increment();
+                    throw new IdempotencyMismatchException(key);
+                }
+                replayedCounter.increment();
+                return stored;
+            }
+            // The executing request failed and released the key: try to execute it ourselves.
+        }
+    }
+
+    private boolean claim(String key, String requestHash) {
+        Instant now = Instant.now();
+        return idempotencyKeyRepository.claim(key, requestHash, now, now.minus(ttl), now.minus(abandonAfter)) == 1;
+    }
+
+    private RuntimeException refusal(String key, String requestHash) {
+        IdempotencyKeyEntity claim = idempotencyKeyRepository.findById(key).orElse(null);
+        if (claim != null && !claim.getRequest_hash().equals(requestHash)) {
+            refusedCounter.increment();
+            return new IdempotencyMismatchException(key);
+        }
+        if (claim != null && claim.getStatus() != null) {
+            refusedCounter.increment();
+            return new ResponseUnavailableException(key, claim.getStatus());
+        }
+        // Executing on another instance, or released since the claim was attempted: the retry decides.
+        conflictCounter.increment();
+        return new IdempotencyConflictException(key);
+    }
+
+    private void lead(String key, String requestHash, CompletableFuture<StoredResponse> mine, Action action) throws Exception {
+        StoredResponse response = null;
+        boolean succeeded = false;
+        try {
+            Response produced = action.run();
+            succeeded = produced != null && produced.status() >= 200 && produced.status() < 300;
+            if (succeeded) {
+                completeQuietly(key, requestHash, produced.status());
+                response = store(produced, requestHash);
+            }
+        } finally {
+            if (!succeeded) releaseQuietly(key, requestHash);
+            if (response == null) {
+                // Unregister before waking the waiters, so one of them can take the key over.
+                responses.asMap().remove(key, mine);
+                mine.complete(null);
+            } else {
+                mine.complete(response);
+                // Re-insert so the weigher sees the completed body.
+                responses.asMap().replace(key, mine, mine);
+            }
+        }
+    }
+
+    private void completeQuietly(String key, String requestHash, int status) {
+        try {
+            idempotencyKeyRepository.complete(key, requestHash, status);
+        } catch (RuntimeException e) {
+            // The action's effects are committed: answer it, and let other instances wait until the claim is abandoned.
+            logger.warn("Could not record idempotency key {} as answered: {}", key, e.getMessage());
+        }
+    }
+
+    private void releaseQuietly(String key, String requestHash) {
+        try {
+            idempotencyKeyRepository.release(key, requestHash);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release idempotency key {}, retries wait until it is abandoned: {}", key, e.getMessage());
+        }
+    }
+
+    private StoredResponse store(Response response, String requestHash) {
+        byte[] body = response.body();
+        if (body.length <= memoryThreshold.toBytes()) {
+            return new StoredResponse(response.status(), response.headers(), body, null, body.length, requestHash);
+        }
+        try {
+            Path file = Files.createTempFile(directory, "response-", ".body");
+            Files.write(file, body);
+            return new StoredResponse(response.status(), response.headers(), null, file, body.length, requestHash);
+        } catch (IOException e) {
+            logger.warn("Could not spill idempotent response to disk, not storing it: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private int weight(CompletableFuture<StoredResponse> future) {
+        StoredResponse stored = future.getNow(null);
+        if (stored == null) return 0;
+        if (stored.body != null) return stored.body.length;
+        double diskByteWeight = (double) maxMemory.toBytes() / maxDisk.toBytes();
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(stored.length * diskByteWeight));
+    }
+
+    private static void release(CompletableFuture<StoredResponse> future) {
+        StoredResponse stored = future != null ? future.getNow(null) : null;
+        if (stored == null || stored.file == null) return;
+        try {
+            Files.deleteIfExists(stored.file);
+        } catch (IOException e) {
+            logger.warn("Could not delete stored response {}: {}", stored.file, e.getMessage());
+        }
+    }
+
+    /**
+     * Produces the response for a key; called at most once at a time per key.
+     */
+    @FunctionalInterface
+    public interface Action {
+        Response run() throws Exception;
+    }
+
+    /**
+     * A response as produced by the executing request.
+     * @param status int - HTTP status code.
+     * @param headers Map<String, List<String>> - headers to replay.
+     * @param body byte[] - response body.
+     */
+    public record Response(int status, Map<String, List<String>> headers, byte[] body) {
+    }
+
+    /**
+     * A response kept for replay, with its body on the heap or in a file.
+     */
+    public static final class StoredResponse {
+        private final int status;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final Path file;
+        private final long length;
+        private final String requestHash;
+
+        StoredResponse(int status, Map<String, List<String>> headers, byte[] body, Path file, long length, String requestHash) {
+            this.status = status;
+            this.headers = Map.copyOf(headers);
+            this.body = body;
+            this.file = file;
+            this.length = length;
+            this.requestHash = requestHash;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public long getContentLength() {
+            return length;
+        }
+
+        public InputStream openBody() throws IOException {
+            return body != null ? new ByteArrayInputStream(body) : Files.newInputStream(file);
+        }
+    }
+
+    /**
+     * Raised when a duplicate gives up waiting for the request that is executing its key.
+     */
+    public static class IdempotencyConflictException extends RuntimeException {
+        public IdempotencyConflictException(String key) {
+            super("A request with idempotency key " + key + " is still in progress");
+        }
+    }
+
+    /**
+     * Raised when a key is reused for a request that submits something else.
+     */
+    public static class IdempotencyMismatchException extends RuntimeException {
+        public IdempotencyMismatchException(String key) {
+            super("Idempotency key " + key + " was already used for a different request");
+        }
+    }
+
+    /**
+     * Raised when a key was answered but its response is no longer kept, so it can be neither replayed nor executed again.
+     */
+    public static class ResponseUnavailableException extends RuntimeException {
+        public ResponseUnavailableException(String key, int status) {
+            super("The request with idempotency key " + key + " was already answered with status " + status
+                    + "; its response is no longer available");
+        }
+    }
+}
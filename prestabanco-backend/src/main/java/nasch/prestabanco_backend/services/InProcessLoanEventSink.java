@@ -0,0 +1,27 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Publishes loan changes as application events, for @EventListener methods in this process.
+ */
+@Service
+public class InProcessLoanEventSink implements LoanEventSink {
+    @Autowired
+    ApplicationEventPublisher applicationEventPublisher; // Injects the publisher that dispatches to the listeners.
+
+    @Override
+    public String getName() {
+        return "in-process";
+    }
+
+    @Override
+    public void publish(List<LoanChangeEvent> events) {
+        events.forEach(applicationEventPublisher::publishEvent);
+    }
+}
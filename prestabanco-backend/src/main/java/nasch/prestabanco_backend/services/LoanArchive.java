@@ -0,0 +1,480 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Moves loans in a terminal state out of the loan table into compressed, append-only segment files,
+ * and reads them back when a loan is asked for by id or RUT and is no longer in the table.
+ * <p>
+ * Each archival run writes one segment, named after its sequence and never modified afterwards. A
+ * segment holds blocks of up to BLOCK_LOANS loans, in id order, each a deflated run of JSON lines
+ * with its CRC32C. The footer is a sparse index with one entry per block: first and last id, offset,
+ * length and a Bloom filter of the block's RUTs. The footers of all segments are kept in memory, so a
+ * lookup inflates at most the blocks that can hold the loan.
+ * <p>
+ * The segment is on disk before the loans are deleted, in the same transaction: if the deletion
+ * rolls back the segment is removed, and if the process dies in between the loans are still in the
+ * table, which always wins over the archive. Each archived loan gets a DELETED outbox event in that
+ * transaction too, so the summary projection and the event feed drop it like any other deletion.
+ * <p>
+ * The directory has no default: archived loans exist nowhere else, so it must be durable storage,
+ * shared by every instance (e.g. a network volume), or lookups on one instance would miss the loans
+ * another one archived. The sequence of a new segment is therefore chosen under the archiver's lock
+ * from the segments on disk, a segment is published with a hard link that fails rather than replace
+ * an existing one, and lookups rescan the directory for the segments other instances wrote.
+ */
+@Service
+public class LoanArchive {
+    private static final Logger logger = LoggerFactory.getLogger(LoanArchive.class);
+
+    // Identifies the archiver's advisory lock among other users of pg_advisory locks.
+    private static final long ARCHIVE_LOCK = 0x6c6f616e617263L;
+
+    static final String SEGMENT_PREFIX = "loans-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final int BLOCK_LOANS = 64;
+    private static final int MAGIC = 0x50424c41; // "PBLA"
+    private static final int TRAILER_BYTES = 4 + 8 + 4;
+    private static final int BLOOM_WORDS = 32; // 2048 bits per block, about 0.5% false positives at BLOCK_LOANS RUTs.
+    // Temporary files younger than this may be segments another instance is still writing.
+    private static final Duration ABANDONED_AFTER = Duration.ofHours(1);
+
+    @Autowired
+    LoanRepository loanRepository; // Injects LoanRepository to find and read the loans to archive.
+
+    @Autowired
+    LoanEventRepository loanEventRepository; // Injects LoanEventRepository to take the archiver's lock and record the deletions.
+
+    @Autowired
+    JdbcTemplate jdbcTemplate; // Injects the JdbcTemplate, which joins the surrounding JPA transaction, to unlink the documents.
+
+    @Autowired
+    AuditLog auditLog; // Injects the AuditLog, since the bulk deletion bypasses the entity listeners.
+
+    @Autowired
+    ObjectMapper objectMapper; // Injects the shared ObjectMapper, copied to write and read the archived loans with their documents.
+
+    @Autowired
+    PlatformTransactionManager transactionManager; // Injects the JPA transaction manager each archival runs in.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the archived loans and lookups are counted in.
+
+    @Value("${prestabanco.archive.enabled:true}")
+    boolean enabled; // Whether the scheduled archival runs.
+
+    @Value("${prestabanco.archive.dir}")
+    Path directory; // Where the segment files are kept; durable storage shared by all instances.
+
+    @Value("${prestabanco.archive.states:Rechazada,Cancelada,Cancelada por el Cliente,Desembolsada}")
+    List<String> terminalStates; // Loan states that never change again.
+
+    @Value("${prestabanco.archive.min-age:P180D}")
+    Duration minAge; // How long a loan stays in the table after its last update.
+
+    @Value("${prestabanco.archive.batch-size:500}")
+    int batchSize; // Loans per segment; bounds the documents held in memory by a run.
+
+    private volatile List<ArchiveSegment> segments = List.of(); // In sequence order; replaced, never modified.
+    private ObjectMapper archiveMapper;
+    private TransactionTemplate transactionTemplate;
+    private Timer lookupTimer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        Instant abandoned = Instant.now().minus(ABANDONED_AFTER);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path leftover : leftovers) {
+                // Segments of runs that never finished; recent ones may still be written by another instance.
+                if (Files.getLastModifiedTime(leftover).toInstant().isBefore(abandoned)) Files.deleteIfExists(leftover);
+            }
+        }
+        refresh();
+
+        archiveMapper = objectMapper.copy().addMixIn(LoanEntity.class, ArchivedLoan.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        lookupTimer = Timer.builder("prestabanco.archive.lookup").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("prestabanco.archive.segments", this, archive -> archive.segments.size()).register(meterRegistry);
+    }
+
+    /**
+     * Opens the segments written since the last scan, by this instance or another one sharing the directory.
+     * @return boolean - whether any segment was found that was not open yet.
+     * @throws IOException - if the directory or a new segment cannot be read.
+     */
+    boolean refresh() throws IOException {
+        Set<Long> known = new HashSet<>();
+        for (ArchiveSegment segment : segments) known.add(segment.sequence());
+        List<ArchiveSegment> opened = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!known.contains(ArchiveSegment.sequenceOf(file))) opened.add(ArchiveSegment.open(file));
+            }
+        }
+        return add(opened);
+    }
+
+    private synchronized boolean add(List<ArchiveSegment> opened) {
+        Map<Long, ArchiveSegment> merged = new TreeMap<>();
+        for (ArchiveSegment segment : segments) merged.put(segment.sequence(), segment);
+        boolean added = false;
+        for (ArchiveSegment segment : opened) added |= merged.putIfAbsent(segment.sequence(), segment) == null;
+        if (added) segments = List.copyOf(merged.values());
+        return added;
+    }
+
+    private synchronized void remove(ArchiveSegment removed) {
+        segments = segments.stream().filter(segment -> segment.sequence() != removed.sequence()).toList();
+    }
+
+    /**
+     * Archives every eligible loan, one segment after another.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.archive.interval:PT1H}", initialDelayString = "${prestabanco.archive.interval:PT1H}")
+    public void archive() {
+        if (!enabled) return;
+        try {
+            int archived;
+            do {
+                archived = archiveBatch();
+            } while (archived == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Loan archival failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the next batch of eligible loans into a new segment.
+     * @return int - the number of loans archived, 0 if none or if another instance holds the lock.
+     */
+    public int archiveBatch() {
+        Instant before = Instant.now().minus(minAge);
+        ArchiveSegment[] written = new ArchiveSegment[1];
+        Integer archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                if (!loanEventRepository.tryAdvisoryLock(ARCHIVE_LOCK)) return 0;
+
+                List<Long> ids = loanRepository.findArchivableIds(terminalStates, before, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) return 0;
+                List<LoanEntity> loans = loanRepository.findWithDocumentsByIdIn(ids);
+
+                try {
+                    // Other instances may have archived since the last scan; the lock keeps the directory still meanwhile.
+                    refresh();
+                    List<ArchiveSegment> known = segments;
+                    long sequence = known.isEmpty() ? 1 : known.get(known.size() - 1).sequence() + 1;
+                    Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+                    written[0] = ArchiveSegment.write(file, loans, archiveMapper);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                // Row deletion does not free large objects; the documents now live in the segment.
+                Long[] idArray = ids.toArray(Long[]::new);
+                jdbcTemplate.query("SELECT lo_unlink(d) FROM (SELECT unnest(ARRAY[document1, document2, document3, document4]) AS d "
+                        + "FROM loan WHERE id = ANY(?)) AS documents WHERE d IS NOT NULL", (resultSet, row) -> null, (Object) idArray);
+                loanRepository.deleteAllByIdInBatch(ids);
+                for (LoanEntity loan : loans) {
+                    loanEventRepository.save(LoanEventEntity.of(LoanEventEntity.DELETED, loan.getId(), null, loan.getState()));
+                    auditLog.recordAfterCommit("loan", "DELETE", loan.getId(), loan.getVersion(), loan.getRut(),
+                            "archived to " + written[0].file().getFileName());
+                }
+                return loans.size();
+            });
+        } catch (RuntimeException e) {
+            if (written[0] != null) {
+                remove(written[0]);
+                deleteQuietly(written[0].file());
+            }
+            throw e;
+        }
+        if (written[0] != null) {
+            add(List.of(written[0]));
+            meterRegistry.counter("prestabanco.archive.loans").increment(archived);
+            logger.info("Archived {} loans to {}", archived, written[0].file().getFileName());
+        }
+        return archived != null ? archived : 0;
+    }
+
+    /**
+     * Reads an archived loan, with its documents.
+     * @param id Long - unique identifier of the loan.
+     * @return Optional<LoanEntity> - the loan, or empty if it was never archived.
+     */
+    public Optional<LoanEntity> findById(Long id) {
+        if (id == null) return Optional.empty();
+        return lookupTimer.record(() -> {
+            try {
+                Optional<LoanEntity> loan = find(id);
+                // Another instance may have archived it since the last scan.
+                return loan.isEmpty() && refresh() ? find(id) : loan;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Optional<LoanEntity> find(long id) throws IOException {
+        List<ArchiveSegment> known = segments;
+        // Newest first: a loan archived twice after an interrupted run is read from its last segment.
+        for (int i = known.size() - 1; i >= 0; i--) {
+            try {
+                Optional<LoanEntity> loan = known.get(i).findById(id, reader());
+                if (loan.isPresent()) return loan;
+            } catch (NoSuchFileException e) {
+                remove(known.get(i)); // Removed by the run that wrote it, whose deletion rolled back.
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Reads the archived loans of an applicant, with their documents.
+     * @param rut String - the RUT of the applicant.
+     * @return List<LoanEntity> - the loans, most recently archived first.
+     */
+    public List<LoanEntity> findByRut(String rut) {
+        if (rut == null) return List.of();
+        return lookupTimer.record(() -> {
+            Map<Long, LoanEntity> loans = new LinkedHashMap<>();
+            try {
+                refresh();
+                List<ArchiveSegment> known = segments;
+                for (int i = known.size() - 1; i >= 0; i--) {
+                    try {
+                        for (LoanEntity loan : known.get(i).findByRut(rut, reader())) loans.putIfAbsent(loan.getId(), loan);
+                    } catch (NoSuchFileException e) {
+                        remove(known.get(i));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ArrayList<>(loans.values());
+        });
+    }
+
+    private ObjectReader reader() {
+        return archiveMapper.readerFor(LoanEntity.class);
+    }
+
+    /**
+     * Keeps the documents in the archived JSON: the API leaves them out, but the segment is their only copy.
+     */
+    private abstract static class ArchivedLoan {
+        @JsonProperty @JsonIgnore(false) byte[] document1;
+        @JsonProperty @JsonIgnore(false) byte[] document2;
+        @JsonProperty @JsonIgnore(false) byte[] document3;
+        @JsonProperty @JsonIgnore(false) byte[] document4;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete the abandoned archive segment {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * The sparse index entry of a block: its id range, where it is, and which RUTs it may hold.
+     */
+    record Block(long firstId, long lastId, long offset, int length, int checksum, long[] bloom) {
+
+        boolean mayContain(String rut) {
+            long[] positions = bloomPositions(rut);
+            for (long position : positions) {
+                if ((bloom[(int) (position >>> 6)] & (1L << position)) == 0) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A written segment file and its block index.
+     */
+    record ArchiveSegment(Path file, long sequence, List<Block> blocks) {
+
+        /**
+         * Writes loans, in id order, to a new segment; the file appears under its name only once complete and on disk.
+         * Fails with FileAlreadyExistsException, leaving the existing file alone, if the name is already taken.
+         */
+        static ArchiveSegment write(Path file, List<LoanEntity> loans, ObjectMapper objectMapper) throws IOException {
+            List<LoanEntity> sorted = new ArrayList<>(loans);
+            sorted.sort(Comparator.comparing(LoanEntity::getId));
+            Path temporary = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            List<Block> blocks = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (int from = 0; from < sorted.size(); from += BLOCK_LOANS) {
+                    List<LoanEntity> chunk = sorted.subList(from, Math.min(from + BLOCK_LOANS, sorted.size()));
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    long[] bloom = new long[BLOOM_WORDS];
+                    try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                        for (LoanEntity loan : chunk) {
+                            out.write(objectMapper.writeValueAsBytes(loan));
+                            out.write('\n');
+                            if (loan.getRut() != null) {
+                                for (long position : bloomPositions(loan.getRut())) bloom[(int) (position >>> 6)] |= 1L << position;
+                            }
+                        }
+                    }
+                    byte[] bytes = compressed.toByteArray();
+                    CRC32C crc = new CRC32C();
+                    crc.update(bytes);
+                    blocks.add(new Block(chunk.get(0).getId(), chunk.get(chunk.size() - 1).getId(), channel.position(),
+                            bytes.length, (int) crc.getValue(), bloom));
+                    writeFully(channel, ByteBuffer.wrap(bytes));
+                }
+
+                long footerOffset = channel.position();
+                ByteBuffer footer = ByteBuffer.allocate(blocks.size() * (8 + 8 + 8 + 4 + 4 + BLOOM_WORDS * 8) + TRAILER_BYTES);
+                for (Block block : blocks) {
+                    footer.putLong(block.firstId()).putLong(block.lastId()).putLong(block.offset())
+                            .putInt(block.length()).putInt(block.checksum());
+                    for (long word : block.bloom()) footer.putLong(word);
+                }
+                footer.putInt(blocks.size()).putLong(footerOffset).putInt(MAGIC).flip();
+                writeFully(channel, footer);
+                channel.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            try {
+                // Create-only, unlike a rename, which would silently replace a segment of the same name.
+                Files.createLink(file, temporary);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            return new ArchiveSegment(file, sequenceOf(file), blocks);
+        }
+
+        /**
+         * Reads the block index of an existing segment.
+         */
+        static ArchiveSegment open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < TRAILER_BYTES) throw new IOException("Truncated archive segment " + file);
+                ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+                int count = trailer.getInt();
+                long footerOffset = trailer.getLong();
+                if (trailer.getInt() != MAGIC) throw new IOException("Not an archive segment: " + file);
+
+                ByteBuffer footer = readFully(channel, footerOffset, (int) (size - TRAILER_BYTES - footerOffset));
+                List<Block> blocks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    long firstId = footer.getLong();
+                    long lastId = footer.getLong();
+                    long offset = footer.getLong();
+                    int length = footer.getInt();
+                    int checksum = footer.getInt();
+                    long[] bloom = new long[BLOOM_WORDS];
+                    for (int w = 0; w < BLOOM_WORDS; w++) bloom[w] = footer.getLong();
+                    blocks.add(new Block(firstId, lastId, offset, length, checksum, bloom));
+                }
+                return new ArchiveSegment(file, sequenceOf(file), List.copyOf(blocks));
+            }
+        }
+
+        Optional<LoanEntity> findById(long id, ObjectReader reader) throws IOException {
+            if (blocks.isEmpty() || id < blocks.get(0).firstId() || id > blocks.get(blocks.size() - 1).lastId()) return Optional.empty();
+            int low = 0;
+            int high = blocks.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                Block block = blocks.get(middle);
+                if (id < block.firstId()) high = middle - 1;
+                else if (id > block.lastId()) low = middle + 1;
+                else return read(block, reader).stream().filter(loan -> loan.getId() == id).findFirst();
+            }
+            return Optional.empty();
+        }
+
+        List<LoanEntity> findByRut(String rut, ObjectReader reader) throws IOException {
+            List<LoanEntity> loans = new ArrayList<>();
+            for (Block block : blocks) {
+                if (!block.mayContain(rut)) continue;
+                for (LoanEntity loan : read(block, reader)) if (rut.equals(loan.getRut())) loans.add(loan);
+            }
+            return loans;
+        }
+
+        private List<LoanEntity> read(Block block, ObjectReader reader) throws IOException {
+            ByteBuffer bytes;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                bytes = readFully(channel, block.offset(), block.length());
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.duplicate());
+            if ((int) crc.getValue() != block.checksum()) throw new IOException("Corrupt block at " + block.offset() + " of " + file);
+
+            List<LoanEntity> loans = new ArrayList<>(BLOCK_LOANS);
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                    new InflaterInputStream(new ByteArrayInputStream(bytes.array())), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) loans.add(reader.readValue(line));
+            }
+            return loans;
+        }
+
+        static long sequenceOf(Path file) {
+            String name = file.getFileName().toString();
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+    }
+
+    static long[] bloomPositions(String rut) {
+        long hash = rut.hashCode() * 0x9E3779B97F4A7C15L;
+        long step = (hash >>> 32) | 1;
+        long bits = BLOOM_WORDS * 64L;
+        return new long[]{Math.floorMod(hash, bits), Math.floorMod(hash + step, bits), Math.floorMod(hash + 2 * step, bits)};
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Truncated archive segment");
+        }
+        return buffer.flip();
+    }
+}
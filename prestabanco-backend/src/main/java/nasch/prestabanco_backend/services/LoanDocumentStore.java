@@ -0,0 +1,95 @@
+package nasch.prestabanco_backend.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes a loan document straight from a file into its large-object column, streaming the content
+ * instead of materialising it as a byte[] the way saving a LoanEntity does.
+ */
+@Service
+public class LoanDocumentStore {
+    private static final List<String> DOCUMENT_COLUMNS = List.of("document1", "document2", "document3", "document4");
+
+    @Autowired
+    JdbcTemplate jdbcTemplate; // Injects the JdbcTemplate, which joins the surrounding JPA transaction.
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory; // Injects the EntityManagerFactory to evict the cached loan after a JDBC update.
+
+    @Autowired
+    AuditLog auditLog; // Injects the AuditLog, since this update bypasses the entity listeners.
+
+    /**
+     * Checks that a document slot number is valid.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @return boolean - true if the slot exists.
+     */
+    public static boolean isValidSlot(int slot) {
+        return slot >= 1 && slot <= DOCUMENT_COLUMNS.size();
+    }
+
+    /**
+     * Replaces a loan document with the content of a file and bumps the loan version.
+     * @param loanId Long - unique identifier of the loan.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @param file Path - file holding the document content.
+     * @return boolean - true if the loan exists and the document was stored.
+     */
+    @Transactional
+    public boolean attach(Long loanId, int slot, Path file) {
+        if (!isValidSlot(slot)) throw new IllegalArgumentException("Invalid document slot: " + slot);
+        String column = DOCUMENT_COLUMNS.get(slot - 1);
+
+        List<Object[]> previous = jdbcTemplate.query("SELECT " + column + ", rut, version FROM loan WHERE id = ? FOR UPDATE",
+                (resultSet, row) -> new Object[]{resultSet.getObject(1), resultSet.getString(2), resultSet.getLong(3)}, loanId);
+        if (previous.isEmpty()) return false;
+
+        try (InputStream content = Files.newInputStream(file)) {
+            long size = Files.size(file);
+            jdbcTemplate.update("UPDATE loan SET " + column + " = ?, version = version + 1, updated_at = now() WHERE id = ?",
+                    statement -> {
+                        statement.setBlob(1, content, size);
+                        statement.setLong(2, loanId);
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // The replaced large object is no longer referenced by any row.
+        Object[] row = previous.get(0);
+        if (row[0] != null) jdbcTemplate.queryForObject("SELECT lo_unlink(?)", Integer.class, row[0]);
+        evictAfterCommit(loanId);
+        auditLog.recordAfterCommit("loan", "DOCUMENT", loanId, (Long) row[2] + 1, (String) row[1], column);
+        return true;
+    }
+
+    /**
+     * Drops the cached state and version lookups of a loan once the update is visible; JDBC writes
+     * bypass the second-level cache, which would otherwise keep serving the old version.
+     * @param loanId Long - unique identifier of the loan.
+     */
+    private void evictAfterCommit(Long loanId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.getCache().evict(LoanEntity.class, loanId);
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+            }
+        });
+    }
+}
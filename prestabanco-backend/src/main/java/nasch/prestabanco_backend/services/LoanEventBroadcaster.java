@@ -0,0 +1,288 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.dto.LoanNotification;
+import nasch.prestabanco_backend.dto.LoanStreamFilter;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans loan changes out to Server-Sent Events subscribers. One poller per instance tails the
+ * published outbox stream, and only while someone is subscribed, so the database cost does not grow
+ * with the number of open dashboards. Every subscriber has a bounded buffer drained by a small shared
+ * sender pool; a subscriber whose buffer overflows is disconnected and can resume with Last-Event-ID.
+ * A resume that missed more than one buffer's worth of changes gets a RESET event instead of a partial replay.
+ */
+@Service
+public class LoanEventBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(LoanEventBroadcaster.class);
+
+    // Sent instead of a replay that would not fit in the buffer; the client must reload its state.
+    static final String RESET = "RESET";
+
+    // Queued to keep idle connections open; never filtered out.
+    private static final LoanNotification HEARTBEAT = new LoanNotification(-1, null, null, null, null, null, null, null);
+
+    @Autowired
+    LoanService loanService; // Injects the LoanService to tail the published loan changes.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the subscriber gauge and delivery counters are published to.
+
+    @Value("${prestabanco.sse.buffer-size:256}")
+    int bufferSize; // Notifications queued per subscriber before it is considered too slow.
+
+    @Value("${prestabanco.sse.max-subscribers:5000}")
+    int maxSubscribers; // Open streams allowed on this instance.
+
+    @Value("${prestabanco.sse.sender-threads:4}")
+    int senderThreads; // Threads writing to subscribers.
+
+    @Value("${prestabanco.sse.timeout:PT30M}")
+    Duration timeout; // Streams are closed after this long; clients reconnect with Last-Event-ID.
+
+    @Value("${prestabanco.sse.poll-batch:500}")
+    int pollBatch; // Events read from the stream per query.
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Object streamLock = new Object();
+    private long cursor = -1; // Last sequence broadcast; -1 while nobody is subscribed.
+
+    private ExecutorService senders;
+    private Counter deliveredCounter;
+    private Counter evictedCounter;
+    private Counter resetCounter;
+
+    @PostConstruct
+    public void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("loan-stream-");
+        threadFactory.setDaemon(true);
+        senders = Executors.newFixedThreadPool(senderThreads, threadFactory);
+        deliveredCounter = meterRegistry.counter("prestabanco.sse.notifications", "outcome", "delivered");
+        evictedCounter = meterRegistry.counter("prestabanco.sse.evictions");
+        resetCounter = meterRegistry.counter("prestabanco.sse.resets");
+        Gauge.builder("prestabanco.sse.subscribers", subscribers, List::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> close(subscriber, false));
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of loan notifications.
+     * @param filter LoanStreamFilter - the notifications the subscriber wants.
+     * @param lastEventId Long - sequence of the last notification received before reconnecting, or null.
+     * @return SseEmitter - the stream.
+     */
+    public SseEmitter subscribe(LoanStreamFilter filter, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open loan streams");
+        }
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> close(subscriber, false));
+        emitter.onError(error -> close(subscriber, false));
+
+        if (lastEventId == null) {
+            synchronized (streamLock) {
+                if (cursor < 0) cursor = loanService.getLastEventSequence();
+                subscribers.add(subscriber);
+            }
+            return emitter;
+        }
+
+        // Replay what the client missed up to where live delivery starts, reading outside the lock so
+        // polling and other subscribers are not held up by the query. If the stream moved on while a page
+        // was read, read on from there. A gap larger than one buffer is not replayed: the client gets a
+        // RESET carrying the live position and must reload its state rather than miss changes silently.
+        List<LoanNotification> missed = new ArrayList<>();
+        long replayed = lastEventId;
+        long known = -1; // Live position already known when the current page was read.
+        while (true) {
+            int remaining = bufferSize - missed.size();
+            List<LoanChangeEvent> page = remaining > 0 ? loanService.getEventsAfter(replayed, remaining) : List.of();
+            synchronized (streamLock) {
+                if (cursor < 0) cursor = loanService.getLastEventSequence();
+                for (LoanChangeEvent event : page) {
+                    if (event.sequence() > cursor) break;
+                    missed.add(toNotification(event));
+                    replayed = event.sequence();
+                }
+                // A short page read after the live position was known holds everything up to it.
+                boolean caughtUp = replayed >= cursor || (page.size() < remaining && known >= cursor);
+                if (caughtUp || missed.size() >= bufferSize) {
+                    if (caughtUp) {
+                        for (LoanNotification notification : missed) subscriber.offer(notification);
+                    } else {
+                        resetCounter.increment();
+                        subscriber.offer(new LoanNotification(cursor, null, RESET, null, null, null, null, null));
+                    }
+                    if (!subscriber.closed) subscribers.add(subscriber);
+                    return emitter;
+                }
+                known = cursor;
+            }
+        }
+    }
+
+    /**
+     * Reads the changes published since the last poll and broadcasts them.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.sse.poll-interval:PT1S}")
+    public void poll() {
+        synchronized (streamLock) {
+            if (subscribers.isEmpty()) {
+                // Nobody listens: stop tailing.
+                cursor = -1;
+                return;
+            }
+            try {
+                List<LoanChangeEvent> events;
+                do {
+                    events = loanService.getEventsAfter(cursor, pollBatch);
+                    for (LoanChangeEvent event : events) broadcast(event);
+                } while (events.size() == pollBatch);
+            } catch (RuntimeException e) {
+                logger.warn("Could not read loan changes for streaming: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keeps idle streams open through proxies and detects disconnected clients.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.sse.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) subscriber.offer(HEARTBEAT);
+    }
+
+    void broadcast(LoanChangeEvent event) {
+        synchronized (streamLock) {
+            LoanNotification notification = toNotification(event);
+            for (Subscriber subscriber : subscribers) subscriber.offer(notification);
+            cursor = Math.max(cursor, event.sequence());
+        }
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // The event carries the state the loan left, so the first transition seen by an instance is told
+    // apart as well as any later one, and a deletion reaches the subscribers of the state it ended.
+    private static LoanNotification toNotification(LoanChangeEvent event) {
+        Map<String, Object> payload = event.payload() != null ? event.payload() : Map.of();
+        String state = (String) payload.get("state");
+        String previous = (String) payload.get("previous_state");
+        String kind = event.type();
+        if (LoanEventEntity.UPDATED.equals(kind) && previous != null && !previous.equals(state)) kind = "STATE_CHANGED";
+        return new LoanNotification(event.sequence(), event.loanId(), kind, previous, state,
+                (String) payload.get("type"), (String) payload.get("rut"), event.occurredAt());
+    }
+
+    private void close(Subscriber subscriber, boolean evicted) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber) && evicted) {
+            evictedCounter.increment();
+            logger.debug("Evicted a slow loan stream subscriber");
+        }
+        try {
+            subscriber.emitter.complete();
+        } catch (RuntimeException ignored) {
+            // Already completed by the container.
+        }
+    }
+
+    /**
+     * One open stream; its buffer is drained by at most one sender at a time.
+     */
+    private class Subscriber {
+        final SseEmitter emitter;
+        final LoanStreamFilter filter;
+        final BlockingQueue<LoanNotification> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, LoanStreamFilter filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(LoanNotification notification) {
+            if (closed) return;
+            if (notification == HEARTBEAT) {
+                if (!buffer.offer(notification)) return; // A full buffer is already pending delivery.
+            } else {
+                if (!RESET.equals(notification.event()) && !filter.matches(notification)) return;
+                if (!buffer.offer(notification)) {
+                    close(this, true);
+                    return;
+                }
+            }
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                LoanNotification notification;
+                while (!closed && (notification = buffer.poll()) != null) {
+                    if (notification == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(notification.sequence()))
+                                .name(notification.event())
+                                .data(notification, MediaType.APPLICATION_JSON));
+                        deliveredCounter.increment();
+                    }
+                }
+            } catch (Exception e) {
+                // The client went away.
+                close(this, false);
+            } finally {
+                draining.set(false);
+                if (!closed && !buffer.isEmpty()) scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+
+import java.util.List;
+
+/**
+ * A destination the outbox relay publishes loan changes to. Enabled by name through
+ * prestabanco.outbox.sinks; a sink that throws makes the relay retry the whole batch later.
+ */
+public interface LoanEventSink {
+    /**
+     * @return String - the name the sink is enabled by.
+     */
+    String getName();
+
+    /**
+     * Publishes a batch of events, in sequence order.
+     * @param events List<LoanChangeEvent> - the events to publish.
+     * @throws Exception - if the batch could not be published.
+     */
+    void publish(List<LoanChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,123 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Publishes the outbox to the enabled sinks in batches. Each batch is numbered, published and marked
+ * in one transaction under an advisory lock, so only one relay runs at a time across instances and
+ * sequences are gapless and in publication order. A failing sink rolls the batch back to be retried,
+ * which makes delivery at least once.
+ */
+@Service
+public class LoanOutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(LoanOutboxRelay.class);
+
+    // Identifies the relay's advisory lock among other users of pg_advisory locks.
+    static final long RELAY_LOCK = 0x6c6f616e6f7574L;
+
+    @Autowired
+    LoanEventRepository loanEventRepository; // Injects LoanEventRepository to read and mark outbox events.
+
+    @Autowired
+    List<LoanEventSink> sinks; // Injects every available sink; only the configured ones are published to.
+
+    @Autowired
+    PlatformTransactionManager transactionManager; // Injects the JPA transaction manager each batch runs in.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the published events counter is published to.
+
+    @Value("${prestabanco.outbox.sinks:in-process}")
+    List<String> enabledSinks; // Names of the sinks to publish to.
+
+    @Value("${prestabanco.outbox.batch-size:100}")
+    int batchSize; // Events published per transaction.
+
+    @Value("${prestabanco.outbox.retention:P7D}")
+    Duration retention; // How long published events remain available to tail.
+
+    private TransactionTemplate transactionTemplate;
+    private Counter publishedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        publishedCounter = meterRegistry.counter("prestabanco.outbox.published");
+    }
+
+    /**
+     * Publishes every pending event, one batch after another.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.outbox.relay-interval:PT1S}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = publishBatch();
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Outbox relay failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Numbers, publishes and marks the next batch of events.
+     * @return int - the number of events published, 0 if none or if another relay holds the lock.
+     */
+    public int publishBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            if (!loanEventRepository.tryAdvisoryLock(RELAY_LOCK)) return 0;
+
+            List<LoanEventEntity> batch = loanEventRepository.findUnpublished(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) return 0;
+
+            long sequence = loanEventRepository.findLastSequence();
+            Instant now = Instant.now();
+            for (LoanEventEntity event : batch) {
+                event.setSequence(++sequence);
+                event.setPublished_at(now);
+            }
+
+            List<LoanChangeEvent> events = batch.stream().map(LoanChangeEvent::from).toList();
+            for (LoanEventSink sink : sinks) {
+                if (!enabledSinks.contains(sink.getName())) continue;
+                try {
+                    sink.publish(events);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Sink " + sink.getName() + " rejected the batch: " + e.getMessage(), e);
+                }
+            }
+            return batch.size();
+        });
+        publishedCounter.increment(published);
+        return published;
+    }
+
+    /**
+     * Deletes published events once they are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.outbox.cleanup-interval:PT1H}")
+    public void purge() {
+        Instant before = Instant.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> loanEventRepository.deletePublishedBefore(before));
+        if (deleted != null && deleted > 0) logger.info("Purged {} published loan events", deleted);
+    }
+}
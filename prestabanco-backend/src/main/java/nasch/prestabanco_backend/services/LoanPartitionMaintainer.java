@@ -0,0 +1,70 @@
+package nasch.prestabanco_backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of the loan table created ahead of time.
+ * <p>
+ * The loan table is range-partitioned by created_at, one partition per UTC month, with a default
+ * partition for anything else. Loans that land in the default partition are still stored, but
+ * time-range queries can no longer skip it, and the month's partition cannot be created while the
+ * default holds rows of that month. So the current month and the next few are created at startup
+ * and checked again every day, well before the first loan of a month arrives.
+ */
+@Service
+public class LoanPartitionMaintainer {
+    private static final Logger logger = LoggerFactory.getLogger(LoanPartitionMaintainer.class);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate; // Injects the JdbcTemplate to call the create_loan_partition function.
+
+    @Value("${prestabanco.partitions.months-ahead:3}")
+    int monthsAhead; // Months after the current one whose partitions are kept created.
+
+    /**
+     * Creates the partitions of the current month and the months ahead that do not exist yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${prestabanco.partitions.cron:0 0 3 * * *}", zone = "UTC")
+    public void maintain() {
+        createPartitions(LocalDate.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Creates the partitions of the month of a day and of the months ahead that do not exist yet.
+     * A month that cannot be created is logged and retried on the next run.
+     * @param today LocalDate - a day of the first month, in UTC.
+     * @return List<String> - the names of the partitions created.
+     */
+    List<String> createPartitions(LocalDate today) {
+        List<String> created = new ArrayList<>();
+        LocalDate month = today.withDayOfMonth(1);
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            try {
+                String partition = jdbcTemplate.queryForObject("SELECT create_loan_partition(?)", String.class,
+                        month.atStartOfDay().atOffset(ZoneOffset.UTC));
+                if (partition != null) {
+                    created.add(partition);
+                    logger.info("Created loan partition {}", partition);
+                }
+            } catch (DataAccessException e) {
+                logger.warn("Could not create the loan partition of {}: {}", month, e.getMessage());
+            }
+        }
+        return created;
+    }
+}
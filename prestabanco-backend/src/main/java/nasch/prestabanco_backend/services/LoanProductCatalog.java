@@ -0,0 +1,133 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import nasch.prestabanco_backend.dto.LoanProduct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * The loan products and their lending rules, held in memory so loans and simulations are validated
+ * without reading the database. The catalog is an immutable map replaced as a whole on reload: a
+ * validation sees either the old or the new catalog, never a mix, and a catalog that fails to load or
+ * validate leaves the current one in place.
+ */
+@Service
+public class LoanProductCatalog {
+    private static final Logger log = LoggerFactory.getLogger(LoanProductCatalog.class);
+
+    @Autowired
+    ResourceLoader resourceLoader; // Injects the ResourceLoader to resolve the catalog location.
+
+    @Autowired
+    ObjectMapper objectMapper; // Injects the shared ObjectMapper to parse the catalog.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the catalog reloads are counted in.
+
+    @Value("${prestabanco.products.location:classpath:loan-products.json}")
+    String location; // Where the catalog is read from, e.g. classpath:loan-products.json or file:/etc/prestabanco/products.json.
+
+    private volatile Map<String, LoanProduct> products = Map.of();
+
+    @PostConstruct
+    public void init() throws IOException {
+        Gauge.builder("prestabanco.products.count", this, catalog -> catalog.products.size()).register(meterRegistry);
+        reload();
+    }
+
+    /**
+     * Reads the catalog again from its location and swaps it in if it is valid.
+     * @return Collection<LoanProduct> - the products now in effect.
+     * @throws IOException - if the catalog cannot be read or parsed; the current catalog is kept.
+     * @throws IllegalArgumentException - if a product's rules are invalid; the current catalog is kept.
+     */
+    public synchronized Collection<LoanProduct> reload() throws IOException {
+        try {
+            Resource resource = resourceLoader.getResource(location);
+            LoanProduct[] loaded;
+            try (InputStream in = resource.getInputStream()) {
+                loaded = objectMapper.readValue(in, LoanProduct[].class);
+            }
+            Map<String, LoanProduct> next = new LinkedHashMap<>();
+            for (LoanProduct product : loaded) {
+                check(product);
+                if (next.put(product.name(), product) != null) {
+                    throw new IllegalArgumentException("Duplicate loan product: " + product.name());
+                }
+            }
+            products = Collections.unmodifiableMap(next);
+            meterRegistry.counter("prestabanco.products.reloads", "outcome", "loaded").increment();
+            log.info("Loaded {} loan products from {}", next.size(), location);
+            return products.values();
+        } catch (IOException | RuntimeException e) {
+            meterRegistry.counter("prestabanco.products.reloads", "outcome", "rejected").increment();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Collection<LoanProduct> - the products in effect, in catalog order.
+     */
+    public Collection<LoanProduct> getProducts() {
+        return products.values();
+    }
+
+    /**
+     * @param type String - the loan type.
+     * @return Optional<LoanProduct> - the product of that type, or empty if the catalog has none.
+     */
+    public Optional<LoanProduct> getProduct(String type) {
+        return type == null ? Optional.empty() : Optional.ofNullable(products.get(type));
+    }
+
+    /**
+     * Checks a loan or simulation against the rules of its product.
+     * @param type String - the loan type.
+     * @param property_price Long - price of the property, or null to skip the financing check.
+     * @param amount long - loan amount.
+     * @param term int - loan term in years.
+     * @param interest_rate float - annual interest rate.
+     * @throws IllegalArgumentException - listing every rule broken, if any.
+     */
+    public void validate(String type, Long property_price, long amount, int term, float interest_rate) {
+        LoanProduct product = products.get(type);
+        if (product == null) throw new IllegalArgumentException("Unknown loan type: " + type);
+
+        List<String> violations = new ArrayList<>();
+        if (term <= 0 || term > product.max_term()) {
+            violations.add("term must be between 1 and " + product.max_term() + " years");
+        }
+        if (interest_rate < product.min_rate() || interest_rate > product.max_rate()) {
+            violations.add("interest_rate must be between " + product.min_rate() + "% and " + product.max_rate() + "%");
+        }
+        if (property_price != null && amount * 100 > property_price * product.max_financing()) {
+            violations.add("amount must be at most " + product.max_financing() + "% of the property price");
+        }
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(product.name() + ": " + String.join("; ", violations));
+        }
+    }
+
+    private static void check(LoanProduct product) {
+        if (product.name() == null || product.name().isBlank()) throw new IllegalArgumentException("Loan product without a name");
+        if (product.max_term() <= 0) throw new IllegalArgumentException(product.name() + ": max_term must be positive");
+        if (product.min_rate() < 0 || product.min_rate() > product.max_rate()) {
+            throw new IllegalArgumentException(product.name() + ": min_rate must be between 0 and max_rate");
+        }
+        if (product.max_financing() <= 0 || product.max_financing() > 100) {
+            throw new IllegalArgumentException(product.name() + ": max_financing must be between 1 and 100");
+        }
+    }
+}
@@ -1,34 +1,282 @@
 package nasch.prestabanco_backend.services;
 
+import io.micrometer.core.annotation.Timed;
+import nasch.prestabanco_backend.Config.Coalesced;
+import nasch.prestabanco_backend.dto.CollectionStamp;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.dto.LoanProduct;
+import nasch.prestabanco_backend.dto.LoanRevision;
+import nasch.prestabanco_backend.dto.LoanSummaryTotals;
+import nasch.prestabanco_backend.dto.MaxAmountRequest;
+import nasch.prestabanco_backend.dto.MaxAmountResult;
 import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.entities.LoanSummaryEntity;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
 import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongToDoubleFunction;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "prestabanco.service", histogram = true)
 public class LoanService {
+    public static final int MAX_AMOUNT_BATCH_SIZE = 10000;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String EXPORT_CSV_HEADER = "id,rut,type,property_price,amount,term,interest_rate,income,working_time,age,"
+            + "state,monthly_payment,payment_to_income,loan_to_value,age_at_maturity,created_at,updated_at";
+
     @Autowired
     private LoanRepository loanRepository; // Injects LoanRepository to perform database operations.
 
+    @Autowired
+    private FieldProjectionRepository fieldProjectionRepository; // Injects FieldProjectionRepository to read sparse fieldsets.
+
+    @Autowired
+    private LoanEventRepository loanEventRepository; // Injects LoanEventRepository to record changes in the outbox.
+
+    @Autowired
+    private LoanProductCatalog loanProductCatalog; // Injects LoanProductCatalog to check loans against their product's rules.
+
+    @Autowired
+    private LoanArchive loanArchive; // Injects LoanArchive to read loans that were moved out of the loan table.
+
+    @Autowired
+    private LoanSummaryRepository loanSummaryRepository; // Injects LoanSummaryRepository to read the loan summary.
+
     /**
      * Retrieves all loans from the database.
      * @return ArrayList<LoanEntity> - a list of all loans in the database.
      */
+    @Transactional(readOnly = true)
     public ArrayList<LoanEntity> getAllLoans() {
         return (ArrayList<LoanEntity>) loanRepository.findAll();
     }
 
+    /**
+     * Retrieves only the requested fields of all loans, reading just those columns.
+     * @param fields String - comma-separated attribute names, e.g. "id,rut,state,amount".
+     * @return List<Map<String, Object>> - one map of field name to value per loan, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllLoans(String fields) {
+        return fieldProjectionRepository.findAll(LoanEntity.class, resolveFields(fields));
+    }
+
+    /**
+     * Computes the fingerprint of the loan table, used to answer conditional GETs on the listing.
+     * @return CollectionStamp - row count, version sum, last update and highest id of the loans.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public CollectionStamp getLoansStamp() {
+        return loanRepository.findCollectionStamp();
+    }
+
+    /**
+     * Retrieves the loans whose stored affordability metrics are within the given bounds, e.g. the
+     * pending loans with a payment-to-income above 35%. Only the bounds given become conditions, so the
+     * query can use the index on (state, payment_to_income) or (state, loan_to_value).
+     * @param state String - optional loan state.
+     * @param min_payment_to_income Double - optional lower bound of the payment-to-income, in percent, exclusive.
+     * @param max_payment_to_income Double - optional upper bound of the payment-to-income, in percent, inclusive.
+     * @param max_loan_to_value Double - optional upper bound of the loan-to-value, in percent, inclusive.
+     * @param max_age_at_maturity Integer - optional upper bound of the applicant's age when the loan ends, inclusive.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, from 1 to MAX_PAGE_SIZE.
+     * @return List<LoanEntity> - the matching loans without their documents, ordered by id.
+     * @throws ResponseStatusException - 400 if the limit is out of range.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanEntity> getByAffordability(String state, Double min_payment_to_income, Double max_payment_to_income,
+                                               Double max_loan_to_value, Integer max_age_at_maturity, long after, int limit) {
+        checkLimit(limit);
+        List<Specification<LoanEntity>> conditions = new ArrayList<>();
+        conditions.add((loan, query, cb) -> cb.greaterThan(loan.get("id"), after));
+        if (state != null) conditions.add((loan, query, cb) -> cb.equal(loan.get("state"), state));
+        if (min_payment_to_income != null) conditions.add((loan, query, cb) -> cb.greaterThan(loan.get("payment_to_income"), min_payment_to_income));
+        if (max_payment_to_income != null) conditions.add((loan, query, cb) -> cb.lessThanOrEqualTo(loan.get("payment_to_income"), max_payment_to_income));
+        if (max_loan_to_value != null) conditions.add((loan, query, cb) -> cb.lessThanOrEqualTo(loan.get("loan_to_value"), max_loan_to_value));
+        if (max_age_at_maturity != null) conditions.add((loan, query, cb) -> cb.lessThanOrEqualTo(loan.get("age_at_maturity"), max_age_at_maturity));
+        // The documents are lazy, so they are not part of the query.
+        return loanRepository.findBy(Specification.allOf(conditions), query -> query.sortBy(Sort.by("id")).limit(limit).all());
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Retrieves a page of the loans created within a time range. The loan table is partitioned by creation
+     * month, so only the partitions the range covers are read.
+     * @param from Instant - start of the range, inclusive.
+     * @param to Instant - end of the range, exclusive.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, from 1 to MAX_PAGE_SIZE.
+     * @return List<LoanEntity> - the loans created in the range without their documents, ordered by id.
+     * @throws ResponseStatusException - 400 if the range is empty or reversed, or the limit is out of range.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanEntity> getCreatedBetween(Instant from, Instant to, long after, int limit) {
+        checkRange(from, to);
+        checkLimit(limit);
+        return loanRepository.findCreatedBetween(from, to, after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Retrieves a page of the loans created in the last days, which only reads the current and previous monthly partitions.
+     * @param days int - how many days back to look.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of loans to return, from 1 to MAX_PAGE_SIZE.
+     * @return List<LoanEntity> - the loans created in that period without their documents, ordered by id.
+     * @throws ResponseStatusException - 400 if days is not positive or the limit is out of range.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanEntity> getRecent(int days, long after, int limit) {
+        if (days <= 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days must be positive");
+        checkLimit(limit);
+        Instant now = Instant.now();
+        return loanRepository.findCreatedBetween(now.minus(days, ChronoUnit.DAYS), now, after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Writes the loans created within a time range as CSV, without their documents. Rows are fetched from the
+     * database in batches while they are written, so the size of the export does not bound memory.
+     * @param from Instant - start of the range, inclusive.
+     * @param to Instant - end of the range, exclusive.
+     * @param output OutputStream - where the CSV is written, UTF-8.
+     * @return long - number of loans written.
+     * @throws IOException - if the output cannot be written.
+     * @throws ResponseStatusException - 400 if the range is empty or reversed.
+     */
+    @Transactional(readOnly = true)
+    public long exportCreatedBetween(Instant from, Instant to, OutputStream output) throws IOException {
+        checkRange(from, to);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+        writer.write(EXPORT_CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        try (Stream<Object[]> rows = loanRepository.streamExportRows(from, to)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) writer.write(',');
+                    if (row[i] instanceof String text) writer.write(csvQuote(text));
+                    else if (row[i] != null) writer.write(row[i].toString());
+                }
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void checkRange(Instant from, Instant to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+    }
+
+    static String csvQuote(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Searches the loan summary, which holds no documents and lags the loans by the relay interval.
+     * @param rut String - optional RUT filter, null for any.
+     * @param type String - optional loan type filter, null for any.
+     * @param state String - optional loan state filter, null for any.
+     * @param after long - the last id already read, 0 to start from the first.
+     * @param limit int - maximum number of summaries to return, 0 for no limit.
+     * @return List<LoanSummaryEntity> - the matching summaries, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanSummaryEntity> searchSummaries(String rut, String type, String state, long after, int limit) {
+        return loanSummaryRepository.search(rut, type, state, after, limit > 0 ? PageRequest.of(0, limit) : Pageable.unpaged());
+    }
+
+    /**
+     * Aggregates the loan summary by state and type, for the dashboard.
+     * @return List<LoanSummaryTotals> - count, total amount and average payment-to-income of each state and type.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanSummaryTotals> getSummaryTotals() {
+        return loanSummaryRepository.findTotals();
+    }
+
+    /**
+     * Retrieves the published loan changes after a sequence, for consumers tailing the stream.
+     * @param after long - the last sequence the consumer has seen, 0 to start from the oldest retained event.
+     * @param limit int - the maximum number of events to return.
+     * @return List<LoanChangeEvent> - the events in sequence order.
+     */
+    @Transactional(readOnly = true)
+    public List<LoanChangeEvent> getEventsAfter(long after, int limit) {
+        return loanEventRepository.findPublishedAfter(after, PageRequest.of(0, limit)).stream()
+                .map(LoanChangeEvent::from)
+                .toList();
+    }
+
+    /**
+     * @return long - the sequence of the last published loan change, 0 if none.
+     */
+    @Transactional(readOnly = true)
+    public long getLastEventSequence() {
+        return loanEventRepository.findLastSequence();
+    }
+
     /**
      * Finds and retrieves a loan by the user's RUT (unique ID).
      * @param rut String - unique identification number of the user.
      * @return LoanEntity - the loan entity if found.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public LoanEntity getByRut(String rut) {
-        return loanRepository.findByRut(rut);
+        LoanEntity loan = loanRepository.findByRut(rut);
+        if (loan != null) return loan;
+        return loanArchive.findByRut(rut).stream().findFirst().orElse(null);
+    }
+
+    /**
+     * Finds and retrieves a loan by its ID, from the archive if it is no longer in the loan table.
+     * @param id Long - unique identifier of the loan.
+     * @return LoanEntity - the loan entity.
+     * @throws ResponseStatusException - 404 if the loan neither exists nor was archived.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public LoanEntity getById(Long id) {
+        return loanRepository.findById(id)
+                .or(() -> loanArchive.findById(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found: " + id));
     }
 
     /**
@@ -36,10 +284,44 @@ public class LoanService {
      * @param state String - the state of the loan.
      * @return LoanEntity - the loan entity if found.
      */
+    @Transactional(readOnly = true)
     public LoanEntity getByState(String state) {
         return loanRepository.findByState(state);
     }
 
+    /**
+     * Retrieves one document of a loan, from the archive if the loan is no longer in the loan table.
+     * The scalar state of the loan comes from the second-level cache; only this document is read.
+     * @param id Long - unique identifier of the loan.
+     * @param slot int - document slot of the loan, from 1 to 4.
+     * @return byte[] - the content of the document.
+     * @throws ResponseStatusException - 400 for an invalid slot, 404 if the loan or the document does not exist.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getDocument(Long id, int slot) {
+        if (!LoanDocumentStore.isValidSlot(slot)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid document slot: " + slot);
+        }
+        byte[] document = loanRepository.findById(id).or(() -> loanArchive.findById(id))
+                .map(loan -> switch (slot) {
+                    case 1 -> loan.getDocument1();
+                    case 2 -> loan.getDocument2();
+                    case 3 -> loan.getDocument3();
+                    default -> loan.getDocument4();
+                })
+                .orElse(null);
+        if (document == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found: " + id + "/" + slot);
+        return document;
+    }
+
+    private List<String> resolveFields(String fields) {
+        try {
+            return FieldProjectionRepository.parseFields(fields, fieldProjectionRepository.getFieldNames(LoanEntity.class));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     /**
      * Saves a new loan in the database.
      * @param id Long - unique identifier of the loan.
@@ -55,14 +337,21 @@ public class LoanService {
      * @param state String - state of the loan.
      * @param document1Data, document2Data, document3Data, document4Data byte[] - binary data for loan documents.
      * @return LoanEntity - the saved loan entity.
+     * @throws ResponseStatusException - 400 if the loan breaks the rules of its product.
      */
+    @Transactional
     public LoanEntity saveLoan(Long id, String rut, String type, long property_price, long amount, int term,
                                float interest_rate, long income, int working_time, int age, String state,
                                byte[] document1Data, byte[] document2Data, byte[] document3Data, byte[] document4Data) {
+        checkProduct(type, property_price, amount, term, interest_rate);
         LoanEntity loan = new LoanEntity(id, rut, type, property_price, amount, term,
                 interest_rate, income, working_time, age, state, document1Data, document2Data, document3Data, document4Data);
 
-        return loanRepository.save(loan);
+        computeMetrics(loan);
+
+        LoanEntity saved = loanRepository.save(loan);
+        recordEvent(LoanEventEntity.CREATED, saved, null);
+        return saved;
     }
 
     /**
@@ -80,31 +369,108 @@ public class LoanService {
      * @param state String - state of the loan.
      * @param document1Data, document2Data, document3Data, document4Data byte[] - binary data for loan documents.
      * @return LoanEntity - the updated loan entity.
+     * @throws ResponseStatusException - 404 if there is no loan with that ID.
      */
+    @Transactional
     public LoanEntity updateLoan(Long id, String rut, String type, long property_price, long amount, int term,
                                  float interest_rate, long income, int working_time, int age, String state,
                                  byte[] document1Data, byte[] document2Data, byte[] document3Data, byte[] document4Data) {
         LoanEntity loan = new LoanEntity(id, rut, type, property_price, amount, term,
                 interest_rate, income, working_time, age, state, document1Data, document2Data, document3Data, document4Data);
+        // Carries the stored version so the merge is not rejected as a stale update, and the creation
+        // time, which is never rewritten but would otherwise come back null.
+        String previousState = null;
+        if (id != null) {
+            LoanRevision stored = loanRepository.findRevisionById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found: " + id));
+            loan.setVersion(stored.version());
+            loan.setCreated_at(stored.created_at());
+            previousState = stored.state();
+        }
+        computeMetrics(loan);
 
-        return loanRepository.save(loan);
+        LoanEntity saved = loanRepository.save(loan);
+        recordEvent(LoanEventEntity.UPDATED, saved, previousState);
+        return saved;
     }
 
     /**
      * Deletes a loan by its ID.
      * @param id Long - unique identifier of the loan to delete.
      * @return boolean - true if deletion was successful, otherwise throws an exception.
+     * @throws ResponseStatusException - 404 if there is no loan with that ID.
      * @throws Exception - throws if there is an issue with deletion.
      */
+    @Transactional(rollbackFor = Exception.class)
     public boolean deleteLoan(Long id) throws Exception {
+        // Checked first so that no DELETED event is published for a loan that never existed.
+        LoanRevision stored = loanRepository.findRevisionById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Loan not found: " + id));
         try {
+            String previousState = stored.state();
             loanRepository.deleteById(id);
+            loanEventRepository.save(LoanEventEntity.of(LoanEventEntity.DELETED, id, null, previousState));
             return true;
         } catch (Exception e) {
             throw new Exception(e.getMessage());
         }
     }
 
+    /**
+     * Checks loan terms against the product catalog, which is held in memory.
+     * @param type String - type of the loan.
+     * @param property_price Long - price of the property, or null to skip the financing check.
+     * @param amount long - loan amount.
+     * @param term int - loan term in years.
+     * @param interest_rate float - annual interest rate.
+     * @throws ResponseStatusException - 400 listing the rules broken, if any.
+     */
+    public void checkProduct(String type, Long property_price, long amount, int term, float interest_rate) {
+        try {
+            loanProductCatalog.validate(type, property_price, amount, term, interest_rate);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Written in the caller's transaction, so the event exists if and only if the change commits.
+    private void recordEvent(String eventType, LoanEntity loan, String previousState) {
+        loanEventRepository.save(LoanEventEntity.of(eventType, loan.getId(), loan, previousState));
+    }
+
+    /**
+     * Stores the affordability metrics of a loan on it, so every write keeps them consistent with its fields.
+     * @param loan LoanEntity - the loan about to be saved.
+     */
+    static void computeMetrics(LoanEntity loan) {
+        double payment = scheduledPayment(loan.getAmount(), loan.getInterest_rate(), loan.getTerm());
+        loan.setMonthly_payment(payment);
+        loan.setPayment_to_income(percentOf(payment, loan.getIncome()));
+        loan.setLoan_to_value(percentOf(loan.getAmount(), loan.getProperty_price()));
+        loan.setAge_at_maturity(loan.getAge() + loan.getTerm());
+    }
+
+    /**
+     * The payment of monthlyPayment for a stored loan: a loan at 0% repays the amount in equal parts,
+     * and a loan without a term has no payment.
+     * @param amount long - loan amount.
+     * @param interest_rate float - annual interest rate.
+     * @param term int - loan term in years.
+     * @return double - the monthly payment, always finite.
+     */
+    static double scheduledPayment(long amount, float interest_rate, int term) {
+        if (term <= 0) return 0;
+        double payment = monthlyPayment(amount, interest_rate, term);
+        return Double.isFinite(payment) ? payment : (double) amount / (term * 12);
+    }
+
+    /**
+     * @return Double - part over whole in percent, or null when the whole is not positive.
+     */
+    static Double percentOf(double part, long whole) {
+        return whole > 0 ? part * 100 / whole : null;
+    }
+
     /**
      * Simulates a mortgage credit calculation based on the loan amount, interest rate, and term.
      * @param amount long - loan amount.
@@ -112,7 +478,19 @@ public class LoanService {
      * @param term int - loan term in years.
      * @return double - calculated monthly mortgage payment.
      */
+    @Timed(value = "prestabanco.loan.simulation", histogram = true)
     public double mortgageCreditSimulation(long amount, float interest_rate, int term) {
+        return monthlyPayment(amount, interest_rate, term);
+    }
+
+    /**
+     * The formula of mortgageCreditSimulation, without its metrics, for computing many payments in one request.
+     * @param amount long - loan amount.
+     * @param interest_rate float - annual interest rate.
+     * @param term int - loan term in years.
+     * @return double - calculated monthly mortgage payment.
+     */
+    public static double monthlyPayment(long amount, float interest_rate, int term) {
         float r = (interest_rate / 12) / 100;
         int n = term * 12;
 
@@ -129,8 +507,23 @@ public class LoanService {
      * @param secure int... - optional costs for additional insurance policies.
      * @return double - total monthly cost of the loan.
      */
+    @Timed(value = "prestabanco.loan.simulation", histogram = true)
     public double totalCostCalculation(long amount, float interest_rate, int term, float desgravament, float admin_com_por, int... secure) {
-        double monthly_fee = mortgageCreditSimulation(amount, interest_rate, term);
+        return monthlyCost(amount, interest_rate, term, desgravament, admin_com_por, secure);
+    }
+
+    /**
+     * The formula of totalCostCalculation, without its metrics, for computing many costs in one request.
+     * @param amount long - loan amount.
+     * @param interest_rate float - annual interest rate.
+     * @param term int - loan term in years.
+     * @param desgravament float - desgravament (life insurance) rate.
+     * @param admin_com_por float - administrative commission percentage.
+     * @param secure int... - optional costs for additional insurance policies.
+     * @return double - total monthly cost of the loan.
+     */
+    public static double monthlyCost(long amount, float interest_rate, int term, float desgravament, float admin_com_por, int... secure) {
+        double monthly_fee = monthlyPayment(amount, interest_rate, term);
 
         float sec_desgravament = amount * desgravament;
 
@@ -141,4 +534,119 @@ public class LoanService {
 
         return monthly_cost + admin_com;
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes the largest loan amount an applicant can afford, the inverse of the simulation.
+     * @param request MaxAmountRequest - income, interest rate, term, payment-to-income ratio and optional costs.
+     * @return MaxAmountResult - the largest affordable amount with its monthly payment and, if bounded, its total cost.
+     */
+    public MaxAmountResult maxAffordableAmount(MaxAmountRequest request) {
+        try {
+            return solveMaxAmount(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the largest affordable loan amount of many applicants. An invalid applicant gets a result
+     * with an error instead of failing the whole batch.
+     * @param requests List<MaxAmountRequest> - the applicants, at most MAX_AMOUNT_BATCH_SIZE.
+     * @return List<MaxAmountResult> - one result per applicant, in the same order.
+     */
+    public List<MaxAmountResult> maxAffordableAmounts(List<MaxAmountRequest> requests) {
+        if (requests.size() > MAX_AMOUNT_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + MAX_AMOUNT_BATCH_SIZE + " applicants per batch");
+        }
+        List<MaxAmountResult> results = new ArrayList<>(requests.size());
+        for (MaxAmountRequest request : requests) {
+            try {
+                results.add(solveMaxAmount(request));
+            } catch (IllegalArgumentException e) {
+                results.add(MaxAmountResult.failed(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The payment of mortgageCreditSimulation is the amount times a factor that depends only on the rate and
+     * term, so the bare payment is inverted in closed form. The total cost adds float-rounded percentages and
+     * fixed costs, so it is inverted numerically from the closed-form estimate. Both go through the
+     * simulation methods themselves, so the returned amount simulates to at most the allowed payment.
+     * With a loan type, the term and rate must follow the product and the amount is capped at its financing.
+     */
+    private MaxAmountResult solveMaxAmount(MaxAmountRequest request) {
+        if (request == null) throw new IllegalArgumentException("Missing applicant");
+        if (request.income() <= 0) throw new IllegalArgumentException("income must be positive");
+        if (request.term() <= 0) throw new IllegalArgumentException("term must be positive");
+        if (!(request.max_ratio() > 0 && request.max_ratio() <= 1)) {
+            throw new IllegalArgumentException("max_ratio must be greater than 0 and at most 1");
+        }
+        float interest_rate = request.interest_rate();
+        int term = request.term();
+        double paymentPerUnit = mortgageCreditSimulation(1, interest_rate, term);
+        if (!(paymentPerUnit > 0) || Double.isInfinite(paymentPerUnit)) {
+            throw new IllegalArgumentException("interest_rate " + interest_rate + " does not give a payment");
+        }
+        double limit = request.income() * request.max_ratio();
+        long cap = Long.MAX_VALUE;
+        if (request.type() != null) {
+            loanProductCatalog.validate(request.type(), null, 0, term, interest_rate);
+            LoanProduct product = loanProductCatalog.getProduct(request.type()).orElse(null);
+            if (product != null && request.property_price() != null) {
+                cap = request.property_price() * product.max_financing() / 100;
+            }
+        }
+
+        if (!request.boundsTotalCost()) {
+            long amount = Math.min(cap, largestAmount(a -> mortgageCreditSimulation(a, interest_rate, term), limit, limit / paymentPerUnit));
+            return new MaxAmountResult(amount, mortgageCreditSimulation(amount, interest_rate, term), null, null);
+        }
+
+        float desgravament = request.desgravament() != null ? request.desgravament() : 0f;
+        float admin_com_por = request.admin_com_por() != null ? request.admin_com_por() : 0f;
+        int[] secure = request.secure() != null ? request.secure() : new int[0];
+        if (desgravament < 0 || admin_com_por < 0) {
+            throw new IllegalArgumentException("desgravament and admin_com_por must not be negative");
+        }
+        LongToDoubleFunction cost = a -> totalCostCalculation(a, interest_rate, term, desgravament, admin_com_por, secure);
+        double fixedCost = cost.applyAsDouble(0);
+        double estimate = (limit - fixedCost) / (paymentPerUnit + desgravament + admin_com_por);
+        long amount = Math.min(cap, largestAmount(cost, limit, estimate));
+        return new MaxAmountResult(amount, mortgageCreditSimulation(amount, interest_rate, term), cost.applyAsDouble(amount), null);
+    }
+
+    /**
+     * Finds the largest amount whose monthly cost is within the limit, for a cost that grows with the amount.
+     * Brackets the answer around the estimate, widening the bracket until it holds, then bisects it.
+     * @param cost LongToDoubleFunction - monthly cost of an amount.
+     * @param limit double - the highest acceptable monthly cost.
+     * @param estimate double - approximate answer, e.g. from the closed form.
+     * @return long - the largest amount within the limit, 0 if even 0 exceeds it.
+     */
+    static long largestAmount(LongToDoubleFunction cost, double limit, double estimate) {
+        final long maxAmount = Long.MAX_VALUE / 4;
+        if (cost.applyAsDouble(0) > limit) return 0;
+        long low = (long) Math.min(Math.max(estimate, 0), maxAmount);
+        long step = Math.max(1, low >> 20);
+        while (low > 0 && cost.applyAsDouble(low) > limit) {
+            low = Math.max(0, low - step);
+            step <<= 1;
+        }
+        long high = low + 1;
+        step = Math.max(1, low >> 20);
+        while (high < maxAmount && cost.applyAsDouble(high) <= limit) {
+            low = high;
+            high = Math.min(maxAmount, high + step);
+            step <<= 1;
+        }
+        while (high - low > 1) {
+            long middle = low + (high - low) / 2;
+            if (cost.applyAsDouble(middle) <= limit) low = middle;
+            else high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,422 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import nasch.prestabanco_backend.dto.SubmissionStatus;
+import nasch.prestabanco_backend.dto.SubmissionStatus.DocumentStatus;
+import nasch.prestabanco_backend.dto.SubmissionStatus.State;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Accepts loan applications without waiting for their documents: the scalar loan data is committed
+ * straight away and each document is spooled to disk and handed to a bounded worker pool that
+ * checksums, validates and stores it, retrying storage failures with exponential backoff.
+ * Submissions are only accepted while the pipeline has room, so a backlog cannot build up unbounded.
+ * <p>
+ * Each submission keeps a manifest next to its spooled documents, rewritten whenever a document
+ * finishes, so a restart picks up the documents that were still pending instead of losing them.
+ */
+@Service
+public class LoanSubmissionService {
+    private static final Logger logger = LoggerFactory.getLogger(LoanSubmissionService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String MANIFEST = "submission.properties";
+
+    @Autowired
+    LoanService loanService; // Injects the LoanService to commit the scalar loan data.
+
+    @Autowired
+    LoanDocumentStore loanDocumentStore; // Injects the store documents are written to.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the pipeline timings and queue depth are published to.
+
+    @Value("${prestabanco.submissions.spool-dir:${java.io.tmpdir}/prestabanco-submissions}")
+    Path spoolDirectory; // Where documents wait between the request and the pipeline.
+
+    @Value("${prestabanco.submissions.workers:4}")
+    int workers; // Documents processed at the same time.
+
+    @Value("${prestabanco.submissions.queue-capacity:64}")
+    int queueCapacity; // Documents accepted but not finished; submissions beyond it are rejected.
+
+    @Value("${prestabanco.submissions.max-attempts:3}")
+    int maxAttempts; // Storage attempts per document before it is marked as failed.
+
+    @Value("${prestabanco.submissions.retry-backoff:PT1S}")
+    Duration retryBackoff; // Delay before the first retry; doubled on every further attempt.
+
+    @Value("${prestabanco.submissions.max-document-size:${spring.servlet.multipart.max-file-size:10MB}}")
+    DataSize maxDocumentSize; // Documents larger than this fail validation.
+
+    @Value("${prestabanco.submissions.status-ttl:PT1H}")
+    Duration statusTtl; // How long a finished submission can still be polled.
+
+    private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+    private Semaphore capacity;
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService retryScheduler;
+    private Timer completedTimer;
+    private Timer failedTimer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(spoolDirectory);
+        capacity = new Semaphore(queueCapacity);
+        // Never more queued tasks than capacity permits, so the queue never rejects.
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory("loan-documents-"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("loan-documents-retry-"));
+
+        completedTimer = meterRegistry.timer("prestabanco.submissions.documents", "outcome", "completed");
+        failedTimer = meterRegistry.timer("prestabanco.submissions.documents", "outcome", "failed");
+        Gauge.builder("prestabanco.submissions.pending.documents", capacity, c -> queueCapacity - c.availablePermits())
+                .register(meterRegistry);
+        recover();
+    }
+
+    /**
+     * Restores the submissions left unfinished by a previous run and queues their pending documents again.
+     * A spool without a manifest belongs to a submission whose loan was never committed, and is deleted.
+     */
+    void recover() throws IOException {
+        List<Path> spools;
+        try (var files = Files.list(spoolDirectory)) {
+            spools = files.filter(Files::isDirectory).toList();
+        }
+        for (Path spool : spools) {
+            Submission loaded = null;
+            try {
+                if (Files.exists(spool.resolve(MANIFEST))) loaded = Submission.load(spool);
+                else logger.warn("Discarding documents of submission {}, whose loan was never committed", spool.getFileName());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Discarding unreadable submission {}: {}", spool.getFileName(), e.getMessage());
+            }
+            if (loaded == null) {
+                FileSystemUtils.deleteRecursively(spool);
+                continue;
+            }
+            Submission submission = loaded;
+            List<Document> pending = new ArrayList<>();
+            for (Document document : submission.documents) {
+                if (document.state == State.COMPLETED || document.state == State.FAILED) continue;
+                document.state = State.PENDING;
+                if (!Files.exists(document.file)) {
+                    document.state = State.FAILED;
+                    document.error = "Spooled document was lost";
+                } else if (!capacity.tryAcquire()) {
+                    document.state = State.FAILED;
+                    document.error = "Document pipeline was full when resuming";
+                } else {
+                    pending.add(document);
+                }
+            }
+            if (pending.isEmpty()) submission.finishedAt = System.currentTimeMillis();
+            submissions.put(submission.trackingId, submission);
+            if (pending.isEmpty()) {
+                deleteSpool(submission);
+            } else {
+                saveManifest(submission);
+                logger.info("Resuming {} documents of loan {}", pending.size(), submission.loanId);
+                for (Document document : pending) executor.execute(() -> process(submission, document));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        executor.shutdown();
+    }
+
+    /**
+     * Commits a loan without its documents and queues the documents for background processing.
+     * @param rut, type, property_price, amount, term, interest_rate, income, working_time, age, state - loan details.
+     * @param documents Map<Integer, MultipartFile> - documents keyed by slot, from 1 to 4.
+     * @return SubmissionStatus - the accepted submission, with its tracking id and loan id.
+     * @throws IOException - if a document cannot be spooled.
+     */
+    public SubmissionStatus submit(String rut, String type, long property_price, long amount, int term,
+                                   float interest_rate, long income, int working_time, int age, String state,
+                                   Map<Integer, MultipartFile> documents) throws IOException {
+        List<Integer> slots = documents.entrySet().stream()
+                .filter(entry -> entry.getValue() != null && !entry.getValue().isEmpty())
+                .map(Map.Entry::getKey).sorted().toList();
+        for (int slot : slots) {
+            if (!LoanDocumentStore.isValidSlot(slot)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid document slot: " + slot);
+        }
+        if (!capacity.tryAcquire(slots.size())) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Document pipeline is full, retry later");
+        }
+
+        Submission submission = new Submission(UUID.randomUUID().toString());
+        try {
+            Path directory = Files.createDirectories(spoolDirectory.resolve(submission.trackingId));
+            for (int slot : slots) {
+                Path file = directory.resolve("document" + slot);
+                // Moves Tomcat's temporary part file when possible instead of copying it.
+                documents.get(slot).transferTo(file);
+                submission.documents.add(new Document(slot, file, Files.size(file)));
+            }
+            LoanEntity loan = loanService.saveLoan(null, rut, type, property_price, amount, term,
+                    interest_rate, income, working_time, age, state, null, null, null, null);
+            submission.loanId = loan.getId();
+            if (!submission.documents.isEmpty()) saveManifest(submission);
+        } catch (IOException | RuntimeException e) {
+            capacity.release(slots.size());
+            deleteSpool(submission);
+            throw e;
+        }
+
+        if (submission.documents.isEmpty()) {
+            submission.finishedAt = System.currentTimeMillis();
+            deleteSpool(submission);
+        }
+        submissions.put(submission.trackingId, submission);
+        for (Document document : submission.documents) executor.execute(() -> process(submission, document));
+        return submission.status();
+    }
+
+    /**
+     * Retrieves the progress of a submission.
+     * @param trackingId String - identifier returned when the submission was accepted.
+     * @return SubmissionStatus - the current progress of the submission.
+     */
+    public SubmissionStatus status(String trackingId) {
+        Submission submission = submissions.get(trackingId);
+        if (submission == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Submission not found: " + trackingId);
+        return submission.status();
+    }
+
+    /**
+     * Forgets finished submissions once their status has been available for the configured time.
+     */
+    @Scheduled(fixedDelayString = "${prestabanco.submissions.cleanup-interval:PT5M}")
+    public void expireSubmissions() {
+        long cutoff = System.currentTimeMillis() - statusTtl.toMillis();
+        submissions.values().removeIf(submission -> submission.finishedAt > 0 && submission.finishedAt < cutoff);
+    }
+
+    private void process(Submission submission, Document document) {
+        long start = System.nanoTime();
+        synchronized (submission) {
+            document.state = State.PROCESSING;
+            document.attempts++;
+        }
+        try {
+            if (document.sha256 == null) {
+                String sha256 = checksum(document.file);
+                validate(document);
+                synchronized (submission) {
+                    document.sha256 = sha256;
+                }
+            }
+            if (!loanDocumentStore.attach(submission.loanId, document.slot, document.file)) {
+                finish(submission, document, State.FAILED, "Loan " + submission.loanId + " no longer exists", start);
+                return;
+            }
+            finish(submission, document, State.COMPLETED, null, start);
+        } catch (InvalidDocumentException e) {
+            finish(submission, document, State.FAILED, e.getMessage(), start);
+        } catch (Exception e) {
+            if (document.attempts >= maxAttempts) {
+                logger.warn("Giving up on document {} of loan {} after {} attempts", document.slot, submission.loanId, document.attempts, e);
+                finish(submission, document, State.FAILED, e.getMessage(), start);
+                return;
+            }
+            synchronized (submission) {
+                document.state = State.PENDING;
+                document.error = e.getMessage();
+            }
+            saveManifest(submission); // Keeps the attempts made, so a restart does not reset them.
+            long delay = retryBackoff.toMillis() << (document.attempts - 1);
+            retryScheduler.schedule(() -> executor.execute(() -> process(submission, document)), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void validate(Document document) throws InvalidDocumentException {
+        if (document.size > maxDocumentSize.toBytes()) throw new InvalidDocumentException("Document exceeds " + maxDocumentSize);
+    }
+
+    private void finish(Submission submission, Document document, State state, String error, long start) {
+        (state == State.COMPLETED ? completedTimer : failedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        boolean last;
+        synchronized (submission) {
+            document.state = state;
+            document.error = error;
+            last = submission.documents.stream().allMatch(d -> d.state == State.COMPLETED || d.state == State.FAILED);
+            if (last) submission.finishedAt = System.currentTimeMillis();
+        }
+        try {
+            Files.deleteIfExists(document.file);
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled document {}: {}", document.file, e.getMessage());
+        }
+        if (last) deleteSpool(submission);
+        else saveManifest(submission);
+        capacity.release();
+    }
+
+    private void saveManifest(Submission submission) {
+        Path directory = spoolDirectory.resolve(submission.trackingId);
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        // Workers finishing documents of the same submission write it one at a time; once the last one
+        // has finished the spool is deleted and there is nothing left to resume.
+        synchronized (submission) {
+            if (submission.finishedAt > 0) return;
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    submission.toProperties().store(out, null);
+                }
+                Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.warn("Could not save the manifest of submission {}: {}", submission.trackingId, e.getMessage());
+            }
+        }
+    }
+
+    private void deleteSpool(Submission submission) {
+        try {
+            FileSystemUtils.deleteRecursively(spoolDirectory.resolve(submission.trackingId));
+        } catch (IOException e) {
+            logger.warn("Could not delete spool of submission {}: {}", submission.trackingId, e.getMessage());
+        }
+    }
+
+    private static String checksum(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Raised for documents that will never be stored, so they fail without being retried.
+     */
+    private static class InvalidDocumentException extends Exception {
+        InvalidDocumentException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Document {
+        final int slot;
+        final Path file;
+        final long size;
+        String sha256;
+        State state = State.PENDING;
+        int attempts;
+        String error;
+
+        Document(int slot, Path file, long size) {
+            this.slot = slot;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * One accepted submission; its documents are guarded by its monitor.
+     */
+    private static class Submission {
+        final String trackingId;
+        final List<Document> documents = new ArrayList<>();
+        Long loanId;
+        volatile long finishedAt;
+
+        Submission(String trackingId) {
+            this.trackingId = trackingId;
+        }
+
+        synchronized Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("trackingId", trackingId);
+            properties.setProperty("loanId", loanId.toString());
+            for (Document d : documents) {
+                String prefix = "document." + d.slot + ".";
+                properties.setProperty(prefix + "size", Long.toString(d.size));
+                properties.setProperty(prefix + "state", d.state.name());
+                properties.setProperty(prefix + "attempts", Integer.toString(d.attempts));
+                if (d.sha256 != null) properties.setProperty(prefix + "sha256", d.sha256);
+                if (d.error != null) properties.setProperty(prefix + "error", d.error);
+            }
+            return properties;
+        }
+
+        static Submission load(Path directory) throws IOException {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(directory.resolve(MANIFEST))) {
+                properties.load(in);
+            }
+            Submission submission = new Submission(properties.getProperty("trackingId"));
+            submission.loanId = Long.valueOf(properties.getProperty("loanId"));
+            for (int slot = 1; slot <= 4; slot++) {
+                String prefix = "document." + slot + ".";
+                if (properties.getProperty(prefix + "size") == null) continue;
+                Document document = new Document(slot, directory.resolve("document" + slot), Long.parseLong(properties.getProperty(prefix + "size")));
+                document.state = State.valueOf(properties.getProperty(prefix + "state"));
+                document.attempts = Integer.parseInt(properties.getProperty(prefix + "attempts"));
+                document.sha256 = properties.getProperty(prefix + "sha256");
+                document.error = properties.getProperty(prefix + "error");
+                submission.documents.add(document);
+            }
+            return submission;
+        }
+
+        synchronized SubmissionStatus status() {
+            List<DocumentStatus> statuses = documents.stream()
+                    .map(d -> new DocumentStatus(d.slot, d.size, d.sha256, d.state, d.attempts, d.error))
+                    .toList();
+            return new SubmissionStatus(trackingId, loanId, overallState(), statuses);
+        }
+
+        private State overallState() {
+            if (documents.stream().allMatch(d -> d.state == State.COMPLETED)) return State.COMPLETED;
+            if (documents.stream().allMatch(d -> d.state == State.COMPLETED || d.state == State.FAILED)) return State.FAILED;
+            if (documents.stream().allMatch(d -> d.state == State.PENDING && d.attempts == 0)) return State.PENDING;
+            return State.PROCESSING;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.entities.LoanSummaryEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
+import nasch.prestabanco_backend.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the loan_summary read model from the loan change stream. Events arrive through the
+ * in-process sink while the relay publishes them, and each is applied in a transaction of its own: an
+ * event that cannot be applied is counted and skipped, instead of rolling back the relay and holding
+ * back every sink, and a rebuild repairs its row. Every row remembers the sequence of the last event
+ * applied to it, which makes redeliveries harmless.
+ * <p>
+ * The summary can also be rebuilt from the loan table. A rebuild holds the relay's lock, so no batch is
+ * published while it runs, and stamps every row with the last published sequence: events published
+ * afterwards apply on top of it.
+ */
+@Service
+public class LoanSummaryProjector {
+    private static final Logger logger = LoggerFactory.getLogger(LoanSummaryProjector.class);
+
+    @Autowired
+    LoanSummaryRepository loanSummaryRepository; // Injects LoanSummaryRepository to write the read model.
+
+    @Autowired
+    LoanRepository loanRepository; // Injects LoanRepository to read the loans a rebuild starts from.
+
+    @Autowired
+    LoanEventRepository loanEventRepository; // Injects LoanEventRepository to take the relay's lock and read its last sequence.
+
+    @Autowired
+    UserRepository userRepository; // Injects UserRepository to look up the applicant's name.
+
+    @Autowired
+    PlatformTransactionManager transactionManager; // Injects the JPA transaction manager events and rebuilds run in.
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the applied and skipped events are counted in.
+
+    @PersistenceContext
+    EntityManager entityManager; // Injects the shared EntityManager to insert rebuilt rows without reading them first.
+
+    @Value("${prestabanco.summary.rebuild-batch-size:1000}")
+    int rebuildBatchSize; // Loans read and inserted per round trip during a rebuild.
+
+    @Value("${prestabanco.summary.rebuild-if-empty:true}")
+    boolean rebuildIfEmpty; // Whether to build the summary on startup when it is empty but loans exist.
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate eventTemplate;
+    private Counter appliedCounter;
+    private Counter skippedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        eventTemplate = new TransactionTemplate(transactionManager);
+        eventTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        appliedCounter = meterRegistry.counter("prestabanco.summary.events", "outcome", "applied");
+        skippedCounter = meterRegistry.counter("prestabanco.summary.events", "outcome", "skipped");
+        failedCounter = meterRegistry.counter("prestabanco.summary.events", "outcome", "failed");
+    }
+
+    /**
+     * Applies a published loan change to the summary, unless a later change was applied already.
+     * A change that fails is logged, counted and left for a rebuild.
+     * @param event LoanChangeEvent - the change, as published by the relay.
+     */
+    @EventListener
+    public void apply(LoanChangeEvent event) {
+        try {
+            eventTemplate.executeWithoutResult(status -> project(event));
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            logger.warn("Could not apply loan event {} to the summary of loan {}: {}", event.sequence(), event.loanId(), e.getMessage());
+        }
+    }
+
+    private void project(LoanChangeEvent event) {
+        LoanSummaryEntity current = loanSummaryRepository.findById(event.loanId()).orElse(null);
+        if (current != null && current.getLast_sequence() >= event.sequence()) {
+            skippedCounter.increment();
+            return;
+        }
+        if (LoanEventEntity.DELETED.equals(event.type())) {
+            if (current != null) loanSummaryRepository.delete(current);
+        } else {
+            Map<String, Object> payload = event.payload();
+            String rut = (String) payload.get("rut");
+            LoanSummaryEntity summary = summarize(event.loanId(), rut, rut != null ? userRepository.findNameByRut(rut) : null,
+                    (String) payload.get("type"), asLong(payload.get("property_price")), asLong(payload.get("amount")),
+                    (int) asLong(payload.get("term")), asFloat(payload.get("interest_rate")), asLong(payload.get("income")),
+                    (String) payload.get("state"), event.sequence());
+            if (current == null) entityManager.persist(summary);
+            else loanSummaryRepository.save(summary);
+        }
+        appliedCounter.increment();
+    }
+
+    /**
+     * Builds the summary from the loan table on startup if it is empty, e.g. right after it was created.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildIfEmpty || loanSummaryRepository.count() > 0 || loanRepository.count() == 0) return;
+        rebuild();
+    }
+
+    /**
+     * Replaces the whole summary with one computed from the current loans and users.
+     * @return long - the number of loans summarized.
+     */
+    public long rebuild() {
+        long started = System.nanoTime();
+        Long rows = transactionTemplate.execute(status -> {
+            loanEventRepository.advisoryLock(LoanOutboxRelay.RELAY_LOCK);
+            long sequence = loanEventRepository.findLastSequence();
+            loanSummaryRepository.deleteAllInBatch();
+
+            long count = 0;
+            long after = 0;
+            List<Object[]> batch;
+            do {
+                batch = loanRepository.findSummarySourcesAfter(after, PageRequest.of(0, rebuildBatchSize));
+                for (Object[] loan : batch) {
+                    entityManager.persist(summarize((Long) loan[0], (String) loan[1], (String) loan[2], (String) loan[3],
+                            (Long) loan[4], (Long) loan[5], (Integer) loan[6], (Float) loan[7], (Long) loan[8], (String) loan[9], sequence));
+                    after = (Long) loan[0];
+                }
+                entityManager.flush();
+                entityManager.clear();
+                count += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+            return count;
+        });
+        logger.info("Rebuilt the loan summary from {} loans in {} ms", rows, (System.nanoTime() - started) / 1_000_000);
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * Computes the summary row of a loan.
+     * @return LoanSummaryEntity - the row, stamped with the given sequence.
+     */
+    static LoanSummaryEntity summarize(Long id, String rut, String userName, String type, long property_price, long amount,
+                                       int term, float interest_rate, long income, String state, long sequence) {
+        double payment = LoanService.scheduledPayment(amount, interest_rate, term);
+        return new LoanSummaryEntity(id, rut, userName, type, amount, state, payment, LoanService.percentOf(payment, income),
+                LoanService.percentOf(amount, property_price), sequence, Instant.now());
+    }
+
+    // Payload numbers come back from JSON as whichever Number type fits them.
+    private static long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static float asFloat(Object value) {
+        return value instanceof Number number ? number.floatValue() : 0;
+    }
+}
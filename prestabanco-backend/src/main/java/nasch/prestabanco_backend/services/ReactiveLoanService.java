@@ -0,0 +1,92 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanReadEntity;
+import nasch.prestabanco_backend.repositories.LoanReadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Service
+public class ReactiveLoanService {
+    @Autowired
+    LoanReadRepository loanReadRepository; // Injects the reactive repository for non-blocking loan reads.
+
+    @Autowired
+    R2dbcEntityTemplate r2dbcEntityTemplate; // Injects the R2DBC template used to build dynamic search queries.
+
+    @Autowired
+    LoanArchive loanArchive; // Injects the LoanArchive to read loans that were moved out of the loan table.
+
+    @Value("${prestabanco.reactive.prefetch:256}")
+    int prefetch; // Number of rows requested from the database ahead of subscriber demand.
+
+    /**
+     * Streams all loans without loading documents.
+     * @return Flux<LoanReadEntity> - a backpressured stream of all loans.
+     */
+    public Flux<LoanReadEntity> getAllLoans() {
+        return loanReadRepository.findAll().limitRate(prefetch);
+    }
+
+    /**
+     * Finds a loan by its ID, in the archive if it is no longer in the loan table.
+     * @param id Long - unique identifier of the loan.
+     * @return Mono<LoanReadEntity> - the loan if found, otherwise empty.
+     */
+    public Mono<LoanReadEntity> getById(Long id) {
+        return loanReadRepository.findById(id)
+                .switchIfEmpty(Mono.fromCallable(() -> loanArchive.findById(id).map(ReactiveLoanService::toRead).orElse(null))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Streams the loans that belong to the given RUT, followed by their archived loans.
+     * @param rut String - unique identification number of the user.
+     * @return Flux<LoanReadEntity> - the loans of the user.
+     */
+    public Flux<LoanReadEntity> getByRut(String rut) {
+        Flux<LoanReadEntity> archived = Flux.defer(() -> Flux.fromIterable(loanArchive.findByRut(rut)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ReactiveLoanService::toRead);
+        return loanReadRepository.findByRut(rut).limitRate(prefetch).concatWith(archived);
+    }
+
+    // Archived loans are read whole; the reactive API only exposes their scalar fields.
+    private static LoanReadEntity toRead(LoanEntity loan) {
+        return new LoanReadEntity(loan.getId(), loan.getRut(), loan.getType(), loan.getProperty_price(), loan.getAmount(),
+                loan.getTerm(), loan.getInterest_rate(), loan.getIncome(), loan.getWorking_time(), loan.getAge(), loan.getState(),
+                loan.getMonthly_payment(), loan.getPayment_to_income(), loan.getLoan_to_value(), loan.getAge_at_maturity(),
+                loan.getCreated_at());
+    }
+
+    /**
+     * Searches loans by any combination of RUT, type and state, ordered by ID.
+     * @param rut String - optional RUT filter.
+     * @param type String - optional loan type filter.
+     * @param state String - optional loan state filter.
+     * @param limit int - maximum number of loans to return, 0 for no limit.
+     * @return Flux<LoanReadEntity> - a backpressured stream of the matching loans.
+     */
+    public Flux<LoanReadEntity> search(String rut, String type, String state, int limit) {
+        Criteria criteria = Criteria.empty();
+        if (rut != null) criteria = criteria.and("rut").is(rut);
+        if (type != null) criteria = criteria.and("type").is(type);
+        if (state != null) criteria = criteria.and("state").is(state);
+
+        Query query = Query.query(criteria).sort(Sort.by("id"));
+        if (limit > 0) query = query.limit(limit);
+
+        return r2dbcEntityTemplate.select(LoanReadEntity.class)
+                .matching(query)
+                .all()
+                .limitRate(prefetch);
+    }
+}
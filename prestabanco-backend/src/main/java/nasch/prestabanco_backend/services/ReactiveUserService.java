@@ -0,0 +1,44 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.entities.UserReadEntity;
+import nasch.prestabanco_backend.repositories.UserReadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class ReactiveUserService {
+    @Autowired
+    UserReadRepository userReadRepository; // Injects the reactive repository for non-blocking user reads.
+
+    @Value("${prestabanco.reactive.prefetch:256}")
+    int prefetch; // Number of rows requested from the database ahead of subscriber demand.
+
+    /**
+     * Streams all users without loading documents.
+     * @return Flux<UserReadEntity> - a backpressured stream of all users.
+     */
+    public Flux<UserReadEntity> getAllUsers() {
+        return userReadRepository.findAll().limitRate(prefetch);
+    }
+
+    /**
+     * Finds a user by their ID.
+     * @param id Long - the unique identifier of the user.
+     * @return Mono<UserReadEntity> - the user if found, otherwise empty.
+     */
+    public Mono<UserReadEntity> getUserById(Long id) {
+        return userReadRepository.findById(id);
+    }
+
+    /**
+     * Finds a user by their RUT.
+     * @param rut String - unique identification number of the user.
+     * @return Mono<UserReadEntity> - the user if found, otherwise empty.
+     */
+    public Mono<UserReadEntity> getUserByRut(String rut) {
+        return userReadRepository.findFirstByRut(rut);
+    }
+}
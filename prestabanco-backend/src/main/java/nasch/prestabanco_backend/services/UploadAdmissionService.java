@@ -0,0 +1,148 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Budgets concurrent uploads and in-flight upload bytes so a burst of multipart requests cannot fill
+ * the heap or take every request thread. Uploads wait a bounded time in a bounded queue for budget;
+ * anything beyond that is rejected, which leaves the rest of the thread pool to lightweight calls.
+ */
+@Service
+public class UploadAdmissionService {
+    private static final long KIB = 1024;
+
+    @Autowired
+    MeterRegistry meterRegistry; // Injects the registry the admission counters and gauges are published to.
+
+    @Value("${prestabanco.admission.max-concurrent-uploads:16}")
+    int maxConcurrentUploads; // Uploads processed at the same time.
+
+    @Value("${prestabanco.admission.max-queued-uploads:32}")
+    int maxQueuedUploads; // Uploads allowed to wait for budget; each one holds a request thread.
+
+    @Value("${prestabanco.admission.max-in-flight-bytes:128MB}")
+    DataSize maxInFlightBytes; // Total declared size of the uploads being processed.
+
+    @Value("${prestabanco.admission.max-request-size:${spring.servlet.multipart.max-request-size:10MB}}")
+    DataSize maxRequestSize; // Charged for uploads that do not declare a Content-Length.
+
+    @Value("${prestabanco.admission.max-queue-wait:2s}")
+    Duration maxQueueWait; // How long an upload may wait for budget before being rejected.
+
+    private Semaphore uploadSlots;
+    private Semaphore byteBudget; // One permit per KiB.
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlightUploads = new AtomicInteger();
+    private final AtomicInteger inFlightKib = new AtomicInteger();
+
+    private Counter admittedCounter;
+    private Counter queuedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        uploadSlots = new Semaphore(maxConcurrentUploads, true);
+        byteBudget = new Semaphore((int) Math.min(Integer.MAX_VALUE, maxInFlightBytes.toBytes() / KIB), true);
+
+        admittedCounter = meterRegistry.counter("prestabanco.admission.uploads", "outcome", "admitted");
+        queuedCounter = meterRegistry.counter("prestabanco.admission.uploads", "outcome", "queued");
+        rejectedCounter = meterRegistry.counter("prestabanco.admission.uploads", "outcome", "rejected");
+        Gauge.builder("prestabanco.admission.in.flight.uploads", inFlightUploads, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("prestabanco.admission.in.flight.bytes", inFlightKib, kib -> kib.get() * (double) KIB)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("prestabanco.admission.queued.uploads", queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Tries to admit an upload, waiting up to the configured time if the budget is exhausted.
+     * @param contentLength long - declared size of the request in bytes, or -1 if unknown.
+     * @return Permit - a permit to release once the upload is processed, or null if it was rejected.
+     * @throws InterruptedException - if the thread is interrupted while waiting for budget.
+     */
+    public Permit tryAdmit(long contentLength) throws InterruptedException {
+        int kib = chargedKib(contentLength);
+
+        if (uploadSlots.tryAcquire()) {
+            if (byteBudget.tryAcquire(kib)) return admit(kib);
+            uploadSlots.release();
+        }
+
+        // No budget right now: wait in the bounded queue, or reject straight away if it is full.
+        if (queued.incrementAndGet() > maxQueuedUploads) {
+            queued.decrementAndGet();
+            rejectedCounter.increment();
+            return null;
+        }
+        queuedCounter.increment();
+        try {
+            long deadline = System.nanoTime() + maxQueueWait.toNanos();
+            if (!uploadSlots.tryAcquire(maxQueueWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejectedCounter.increment();
+                return null;
+            }
+            if (!byteBudget.tryAcquire(kib, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                uploadSlots.release();
+                rejectedCounter.increment();
+                return null;
+            }
+            return admit(kib);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return long - seconds a rejected client should wait before retrying.
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, maxQueueWait.toSeconds());
+    }
+
+    private Permit admit(int kib) {
+        admittedCounter.increment();
+        inFlightUploads.incrementAndGet();
+        inFlightKib.addAndGet(kib);
+        return new Permit(kib);
+    }
+
+    private int chargedKib(long contentLength) {
+        long bytes = contentLength >= 0 ? contentLength : maxRequestSize.toBytes();
+        long kib = Math.max(1, (bytes + KIB - 1) / KIB);
+        // An upload larger than the whole budget is charged the whole budget, so it runs alone instead of never.
+        return (int) Math.min(kib, maxInFlightBytes.toBytes() / KIB);
+    }
+
+    /**
+     * Budget held by an admitted upload; closing it returns the budget exactly once.
+     */
+    public class Permit implements AutoCloseable {
+        private final int kib;
+        private boolean released;
+
+        private Permit(int kib) {
+            this.kib = kib;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) return;
+            released = true;
+            inFlightKib.addAndGet(-kib);
+            inFlightUploads.decrementAndGet();
+            byteBudget.release(kib);
+            uploadSlots.release();
+        }
+    }
+}
@@ -1,25 +1,63 @@
 package nasch.prestabanco_backend.services;
 
+import io.micrometer.core.annotation.Timed;
+import nasch.prestabanco_backend.Config.Coalesced;
+import nasch.prestabanco_backend.dto.CollectionStamp;
 import nasch.prestabanco_backend.entities.UserEntity;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
 import nasch.prestabanco_backend.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Service
+@Timed(value = "prestabanco.service", histogram = true)
 public class UserService {
     @Autowired
     UserRepository userRepository; // Injects the UserRepository dependency to access database operations.
 
+    @Autowired
+    FieldProjectionRepository fieldProjectionRepository; // Injects the FieldProjectionRepository to read sparse fieldsets.
+
+    @Autowired
+    LoanSummaryRepository loanSummaryRepository; // Injects the LoanSummaryRepository to keep applicant names in the loan summary current.
+
     /**
      * Retrieves all users from the database.
      * @return ArrayList<UserEntity> - a list of all users in the database.
      */
+    @Transactional(readOnly = true)
     public ArrayList<UserEntity> getAllUsers() {
         return (ArrayList<UserEntity>) userRepository.findAll();
     }
 
+    /**
+     * Retrieves only the requested fields of all users, reading just those columns.
+     * @param fields String - comma-separated attribute names, e.g. "id,rut,name".
+     * @return List<Map<String, Object>> - one map of field name to value per user, ordered by id.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllUsers(String fields) {
+        return fieldProjectionRepository.findAll(UserEntity.class, resolveFields(fields));
+    }
+
+    /**
+     * Computes the fingerprint of the users table, used to answer conditional GETs on the listing.
+     * @return CollectionStamp - row count, version sum, last update and highest id of the users.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public CollectionStamp getUsersStamp() {
+        return userRepository.findCollectionStamp();
+    }
+
     /**
      * Saves a new user in the database.
      * @param id Long - unique identifier of the user.
@@ -31,7 +69,10 @@ public class UserService {
      */
     public UserEntity saveUser(Long id, String rut, String name, String email, byte[] documentData){
         UserEntity user = new UserEntity(id, rut, name, email, documentData);
-        return userRepository.save(user);
+        UserEntity saved = userRepository.save(user);
+        // Users are not part of the loan change stream, so their name is copied to the summary directly.
+        loanSummaryRepository.updateUserName(rut, name);
+        return saved;
     }
 
     /**
@@ -39,10 +80,50 @@ public class UserService {
      * @param id Long - the unique identifier of the user.
      * @return UserEntity - the user entity if found.
      */
+    @Coalesced
+    @Transactional(readOnly = true)
     public UserEntity getUserById(Long id){
         return userRepository.findById(id).get();
     }
 
+    /**
+     * Retrieves the document of a user. The scalar state of the user comes from the second-level
+     * cache; only the document is read from the database.
+     * @param id Long - the unique identifier of the user.
+     * @return byte[] - the content of the document.
+     * @throws ResponseStatusException - 404 if the user or their document does not exist.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getUserDocument(Long id) {
+        byte[] document = userRepository.findById(id).map(UserEntity::getDocument).orElse(null);
+        if (document == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found: " + id);
+        return document;
+    }
+
+    /**
+     * Retrieves only the requested fields of a user, reading just those columns.
+     * @param id Long - the unique identifier of the user.
+     * @param fields String - comma-separated attribute names, e.g. "id,rut,name".
+     * @return Map<String, Object> - field name to value.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUserById(Long id, String fields) {
+        return fieldProjectionRepository.findById(UserEntity.class, id, resolveFields(fields))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + id));
+    }
+
+    /**
+     * Retrieves the current version of a user without loading their document.
+     * @param id Long - the unique identifier of the user.
+     * @return Long - the version of the user, or null if the user does not exist.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    public Long getUserVersion(Long id) {
+        return userRepository.findVersionById(id).orElse(null);
+    }
+
     /**
      * Updates an existing user in the database.
      * @param id Long - unique identifier of the user.
@@ -52,9 +133,16 @@ public class UserService {
      * @param documentData byte[] - binary data for user documents.
      * @return UserEntity - the updated user entity.
      */
+    @Transactional
     public UserEntity updateUser(Long id, String rut, String name, String email, byte[] documentData) {
         UserEntity user = new UserEntity(id, rut, name, email, documentData);
-        return userRepository.save(user);
+        // Carries the stored version so the merge is not rejected as a stale update, and the creation
+        // time, which is never rewritten but would otherwise come back null.
+        userRepository.findVersionById(id).ifPresent(user::setVersion);
+        userRepository.findCreatedAtById(id).ifPresent(user::setCreated_at);
+        UserEntity saved = userRepository.save(user);
+        loanSummaryRepository.updateUserName(rut, name);
+        return saved;
     }
 
     /**
@@ -71,4 +159,12 @@ public class UserService {
             throw new Exception(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private List<String> resolveFields(String fields) {
+        try {
+            return FieldProjectionRepository.parseFields(fields, fieldProjectionRepository.getFieldNames(UserEntity.class));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Version and update time of users and loans, and the loan change outbox. Hibernate still generated
+-- these before the schema moved to Flyway, so databases baselined from that schema may have them.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at timestamp(6) with time zone,
+                  ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+
+ALTER TABLE loan ADD COLUMN IF NOT EXISTS updated_at timestamp(6) with time zone,
+                 ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS loan_outbox (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type   varchar(255),
+    loan_id      bigint,
+    occurred_at  timestamp(6) with time zone,
+    payload      jsonb,
+    published_at timestamp(6) with time zone,
+    sequence     bigint,
+    CONSTRAINT loan_outbox_sequence_idx UNIQUE (sequence)
+);
@@ -0,0 +1,28 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). Databases created that way are
+-- baselined at this version (spring.flyway.baseline-on-migrate) instead of running this script.
+
+CREATE TABLE users (
+    id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document oid,
+    email    varchar(255),
+    name     varchar(255),
+    rut      varchar(255)
+);
+
+CREATE TABLE loan (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    age            integer NOT NULL,
+    amount         bigint NOT NULL,
+    document1      oid,
+    document2      oid,
+    document3      oid,
+    document4      oid,
+    income         bigint NOT NULL,
+    interest_rate  real NOT NULL,
+    property_price bigint NOT NULL,
+    rut            varchar(255),
+    state          varchar(255),
+    term           integer NOT NULL,
+    type           varchar(255),
+    working_time   integer NOT NULL
+);
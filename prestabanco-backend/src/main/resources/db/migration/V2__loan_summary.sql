@@ -0,0 +1,19 @@
+-- Narrow read model of the loans, kept up to date from the loan change stream by LoanSummaryProjector
+-- and rebuilt from the loan table when empty. Holds no documents, so listings never touch the blobs.
+
+CREATE TABLE loan_summary (
+    id                bigint PRIMARY KEY,
+    rut               varchar(255),
+    user_name         varchar(255),
+    type              varchar(255),
+    amount            bigint NOT NULL,
+    state             varchar(255),
+    monthly_payment   double precision NOT NULL,
+    payment_to_income double precision,
+    financing_ratio   double precision,
+    last_sequence     bigint NOT NULL,
+    updated_at        timestamp(6) with time zone
+);
+
+CREATE INDEX loan_summary_rut_idx ON loan_summary (rut);
+CREATE INDEX loan_summary_state_type_idx ON loan_summary (state, type);
@@ -0,0 +1,27 @@
+-- Affordability metrics computed by LoanService on every write, stored so they can be filtered on and
+-- indexed. Existing loans are backfilled with the same arithmetic as LoanService.scheduledPayment:
+-- the monthly rate is computed in single precision, as mortgageCreditSimulation does.
+
+ALTER TABLE loan
+    ADD COLUMN monthly_payment   double precision,
+    ADD COLUMN payment_to_income double precision,
+    ADD COLUMN loan_to_value     double precision,
+    ADD COLUMN age_at_maturity   integer;
+
+UPDATE loan l
+SET monthly_payment = CASE
+        WHEN l.term <= 0 THEN 0
+        WHEN m.r = 0 THEN l.amount::float8 / (l.term * 12)
+        ELSE l.amount * ((m.r::float8 * power((1::real + m.r)::float8, l.term * 12))
+                         / (power((1::real + m.r)::float8, l.term * 12) - 1))
+    END,
+    loan_to_value = CASE WHEN l.property_price > 0 THEN l.amount::float8 * 100 / l.property_price END,
+    age_at_maturity = l.age + l.term
+FROM (SELECT id, (interest_rate / 12::real) / 100::real AS r FROM loan) m
+WHERE m.id = l.id;
+
+UPDATE loan SET payment_to_income = monthly_payment * 100 / income WHERE income > 0;
+
+CREATE INDEX loan_state_payment_to_income_idx ON loan (state, payment_to_income);
+CREATE INDEX loan_state_loan_to_value_idx ON loan (state, loan_to_value);
+CREATE INDEX loan_age_at_maturity_idx ON loan (age_at_maturity);
@@ -0,0 +1,89 @@
+-- Creation timestamps on users and loans, and the loan table range-partitioned by creation month (UTC).
+-- Rows that predate the column take their last update time, or the migration time if they have none.
+
+ALTER TABLE users ADD COLUMN created_at timestamp(6) with time zone;
+UPDATE users SET created_at = COALESCE(updated_at, now());
+ALTER TABLE users ALTER COLUMN created_at SET DEFAULT now(), ALTER COLUMN created_at SET NOT NULL;
+CREATE INDEX users_created_at_idx ON users (created_at);
+
+-- A partitioned table cannot be made from an existing one: the loans are copied into a new table.
+ALTER TABLE loan RENAME TO loan_unpartitioned;
+ALTER TABLE loan_unpartitioned RENAME CONSTRAINT loan_pkey TO loan_unpartitioned_pkey;
+ALTER SEQUENCE loan_id_seq RENAME TO loan_unpartitioned_id_seq;
+DROP INDEX loan_state_payment_to_income_idx, loan_state_loan_to_value_idx, loan_age_at_maturity_idx;
+
+-- The primary key must include the partition key; ids stay unique since they all come from one sequence.
+CREATE TABLE loan (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY,
+    age               integer NOT NULL,
+    amount            bigint NOT NULL,
+    document1         oid,
+    document2         oid,
+    document3         oid,
+    document4         oid,
+    income            bigint NOT NULL,
+    interest_rate     real NOT NULL,
+    property_price    bigint NOT NULL,
+    rut               varchar(255),
+    state             varchar(255),
+    term              integer NOT NULL,
+    type              varchar(255),
+    working_time      integer NOT NULL,
+    updated_at        timestamp(6) with time zone,
+    version           bigint DEFAULT 0 NOT NULL,
+    monthly_payment   double precision,
+    payment_to_income double precision,
+    loan_to_value     double precision,
+    age_at_maturity   integer,
+    created_at        timestamp(6) with time zone DEFAULT now() NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside every monthly partition, so an insert never fails for want of one.
+CREATE TABLE loan_default PARTITION OF loan DEFAULT;
+
+-- Creates the partition of the UTC month holding the given instant, e.g. loan_y2026m10.
+-- Used here and by LoanPartitionMaintainer, which keeps the coming months created ahead of time.
+CREATE FUNCTION create_loan_partition(month_of timestamptz) RETURNS text LANGUAGE plpgsql AS $$
+DECLARE
+    first_day timestamp := date_trunc('month', month_of AT TIME ZONE 'UTC');
+    partition_name text := 'loan_' || to_char(first_day, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF loan FOR VALUES FROM (%L) TO (%L)', partition_name,
+                   first_day AT TIME ZONE 'UTC', (first_day + interval '1 month') AT TIME ZONE 'UTC');
+    RETURN partition_name;
+END
+$$;
+
+DO $$
+DECLARE
+    month timestamp := date_trunc('month', COALESCE((SELECT min(COALESCE(updated_at, now())) FROM loan_unpartitioned), now()) AT TIME ZONE 'UTC');
+BEGIN
+    WHILE month < (now() AT TIME ZONE 'UTC') + interval '3 months' LOOP
+        PERFORM create_loan_partition(month AT TIME ZONE 'UTC');
+        month := month + interval '1 month';
+    END LOOP;
+END
+$$;
+
+INSERT INTO loan (id, age, amount, document1, document2, document3, document4, income, interest_rate, property_price,
+                  rut, state, term, type, working_time, updated_at, version, monthly_payment, payment_to_income,
+                  loan_to_value, age_at_maturity, created_at)
+SELECT id, age, amount, document1, document2, document3, document4, income, interest_rate, property_price,
+       rut, state, term, type, working_time, updated_at, version, monthly_payment, payment_to_income,
+       loan_to_value, age_at_maturity, COALESCE(updated_at, now())
+FROM loan_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('loan', 'id'), COALESCE((SELECT max(id) FROM loan), 0) + 1, false);
+
+DROP TABLE loan_unpartitioned;
+
+-- Lookups by id alone probe each partition's index; time-range queries are pruned to their partitions.
+CREATE INDEX loan_id_idx ON loan (id);
+CREATE INDEX loan_created_at_idx ON loan (created_at);
+CREATE INDEX loan_state_payment_to_income_idx ON loan (state, payment_to_income);
+CREATE INDEX loan_state_loan_to_value_idx ON loan (state, loan_to_value);
+CREATE INDEX loan_age_at_maturity_idx ON loan (age_at_maturity);
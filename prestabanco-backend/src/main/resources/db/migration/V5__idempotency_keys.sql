@@ -0,0 +1,12 @@
+-- Idempotency keys claimed by any instance, kept for the key's whole TTL. A retry that reaches another
+-- instance, or arrives after the stored response was evicted, finds its key here and is refused
+-- instead of being executed again. Expired rows are purged by IdempotencyService.
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    id           varchar(1024) PRIMARY KEY,
+    request_hash varchar(64) NOT NULL,
+    status       integer,
+    created_at   timestamp(6) with time zone NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_key_created_at_idx ON idempotency_key (created_at);
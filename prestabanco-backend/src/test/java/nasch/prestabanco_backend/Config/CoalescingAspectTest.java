@@ -0,0 +1,147 @@
+package nasch.prestabanco_backend.Config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingAspectTest {
+
+    public static class Lookup {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced
+        public String find(Long id) throws InterruptedException {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            if (id < 0) throw new IllegalArgumentException("Negative id");
+            return "user-" + id;
+        }
+
+        @Coalesced(key = "#rut.toUpperCase()", name = "byRut")
+        public String findByRut(String rut) throws InterruptedException {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            return rut;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private SimpleMeterRegistry meterRegistry;
+    private Lookup target;
+    private Lookup lookup;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        CoalescingAspect aspect = new CoalescingAspect();
+        aspect.meterRegistry = meterRegistry;
+        aspect.enabled = true;
+        aspect.maxWait = Duration.ofSeconds(5);
+        aspect.init();
+
+        target = new Lookup();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        lookup = factory.getProxy();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        target.release.countDown();
+        executor.shutdownNow();
+        ReadYourWritesContext.clear();
+    }
+
+    private double calls(String method, String outcome) {
+        return meterRegistry.get("prestabanco.coalescing.calls").tags("method", method, "outcome", outcome).counter().count();
+    }
+
+    /**
+     * Starts a second caller once the first one is running, and gives it time to join the shared call.
+     */
+    private <T> Future<T> secondCaller(Callable<T> call) throws InterruptedException {
+        assertTrue(target.started.await(5, TimeUnit.SECONDS));
+        Future<T> second = executor.submit(call);
+        Thread.sleep(100);
+        return second;
+    }
+
+    @Test
+    public void coalesce_ConcurrentIdenticalCalls_ExecuteOnce() throws Exception {
+        Future<String> first = executor.submit(() -> lookup.find(1L));
+        Future<String> second = secondCaller(() -> lookup.find(1L));
+        target.release.countDown();
+
+        assertEquals("user-1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("user-1", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, target.calls.get());
+        assertEquals(1.0, calls("Lookup.find", "executed"));
+        assertEquals(1.0, calls("Lookup.find", "coalesced"));
+    }
+
+    @Test
+    public void coalesce_DifferentArguments_ExecuteSeparately() throws Exception {
+        target.release.countDown();
+
+        assertEquals("user-1", lookup.find(1L));
+        assertEquals("user-2", lookup.find(2L));
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    public void coalesce_KeyExpression_GroupsEquivalentArguments() throws Exception {
+        Future<String> first = executor.submit(() -> lookup.findByRut("12345678-k"));
+        Future<String> second = secondCaller(() -> lookup.findByRut("12345678-K"));
+        target.release.countDown();
+
+        assertEquals("12345678-k", first.get(5, TimeUnit.SECONDS));
+        assertEquals("12345678-k", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, target.calls.get());
+        assertEquals(1.0, calls("byRut", "coalesced"));
+    }
+
+    @Test
+    public void coalesce_SharedCallFails_AllCallersReceiveException() throws Exception {
+        Future<String> first = executor.submit(() -> lookup.find(-1L));
+        Future<String> second = secondCaller(() -> lookup.find(-1L));
+        target.release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    public void coalesce_CompletedCall_IsNotReused() throws Exception {
+        target.release.countDown();
+
+        lookup.find(1L);
+        lookup.find(1L);
+
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    public void coalesce_ReadYourWritesCaller_IsBypassed() throws Exception {
+        target.release.countDown();
+        ReadYourWritesContext.readAfter(System.currentTimeMillis());
+
+        lookup.find(1L);
+
+        assertEquals(1.0, calls("Lookup.find", "bypassed"));
+    }
+}
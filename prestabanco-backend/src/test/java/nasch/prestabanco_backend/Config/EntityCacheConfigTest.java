@@ -0,0 +1,73 @@
+package nasch.prestabanco_backend.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import nasch.prestabanco_backend.entities.UserEntity;
+import nasch.prestabanco_backend.services.UserService;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class EntityCacheConfigTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long userId;
+
+    @BeforeEach
+    public void setUp() {
+        userId = userService.saveUser(null, "11111111-1", "Ana", "ana@mail.cl", new byte[]{1, 2, 3}).getId();
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        userService.deleteUser(userId);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("prestabanco.cache.gets").tags("region", EntityCacheConfig.USER_REGION, "result", result)
+                .functionCounter().count();
+    }
+
+    private double hitRatio() {
+        return meterRegistry.get("prestabanco.cache.hit.ratio").tag("region", EntityCacheConfig.USER_REGION).gauge().value();
+    }
+
+    @Test
+    public void getUserById_RepeatedReads_ServedFromCacheWithoutTheDocument() {
+        userService.getUserById(userId);
+        UserEntity user = userService.getUserById(userId);
+
+        assertEquals("Ana", user.getName());
+        assertFalse(Hibernate.isPropertyInitialized(user, "document"));
+        assertEquals(1.0, gets("miss"));
+        assertEquals(1.0, gets("hit"));
+        assertEquals(0.5, hitRatio());
+    }
+
+    @Test
+    public void updateUser_CachedUser_NextReadSeesTheWrite() {
+        userService.getUserById(userId);
+
+        userService.updateUser(userId, "11111111-1", "Ana María", "ana@mail.cl", new byte[]{4, 5});
+
+        assertEquals("Ana María", userService.getUserById(userId).getName());
+        assertArrayEquals(new byte[]{4, 5}, userService.getUserDocument(userId));
+    }
+}
@@ -0,0 +1,74 @@
+package nasch.prestabanco_backend.Config;
+
+import nasch.prestabanco_backend.services.IdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyFilterTest {
+
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new IdempotencyFilter();
+        filter.idempotencyService = mock(IdempotencyService.class);
+        filter.paths = List.of("/api/loans/");
+    }
+
+    private static MockHttpServletRequest loan(String rut, byte[] document) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans/");
+        request.addHeader(IdempotencyFilter.HEADER, "k1");
+        request.setContentType("multipart/form-data; boundary=xyz");
+        request.addParameter("rut", rut);
+        request.addParameter("amount", "80000000");
+        request.addPart(new MockPart("rut", rut.getBytes()));
+        request.addPart(new MockPart("document1", "a.pdf", document));
+        return request;
+    }
+
+    @Test
+    public void fingerprint_SameSubmission_SameHash() throws Exception {
+        assertEquals(IdempotencyFilter.fingerprint(loan("12345678-9", new byte[]{1, 2})),
+                IdempotencyFilter.fingerprint(loan("12345678-9", new byte[]{1, 2})));
+    }
+
+    @Test
+    public void fingerprint_DifferentParameterOrDocument_DifferentHash() throws Exception {
+        String hash = IdempotencyFilter.fingerprint(loan("12345678-9", new byte[]{1, 2}));
+
+        assertNotEquals(hash, IdempotencyFilter.fingerprint(loan("98765432-1", new byte[]{1, 2})));
+        assertNotEquals(hash, IdempotencyFilter.fingerprint(loan("12345678-9", new byte[]{1, 3})));
+    }
+
+    @Test
+    public void doFilter_KeyReusedForAnotherRequest_Unprocessable() throws Exception {
+        when(filter.idempotencyService.execute(eq("/api/loans/ k1"), anyString(), any()))
+                .thenThrow(new IdempotencyService.IdempotencyMismatchException("k1"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(loan("12345678-9", new byte[]{1}), response, (req, res) -> fail("must not run"));
+
+        assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    public void doFilter_AnsweredResponseNoLongerKept_ConflictWithoutRetry() throws Exception {
+        when(filter.idempotencyService.execute(eq("/api/loans/ k1"), anyString(), any()))
+                .thenThrow(new IdempotencyService.ResponseUnavailableException("k1", 200));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(loan("12345678-9", new byte[]{1}), response, (req, res) -> fail("must not run"));
+
+        assertEquals(409, response.getStatus());
+        assertNull(response.getHeader("Retry-After"));
+    }
+}
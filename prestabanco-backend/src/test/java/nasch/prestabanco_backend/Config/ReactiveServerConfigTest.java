@@ -0,0 +1,34 @@
+package nasch.prestabanco_backend.Config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveServerConfigTest {
+
+    private static String uri(String path) {
+        return ReactiveServerConfig.ReactiveServer.uriTemplate(path);
+    }
+
+    @Test
+    public void uriTemplate_PathVariables_CollapsedToTheRoute() {
+        assertEquals("/api/reactive/loans/{id}", uri("/api/reactive/loans/42"));
+        assertEquals("/api/reactive/users/{id}", uri("/api/reactive/users/7"));
+        assertEquals("/api/reactive/loans/rut/{rut}", uri("/api/reactive/loans/rut/12.345.678-9"));
+        assertEquals("/api/reactive/users/rut/{rut}", uri("/api/reactive/users/rut/12345678-9"));
+    }
+
+    @Test
+    public void uriTemplate_FixedRoutes_KeptAndQueryDropped() {
+        assertEquals("/api/reactive/loans/", uri("/api/reactive/loans/"));
+        assertEquals("/api/reactive/users/", uri("/api/reactive/users/"));
+        assertEquals("/api/reactive/loans/search", uri("/api/reactive/loans/search?rut=1-9&limit=10"));
+    }
+
+    @Test
+    public void uriTemplate_UnknownPaths_ShareOneTag() {
+        assertEquals("UNKNOWN", uri("/api/reactive/loans/abc"));
+        assertEquals("UNKNOWN", uri("/api/reactive/loans/1/extra"));
+        assertEquals("UNKNOWN", uri("/favicon.ico"));
+    }
+}
@@ -0,0 +1,154 @@
+package nasch.prestabanco_backend.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private ReplicaRoutingDataSource.Replica replica1;
+    private ReplicaRoutingDataSource.Replica replica2;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        replica1 = new ReplicaRoutingDataSource.Replica("replica-0", mock(DataSource.class));
+        replica2 = new ReplicaRoutingDataSource.Replica("replica-1", mock(DataSource.class));
+        routingDataSource = new ReplicaRoutingDataSource(mock(DataSource.class), List.of(replica1, replica2), 5000);
+        long now = System.currentTimeMillis();
+        replica1.update(true, 0, now);
+        replica2.update(true, 0, now);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        ReadYourWritesContext.clear();
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ReadWriteTransaction_ReturnsPrimary() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+        assertTrue(ReadYourWritesContext.wrote());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ReadOnlyTransaction_ReturnsReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Object key = routingDataSource.determineCurrentLookupKey();
+        assertTrue(key.equals("replica-0") || key.equals("replica-1"));
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ReadOnly_RoundRobinsReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Object first = routingDataSource.determineCurrentLookupKey();
+        Object second = routingDataSource.determineCurrentLookupKey();
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void determineCurrentLookupKey_UnhealthyReplica_SkipsIt() {
+        replica1.update(false, Long.MAX_VALUE, System.currentTimeMillis());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica-1", routingDataSource.determineCurrentLookupKey());
+        assertEquals("replica-1", routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_AllReplicasLagging_FallsBackToPrimary() {
+        long now = System.currentTimeMillis();
+        replica1.update(true, 10000, now);
+        replica2.update(true, 6000, now);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_AfterWriteInSameRequest_ReturnsPrimary() {
+        ReadYourWritesContext.markWrite();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ReadAfterNotReplayed_ReturnsPrimary() {
+        ReadYourWritesContext.readAfter(System.currentTimeMillis() + 1000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_ReadAfterReplayed_ReturnsReplica() {
+        ReadYourWritesContext.readAfter(System.currentTimeMillis() - 60000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    private void commitWrite() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        routingDataSource.determineCurrentLookupKey();
+        assertTrue(ReadYourWritesContext.wrote());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void determineCurrentLookupKey_WriteCommittedOutsideRequest_ReadsGoBackToReplicas() {
+        commitWrite();
+
+        assertFalse(ReadYourWritesContext.wrote());
+        assertEquals(0, ReadYourWritesContext.readAfter());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void determineCurrentLookupKey_WriteCommittedInRequest_ReadsWaitForReplay() {
+        ReadYourWritesContext.beginRequest();
+        commitWrite();
+
+        assertFalse(ReadYourWritesContext.wrote());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+        long now = System.currentTimeMillis() + 1;
+        replica1.update(true, 0, now);
+        replica2.update(true, 0, now);
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void selectReplica_NoReplicas_ReturnsNull() {
+        ReplicaRoutingDataSource primaryOnly = new ReplicaRoutingDataSource(mock(DataSource.class), List.of(), 5000);
+        assertNull(primaryOnly.selectReplica(0));
+    }
+
+    @Test
+    public void destroy_ClosesReplicaPoolsButNotThePrimary() {
+        HikariDataSource primary = mock(HikariDataSource.class);
+        HikariDataSource pool = mock(HikariDataSource.class);
+        ReplicaRoutingDataSource withPool = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaRoutingDataSource.Replica("replica-0", pool)), 5000);
+
+        withPool.destroy();
+
+        verify(pool).close();
+        verify(primary, never()).close();
+    }
+}
@@ -0,0 +1,55 @@
+package nasch.prestabanco_backend.Config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application on a schema as Hibernate generated it before the migrations existed, so that it
+ * is baselined, migrated, and then checked against the entity mappings.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:postgresql://${DB_HOST}:5432/dbprestabanco?currentSchema=" + SchemaMigrationConfigTest.SCHEMA,
+        "spring.flyway.schemas=" + SchemaMigrationConfigTest.SCHEMA,
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "prestabanco.reactive.enabled=false"
+})
+class SchemaMigrationConfigTest {
+
+    static final String SCHEMA = "schema_migration_test";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void createBaselineSchema() throws Exception {
+        String url = "jdbc:postgresql://" + System.getenv().getOrDefault("DB_HOST", "localhost") + ":5432/dbprestabanco";
+        String baseline = new ClassPathResource("db/migration/V1__baseline.sql").getContentAsString(StandardCharsets.UTF_8);
+        try (Connection connection = DriverManager.getConnection(url, "postgres", "newpassword");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            statement.execute(baseline);
+        }
+    }
+
+    @Test
+    public void migrate_PreMigrationSchema_BaselinedAndValidAgainstTheEntities() {
+        // The context only starts if ddl-auto=validate found every mapped table and column.
+        assertEquals("<< Flyway Baseline >>", jdbcTemplate.queryForObject(
+                "SELECT description FROM flyway_schema_history WHERE version = '1'", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM flyway_schema_history WHERE version = '1.1' AND success", Integer.class));
+    }
+}
@@ -0,0 +1,88 @@
+package nasch.prestabanco_backend.Config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockPart;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadMetricsFilterTest {
+
+    private UploadMetricsFilter filter;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new UploadMetricsFilter();
+        filter.meterRegistry = meterRegistry;
+    }
+
+    private static MockHttpServletRequest upload() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans/");
+        request.setContentType("multipart/form-data; boundary=xyz");
+        request.setContent(new byte[1000]);
+        request.addPart(new MockPart("rut", "12345678-9".getBytes()));
+        request.addPart(new MockPart("document1", "a.pdf", new byte[300]));
+        request.addPart(new MockPart("document2", "b.pdf", new byte[200]));
+        return request;
+    }
+
+    private DistributionSummary summary(String name, String part) {
+        return meterRegistry.find(name).tag("part", part).summary();
+    }
+
+    @Test
+    public void multipartUpload_RecordsRequestAndDocumentSizesWithEndpointTags() throws Exception {
+        MockHttpServletRequest request = upload();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/loans/");
+            ((MockHttpServletResponse) res).setStatus(200);
+        });
+
+        DistributionSummary total = summary("prestabanco.upload.request.bytes", "all");
+        assertEquals(1000, total.totalAmount());
+        assertEquals("POST", total.getId().getTag("method"));
+        assertEquals("/api/loans/", total.getId().getTag("uri"));
+        assertEquals("SUCCESS", total.getId().getTag("outcome"));
+        assertEquals(300, summary("prestabanco.upload.document.bytes", "document1").totalAmount());
+        assertEquals(200, summary("prestabanco.upload.document.bytes", "document2").totalAmount());
+        assertNull(summary("prestabanco.upload.document.bytes", "rut"));
+    }
+
+    @Test
+    public void rejectedUpload_TaggedWithClientErrorOutcome() throws Exception {
+        filter.doFilter(upload(), new MockHttpServletResponse(), (req, res) -> ((MockHttpServletResponse) res).setStatus(413));
+
+        DistributionSummary total = summary("prestabanco.upload.request.bytes", "all");
+        assertEquals("CLIENT_ERROR", total.getId().getTag("outcome"));
+        assertEquals("UNKNOWN", total.getId().getTag("uri"));
+    }
+
+    @Test
+    public void failingHandler_StillRecordedAsServerError() {
+        assertThrows(ServletException.class, () -> filter.doFilter(upload(), new MockHttpServletResponse(), (req, res) -> {
+            throw new ServletException("boom");
+        }));
+
+        assertEquals("SERVER_ERROR", summary("prestabanco.upload.request.bytes", "all").getId().getTag("outcome"));
+    }
+
+    @Test
+    public void nonMultipartRequest_NotRecorded() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans/simulation");
+        request.setContentType("application/json");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> { });
+
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+}
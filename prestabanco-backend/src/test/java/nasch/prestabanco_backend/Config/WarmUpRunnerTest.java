@@ -0,0 +1,143 @@
+package nasch.prestabanco_backend.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.UserRepository;
+import nasch.prestabanco_backend.services.LoanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WarmUpRunnerTest {
+
+    @Mock
+    private LoanService loanService;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private FieldProjectionRepository fieldProjectionRepository;
+
+    @Mock
+    private DataSource primaryDataSource;
+
+    @Mock
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Connection connection;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WarmUpRunner runner;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(primaryDataSource.getConnection()).thenReturn(connection);
+        when(replicaRoutingDataSource.getReplicas()).thenReturn(List.of());
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        meterRegistry = new SimpleMeterRegistry();
+        runner = new WarmUpRunner();
+        runner.loanService = loanService;
+        runner.loanRepository = loanRepository;
+        runner.userRepository = userRepository;
+        runner.fieldProjectionRepository = fieldProjectionRepository;
+        runner.primaryDataSource = primaryDataSource;
+        runner.replicaRoutingDataSource = replicaRoutingDataSource;
+        runner.transactionManager = transactionManager;
+        runner.meterRegistry = meterRegistry;
+        runner.enabled = true;
+        runner.simulationIterations = 50;
+        runner.queryIterations = 3;
+        runner.connections = 4;
+        runner.timeout = Duration.ofSeconds(30);
+    }
+
+    private long timings(String phase, String outcome) {
+        return meterRegistry.get("prestabanco.warmup.duration").tags("phase", phase, "outcome", outcome).timer().count();
+    }
+
+    @Test
+    public void run_Enabled_RunsEveryPhase() throws Exception {
+        runner.run(null);
+
+        verify(primaryDataSource, times(4)).getConnection();
+        verify(connection, times(4)).close();
+        verify(loanService, times(50)).mortgageCreditSimulation(anyLong(), anyFloat(), anyInt());
+        verify(loanService, times(50)).totalCostCalculation(anyLong(), anyFloat(), anyInt(), anyFloat(), anyFloat(), any(int[].class));
+        verify(loanRepository, times(3)).findCollectionStamp();
+        verify(userRepository, times(3)).findById(-1L);
+        verify(transactionManager, times(3)).commit(any());
+        assertEquals(1, timings("pool", "completed"));
+        assertEquals(1, timings("simulation", "completed"));
+        assertEquals(1, timings("queries", "completed"));
+        assertEquals(1, timings("total", "completed"));
+    }
+
+    @Test
+    public void run_Disabled_DoesNothing() throws Exception {
+        runner.enabled = false;
+
+        runner.run(null);
+
+        verifyNoInteractions(primaryDataSource, loanService, loanRepository, transactionManager);
+        assertTrue(meterRegistry.find("prestabanco.warmup.duration").timers().isEmpty());
+    }
+
+    @Test
+    public void run_PoolUnavailable_ContinuesWithTheOtherPhases() throws Exception {
+        when(primaryDataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        runner.run(null);
+
+        assertEquals(1, timings("pool", "failed"));
+        assertEquals(1, timings("queries", "completed"));
+        verify(loanRepository, times(3)).findCollectionStamp();
+    }
+
+    @Test
+    public void run_TimeoutReached_SkipsRemainingPhases() throws Exception {
+        runner.timeout = Duration.ZERO;
+
+        runner.run(null);
+
+        assertEquals(1, timings("pool", "skipped"));
+        assertEquals(1, timings("queries", "skipped"));
+        verifyNoInteractions(loanService, loanRepository);
+    }
+
+    @Test
+    public void fillPool_HikariPool_CappedAtMaximumPoolSize() throws Exception {
+        HikariDataSource hikari = mock(HikariDataSource.class);
+        when(hikari.getMaximumPoolSize()).thenReturn(2);
+        when(hikari.getConnection()).thenReturn(connection);
+
+        runner.fillPool(hikari);
+
+        verify(hikari, times(2)).getConnection();
+        verify(connection, times(2)).close();
+    }
+}
@@ -0,0 +1,71 @@
+package nasch.prestabanco_backend.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of a /api/loans/ listing per response format, using the same mapper
+ * configuration as the HTTP message converters in WebConfig. Listings carry no documents, which
+ * are served as raw bytes by their own endpoint whatever the format, so only the scalar fields are measured.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SerializationFormatBenchmark
+ * Payload sizes per format are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationFormatBenchmark {
+
+    @Param({"100"})
+    public int loans;
+
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+    private List<LoanEntity> listing;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = new Jackson2ObjectMapperBuilder().build();
+        cbor = new Jackson2ObjectMapperBuilder().factory(new CBORFactory()).build();
+        smile = new Jackson2ObjectMapperBuilder()
+                .factory(SmileFactory.builder().disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT).build())
+                .build();
+
+        listing = new ArrayList<>(loans);
+        for (long i = 0; i < loans; i++) {
+            listing.add(new LoanEntity(i, "12345678-9", "Primera Vivienda", 100000000, 80000000, 30, 4.5f,
+                    2500000, 5, 35, "En Evaluación", null, null, null, null));
+        }
+
+        System.out.printf("%nPayload bytes for %d loans: json=%d cbor=%d smile=%d%n",
+                loans, json.writeValueAsBytes(listing).length,
+                cbor.writeValueAsBytes(listing).length, smile.writeValueAsBytes(listing).length);
+    }
+
+    @Benchmark
+    public byte[] json() throws Exception {
+        return json.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws Exception {
+        return cbor.writeValueAsBytes(listing);
+    }
+
+    @Benchmark
+    public byte[] smile() throws Exception {
+        return smile.writeValueAsBytes(listing);
+    }
+}
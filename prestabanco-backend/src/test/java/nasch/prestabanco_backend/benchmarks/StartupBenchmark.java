@@ -0,0 +1,101 @@
+package nasch.prestabanco_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching the packaged backend until it answers its first HTTP request, for the plain jar,
+ * the jar with the AOT-generated initializers, and the AOT jar with an AppCDS archive as built by the Dockerfile.
+ * Needs a jar built with -Pfaststart and a reachable database (DB_HOST).
+ * Run with: mvn -Pfaststart,benchmark package exec:exec -DskipTests -Dbenchmark=StartupBenchmark
+ * The AppCDS archive is trained once per fork into a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+    private static final int PORT = 18412;
+    private static final int REACTIVE_PORT = 18413;
+
+    @Param({"jar", "aot", "aot-cds"})
+    public String mode;
+
+    @Param({"target/backend.jar"})
+    public String jar;
+
+    private Path workDir;
+    private Path extractedJar;
+    private Path archive;
+    private HttpClient client;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        workDir = Files.createTempDirectory("startup-benchmark");
+        if (mode.equals("aot-cds")) {
+            run(List.of("java", "-Djarmode=tools", "-jar", new File(jar).getAbsolutePath(),
+                    "extract", "--destination", "app"));
+            extractedJar = workDir.resolve("app").resolve(new File(jar).getName());
+            archive = workDir.resolve("app.jsa");
+            run(List.of("java", "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh",
+                    "-Dspring.aot.enabled=true", "-Dprestabanco.flyway.migrate-on-start=false",
+                    "-Dspring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false",
+                    "-Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+                    "-jar", extractedJar.toString()));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws Exception {
+        if (process == null) return;
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+        process = null;
+    }
+
+    @Benchmark
+    public int startToFirstResponse() throws Exception {
+        List<String> command = new ArrayList<>(List.of("java"));
+        switch (mode) {
+            case "aot" -> command.add("-Dspring.aot.enabled=true");
+            case "aot-cds" -> command.addAll(List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"));
+        }
+        command.addAll(List.of("-jar", mode.equals("aot-cds") ? extractedJar.toString() : new File(jar).getAbsolutePath(),
+                "--server.port=" + PORT, "--prestabanco.reactive.port=" + REACTIVE_PORT));
+        process = new ProcessBuilder(command).directory(workDir.toFile())
+                .redirectErrorStream(true).redirectOutput(workDir.resolve(mode + ".log").toFile()).start();
+
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1)).build();
+        while (process.isAlive()) {
+            try {
+                HttpResponse<Void> response = client.send(health, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) return response.statusCode();
+            } catch (java.io.IOException notListeningYet) {
+                Thread.sleep(20);
+            }
+        }
+        throw new IllegalStateException("Backend exited with " + process.exitValue() + ", see " + workDir.resolve(mode + ".log"));
+    }
+
+    private void run(List<String> command) throws Exception {
+        Process step = new ProcessBuilder(command).directory(workDir.toFile())
+                .redirectErrorStream(true).redirectOutput(workDir.resolve("setup.log").toFile()).start();
+        if (step.waitFor() != 0) throw new IllegalStateException("Failed: " + command + ", see " + workDir.resolve("setup.log"));
+    }
+}
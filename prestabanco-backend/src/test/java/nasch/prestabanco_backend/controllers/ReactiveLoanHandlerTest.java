@@ -0,0 +1,92 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.Config.ReactiveServerConfig;
+import nasch.prestabanco_backend.entities.LoanReadEntity;
+import nasch.prestabanco_backend.services.ReactiveLoanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ReactiveLoanHandlerTest {
+
+    @Mock
+    private ReactiveLoanService reactiveLoanService;
+
+    @InjectMocks
+    private ReactiveLoanHandler loanHandler;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        client = WebTestClient.bindToRouterFunction(new ReactiveServerConfig().reactiveRoutes(loanHandler, new ReactiveUserHandler()))
+                .build();
+    }
+
+    private static LoanReadEntity loan(long id) {
+        return new LoanReadEntity(id, "12345678-9", "Primera Vivienda", 100000000, 80000000, 20, 4.5f, 1500000, 3, 35,
+                "En Evaluación", null, null, null, null, null);
+    }
+
+    @Test
+    public void getLoanId_ExistingLoan_ReturnsIt() {
+        when(reactiveLoanService.getById(5L)).thenReturn(Mono.just(loan(5L)));
+
+        client.get().uri("/api/reactive/loans/5").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(5).jsonPath("$.state").isEqualTo("En Evaluación");
+    }
+
+    @Test
+    public void getLoanId_MissingLoan_ReturnsNotFound() {
+        when(reactiveLoanService.getById(9L)).thenReturn(Mono.empty());
+
+        client.get().uri("/api/reactive/loans/9").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getLoanId_NotANumber_ReturnsBadRequest() {
+        client.get().uri("/api/reactive/loans/abc").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/reactive/loans/99999999999999999999").exchange().expectStatus().isBadRequest();
+
+        verifyNoInteractions(reactiveLoanService);
+    }
+
+    @Test
+    public void searchLoans_PassesFiltersAndLimit() {
+        when(reactiveLoanService.search("12345678-9", null, "En Evaluación", 2)).thenReturn(Flux.just(loan(1L), loan(2L)));
+
+        client.get().uri("/api/reactive/loans/search?rut=12345678-9&state=En Evaluación&limit=2").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(LoanReadEntity.class).hasSize(2);
+    }
+
+    @Test
+    public void searchLoans_InvalidLimit_ReturnsBadRequest() {
+        client.get().uri("/api/reactive/loans/search?limit=ten").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/reactive/loans/search?limit=-1").exchange().expectStatus().isBadRequest();
+
+        verify(reactiveLoanService, never()).search(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void getLoanRut_StreamsTheApplicantsLoans() {
+        when(reactiveLoanService.getByRut("12345678-9")).thenReturn(Flux.just(loan(1L), loan(3L)));
+
+        client.get().uri("/api/reactive/loans/rut/12345678-9").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LoanReadEntity.class).hasSize(2);
+    }
+}
@@ -0,0 +1,55 @@
+package nasch.prestabanco_backend.controllers;
+
+import nasch.prestabanco_backend.Config.ReactiveServerConfig;
+import nasch.prestabanco_backend.entities.UserReadEntity;
+import nasch.prestabanco_backend.services.ReactiveUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.*;
+
+class ReactiveUserHandlerTest {
+
+    @Mock
+    private ReactiveUserService reactiveUserService;
+
+    @InjectMocks
+    private ReactiveUserHandler userHandler;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        client = WebTestClient.bindToRouterFunction(new ReactiveServerConfig().reactiveRoutes(new ReactiveLoanHandler(), userHandler))
+                .build();
+    }
+
+    @Test
+    public void getUserId_ExistingUser_ReturnsThem() {
+        when(reactiveUserService.getUserById(1L)).thenReturn(Mono.just(new UserReadEntity(1L, "12345678-9", "Ana", "ana@mail.cl")));
+
+        client.get().uri("/api/reactive/users/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Ana");
+    }
+
+    @Test
+    public void getUserId_NotANumber_ReturnsBadRequest() {
+        client.get().uri("/api/reactive/users/1.5").exchange().expectStatus().isBadRequest();
+
+        verifyNoInteractions(reactiveUserService);
+    }
+
+    @Test
+    public void getUserRut_MissingUser_ReturnsNotFound() {
+        when(reactiveUserService.getUserByRut("11111111-1")).thenReturn(Mono.empty());
+
+        client.get().uri("/api/reactive/users/rut/11111111-1").exchange().expectStatus().isNotFound();
+    }
+}
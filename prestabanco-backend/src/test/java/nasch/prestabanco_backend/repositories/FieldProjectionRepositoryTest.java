@@ -0,0 +1,41 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.UserEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FieldProjectionRepositoryTest {
+
+    @Autowired
+    private FieldProjectionRepository fieldProjectionRepository;
+
+    @Test
+    public void getFieldNames_Loan_LeavesOutTheDocuments() {
+        Set<String> names = fieldProjectionRepository.getFieldNames(LoanEntity.class);
+
+        assertTrue(names.containsAll(Set.of("id", "rut", "state", "amount")));
+        for (String document : Set.of("document1", "document2", "document3", "document4")) assertFalse(names.contains(document));
+    }
+
+    @Test
+    public void getFieldNames_User_LeavesOutTheDocument() {
+        Set<String> names = fieldProjectionRepository.getFieldNames(UserEntity.class);
+
+        assertTrue(names.containsAll(Set.of("id", "rut", "name")));
+        assertFalse(names.contains("document"));
+    }
+
+    @Test
+    public void parseFields_Document_RejectedAsUnknown() {
+        Set<String> names = fieldProjectionRepository.getFieldNames(LoanEntity.class);
+
+        assertThrows(IllegalArgumentException.class, () -> FieldProjectionRepository.parseFields("id,document1", names));
+    }
+}
@@ -0,0 +1,45 @@
+package nasch.prestabanco_backend.repositories;
+
+import nasch.prestabanco_backend.entities.UserEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserRepositoryTest {
+
+    private static final String RUT = "99.999.999-K";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAllById(created);
+    }
+
+    private void save(String name) {
+        created.add(userRepository.save(new UserEntity(null, RUT, name, "user@mail.cl", null)).getId());
+    }
+
+    @Test
+    public void findNameByRut_UsersSharingTheRut_ReturnsOneName() {
+        save("Ana");
+        save("Beatriz");
+
+        assertEquals("Beatriz", userRepository.findNameByRut(RUT));
+    }
+
+    @Test
+    public void findNameByRut_UnknownRut_ReturnsNull() {
+        assertNull(userRepository.findNameByRut("00.000.000-0"));
+    }
+}
@@ -0,0 +1,131 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.dto.AmortizationRow;
+import nasch.prestabanco_backend.dto.RefinancingRequest;
+import nasch.prestabanco_backend.dto.RefinancingResult;
+import nasch.prestabanco_backend.dto.ScheduleEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmortizationEngineTest {
+
+    private AmortizationEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new AmortizationEngine();
+        engine.cacheMaxMemory = DataSize.ofMegabytes(1);
+        engine.init();
+    }
+
+    private static ScheduleEvent prepayment(int month, double amount, ScheduleEvent.Recalculation recalculate) {
+        return new ScheduleEvent(month, ScheduleEvent.Type.PREPAYMENT, amount, null, null, recalculate);
+    }
+
+    private RefinancingResult simulate(ScheduleEvent... events) {
+        return engine.simulate(new RefinancingRequest(100000000, 4.5f, 30, List.of(events)));
+    }
+
+    @Test
+    public void simulate_NoEvents_MatchesTheFixedPaymentFormula() {
+        RefinancingResult result = simulate();
+
+        double payment = new LoanService().mortgageCreditSimulation(100000000, 4.5f, 30);
+        assertEquals(360, result.months());
+        assertEquals(payment, result.schedule().get(0).payment(), payment * 1e-5);
+        assertEquals(result.schedule().get(0).payment(), result.schedule().get(359).payment(), 0.01);
+        assertEquals(0, result.schedule().get(359).balance(), 0.01);
+        assertEquals(result.schedule().get(0).payment() * 360 - 100000000, result.total_interest(), 0.01);
+        assertEquals(0, result.interest_saved());
+    }
+
+    @Test
+    public void simulate_PrepaymentReducingTerm_SavesInterestAndMonths() {
+        RefinancingResult baseline = simulate();
+        RefinancingResult result = simulate(prepayment(61, 20000000, null));
+
+        assertTrue(result.interest_saved() > 0);
+        assertTrue(result.months_saved() > 0);
+        assertEquals(baseline.schedule().subList(0, 60), result.schedule().subList(0, 60));
+        assertEquals(20000000, result.schedule().get(60).prepayment());
+        assertEquals(baseline.schedule().get(0).payment(), result.schedule().get(60).payment(), 1e-6);
+        assertEquals(0, result.schedule().get(result.months() - 1).balance(), 0.01);
+    }
+
+    @Test
+    public void simulate_PrepaymentReducingPayment_KeepsTheTerm() {
+        RefinancingResult result = simulate(prepayment(61, 20000000, ScheduleEvent.Recalculation.REDUCE_PAYMENT));
+
+        assertEquals(360, result.months());
+        assertTrue(result.schedule().get(60).payment() < result.schedule().get(59).payment());
+        assertTrue(result.interest_saved() > 0);
+        assertEquals(0, result.schedule().get(359).balance(), 0.01);
+    }
+
+    @Test
+    public void simulate_LowerRate_SavesInterestOverTheSameTerm() {
+        RefinancingResult result = simulate(new ScheduleEvent(61, ScheduleEvent.Type.RATE_CHANGE, null, 3.5f, null, null));
+
+        assertEquals(360, result.months());
+        assertEquals(3.5f, result.schedule().get(60).interest_rate());
+        assertTrue(result.interest_saved() > 0);
+        assertEquals(0, result.schedule().get(359).balance(), 0.01);
+    }
+
+    @Test
+    public void simulate_LongerTerm_CostsMoreInterest() {
+        RefinancingResult result = simulate(new ScheduleEvent(121, ScheduleEvent.Type.TERM_CHANGE, null, null, 35, null));
+
+        assertEquals(420, result.months());
+        assertEquals(-60, result.months_saved());
+        assertTrue(result.interest_saved() < 0);
+    }
+
+    @Test
+    public void simulate_PrepaymentOfWholeBalance_EndsTheLoan() {
+        RefinancingResult result = simulate(prepayment(13, 1e12, null), prepayment(200, 1000, null));
+
+        assertEquals(13, result.months());
+        AmortizationRow last = result.schedule().get(12);
+        assertEquals(result.schedule().get(11).balance(), last.prepayment());
+        assertEquals(0, last.payment());
+    }
+
+    @Test
+    public void simulate_EventsInAnyOrder_AppliedByMonth() {
+        ScheduleEvent rate = new ScheduleEvent(25, ScheduleEvent.Type.RATE_CHANGE, null, 3.5f, null, null);
+        ScheduleEvent lump = prepayment(61, 5000000, null);
+
+        assertEquals(simulate(rate, lump), simulate(lump, rate));
+    }
+
+    @Test
+    public void simulate_InvalidEvent_ThrowsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> simulate(new ScheduleEvent(10, ScheduleEvent.Type.PREPAYMENT, -5.0, null, null, null)));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+        assertThrows(ResponseStatusException.class,
+                () -> simulate(new ScheduleEvent(200, ScheduleEvent.Type.TERM_CHANGE, null, null, 10, null)));
+    }
+
+    @Test
+    public void simulate_ManyLoans_CacheBoundedByScheduleMemory() {
+        engine.cacheMaxMemory = DataSize.ofKilobytes(100); // About three 30-year schedules.
+        engine.init();
+
+        for (int i = 1; i <= 20; i++) engine.simulate(new RefinancingRequest(100000000 + i, 4.5f, 30, List.of()));
+        engine.baselines.cleanUp();
+
+        long weight = engine.baselines.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weight <= DataSize.ofKilobytes(100).toBytes(), "cached " + weight + " bytes");
+        assertTrue(engine.baselines.estimatedSize() < 20);
+    }
+}
@@ -0,0 +1,172 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.dto.AuditRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private AuditLog auditLog;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        auditLog = open(DataSize.ofKilobytes(64));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        auditLog.close();
+    }
+
+    private AuditLog open(DataSize segmentSize) throws IOException {
+        AuditLog log = new AuditLog();
+        log.meterRegistry = new SimpleMeterRegistry();
+        log.directory = directory;
+        log.segmentSize = segmentSize;
+        log.syncInterval = Duration.ofMillis(10);
+        log.init();
+        return log;
+    }
+
+    private List<AuditRecord> all(AuditLog log) {
+        return log.query(0, null, null, record -> true, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void append_ThenQuery_ReturnsMatchingRecords() {
+        assertEquals(1L, auditLog.append("loan", "CREATE", 1L, 0, "12345678-9", "En Revisión Inicial"));
+        assertEquals(2L, auditLog.append("user", "CREATE", 7L, 0, "98765432-1", null));
+        assertEquals(3L, auditLog.append("loan", "UPDATE", 1L, 1, "12345678-9", "Aprobada"));
+
+        List<AuditRecord> records = auditLog.query(0, null, null, AuditLog.matching("12345678-9", null, null), 100);
+
+        assertEquals(List.of(1L, 3L), records.stream().map(AuditRecord::sequence).toList());
+        assertEquals("Aprobada", records.get(1).detail());
+        assertEquals(1L, records.get(1).version());
+        assertNull(all(auditLog).get(1).detail());
+    }
+
+    @Test
+    public void query_AfterAndTimeRange_BoundsRecords() {
+        for (int i = 0; i < 5; i++) auditLog.append("loan", "UPDATE", 1L, i, "12345678-9", null);
+
+        assertEquals(List.of(4L, 5L), auditLog.query(3, null, null, record -> true, 100).stream().map(AuditRecord::sequence).toList());
+        assertEquals(2, auditLog.query(0, null, null, record -> true, 2).size());
+        assertTrue(auditLog.query(0, Instant.now().plusSeconds(60), null, record -> true, 100).isEmpty());
+        assertTrue(auditLog.query(0, null, Instant.now().minusSeconds(60), record -> true, 100).isEmpty());
+    }
+
+    @Test
+    public void append_ConcurrentWriters_TimestampsFollowTheSequence() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 8; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) auditLog.append("loan", "UPDATE", 1L, i, "12345678-9", null);
+                }));
+            }
+            for (Future<?> writer : writers) writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<AuditRecord> records = all(auditLog);
+        assertEquals(1600, records.size());
+        for (int i = 1; i < records.size(); i++) {
+            assertFalse(records.get(i).timestamp().isBefore(records.get(i - 1).timestamp()), "record " + records.get(i).sequence());
+        }
+    }
+
+    @Test
+    public void init_ExistingLog_ContinuesSequence() throws IOException {
+        auditLog.append("loan", "CREATE", 1L, 0, "12345678-9", null);
+        auditLog.append("loan", "UPDATE", 1L, 1, "12345678-9", null);
+        auditLog.close();
+
+        auditLog = open(DataSize.ofKilobytes(64));
+
+        assertEquals(3L, auditLog.append("loan", "DELETE", 1L, 1, "12345678-9", null));
+        assertEquals(3, all(auditLog).size());
+    }
+
+    @Test
+    public void append_SegmentFull_RollsToNewSegment() throws IOException {
+        auditLog.close();
+        // The segment already on disk keeps its size; start a fresh log.
+        directory = directory.resolve("small");
+        auditLog = open(DataSize.ofBytes(256));
+
+        for (int i = 1; i <= 20; i++) auditLog.append("loan", "UPDATE", (long) i, i, "12345678-9", "En Evaluación");
+
+        assertTrue(AuditLog.segments(directory).size() > 1);
+        assertEquals(20, all(auditLog).size());
+        assertEquals(List.of(19L, 20L), auditLog.query(18, null, null, record -> true, 100).stream().map(AuditRecord::sequence).toList());
+        assertEquals(List.of(12L), auditLog.query(0, null, null, AuditLog.matching(null, "loan", 12L), 100).stream().map(AuditRecord::sequence).toList());
+    }
+
+    @Test
+    public void init_TornLastRecord_IsDiscarded() throws IOException {
+        auditLog.append("loan", "CREATE", 1L, 0, "12345678-9", null);
+        auditLog.append("loan", "UPDATE", 1L, 1, "12345678-9", null);
+        auditLog.close();
+
+        // Corrupt the body of the second record, as a crash in the middle of writing it would.
+        try (FileChannel channel = FileChannel.open(AuditLog.segments(directory).get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 0);
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 8 + length.flip().getInt() + 12);
+        }
+        auditLog = open(DataSize.ofKilobytes(64));
+
+        assertEquals(1, all(auditLog).size());
+        assertEquals(2L, auditLog.append("loan", "UPDATE", 1L, 1, "12345678-9", null));
+        assertEquals(2, all(auditLog).size());
+    }
+
+    @Test
+    public void recordAfterCommit_InTransaction_WaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditLog.recordAfterCommit("user", "UPDATE", 7L, 2, "98765432-1", null);
+            assertTrue(all(auditLog).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, all(auditLog).size());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void recordAfterCommit_NoTransaction_AppendsImmediately() {
+        auditLog.recordAfterCommit("user", "DELETE", 7L, 2, "98765432-1", null);
+
+        assertEquals("DELETE", all(auditLog).get(0).action());
+    }
+}
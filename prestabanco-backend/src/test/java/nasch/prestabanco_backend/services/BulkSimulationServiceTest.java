@@ -0,0 +1,107 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkSimulationServiceTest {
+
+    private BulkSimulationService service;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new BulkSimulationService();
+        service.objectMapper = new ObjectMapper();
+        service.meterRegistry = meterRegistry;
+        service.workers = 4;
+        service.chunkSize = 3;
+        service.maxConcurrentJobs = 1;
+        service.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private String[] run(String input, BulkSimulationService.Format format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.simulate(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output, format);
+        return output.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    public void simulate_Csv_MatchesLoanServiceFormulas() throws Exception {
+        String[] lines = run("amount,interest_rate,term,desgravament,admin_com_por,secure\n"
+                + "2000000,5.0,30\n"
+                + "2000000,5.0,30,0.01,0.005,20000,5000\n", BulkSimulationService.Format.CSV);
+
+        LoanService loanService = new LoanService();
+        assertEquals(BulkSimulationService.CSV_HEADER, lines[0]);
+        assertEquals("2," + loanService.mortgageCreditSimulation(2000000, 5.0f, 30) + ",,", lines[1]);
+        assertEquals("3," + loanService.mortgageCreditSimulation(2000000, 5.0f, 30) + ","
+                + loanService.totalCostCalculation(2000000, 5.0f, 30, 0.01f, 0.005f, 20000, 5000) + ",", lines[2]);
+    }
+
+    @Test
+    public void simulate_ManyChunks_KeepsInputOrder() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) input.append(1000000 + i).append(",4.5,").append(1 + i % 30).append('\n');
+
+        String[] lines = run(input.toString(), BulkSimulationService.Format.CSV);
+
+        assertEquals(1001, lines.length);
+        for (int i = 1; i <= 1000; i++) assertTrue(lines[i].startsWith(i + ","), lines[i]);
+        assertEquals(1000.0, meterRegistry.get("prestabanco.bulk.rows").tag("outcome", "simulated").counter().count());
+    }
+
+    @Test
+    public void simulate_InvalidRows_ReportedWithoutStoppingTheJob() throws Exception {
+        String[] lines = run("2000000,abc,30\n\n2000000,5.0,0\n2000000,5.0,30\n", BulkSimulationService.Format.CSV);
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].startsWith("1,,,\"Invalid number"), lines[1]);
+        assertEquals("3,,,\"term must be positive\"", lines[2]);
+        assertTrue(lines[3].startsWith("4,"));
+        assertEquals(2.0, meterRegistry.get("prestabanco.bulk.rows").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    public void simulate_Ndjson_WritesOneObjectPerLine() throws Exception {
+        String[] lines = run("{\"amount\":2000000,\"interest_rate\":5.0,\"term\":30,\"desgravament\":0.01,\"admin_com_por\":0.005}\n"
+                + "{\"amount\":\n", BulkSimulationService.Format.NDJSON);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(1, first.get("line").asInt());
+        assertEquals(10736.38, first.get("monthly_payment").asDouble(), 0.01);
+        assertEquals(40736.37, first.get("total_cost").asDouble(), 0.01);
+        JsonNode second = mapper.readTree(lines[1]);
+        assertEquals(2, second.get("line").asInt());
+        assertTrue(second.get("monthly_payment").isNull());
+        assertFalse(second.get("error").asText().isEmpty());
+    }
+
+    @Test
+    public void simulate_TooManyJobs_ThrowsTooManyRequests() {
+        service.maxConcurrentJobs = 0;
+        service.init();
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> run("2000000,5.0,30\n", BulkSimulationService.Format.CSV));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+    }
+}
@@ -0,0 +1,253 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.dto.UploadStatus;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChunkedUploadServiceTest {
+
+    @Mock
+    private LoanDocumentStore loanDocumentStore;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @TempDir
+    Path directory;
+
+    private ChunkedUploadService chunkedUploadService;
+
+    private final byte[] document = new byte[200_000];
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        chunkedUploadService = newService();
+        for (int i = 0; i < document.length; i++) document[i] = (byte) (i * 31);
+        when(loanRepository.existsById(1L)).thenReturn(true);
+    }
+
+    private ChunkedUploadService newService() throws IOException {
+        ChunkedUploadService service = new ChunkedUploadService();
+        service.loanDocumentStore = loanDocumentStore;
+        service.loanRepository = loanRepository;
+        service.directory = directory;
+        service.maxDocumentSize = DataSize.ofMegabytes(1);
+        service.sessionTtl = Duration.ofHours(1);
+        service.init();
+        return service;
+    }
+
+    private static String checksum(byte[] bytes) throws Exception {
+        return "sha256 " + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private UploadStatus append(String uploadId, int from, int to) throws Exception {
+        byte[] chunk = Arrays.copyOfRange(document, from, to);
+        return chunkedUploadService.appendChunk(uploadId, from, new ByteArrayInputStream(chunk), checksum(chunk));
+    }
+
+    @Test
+    public void complete_ChunksInOrder_AttachesWholeDocument() throws Exception {
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(document));
+        UploadStatus created = chunkedUploadService.create(1L, 2, document.length, sha256);
+        append(created.uploadId(), 0, 70_000);
+        append(created.uploadId(), 70_000, 140_000);
+        assertEquals(document.length, append(created.uploadId(), 140_000, document.length).offset());
+
+        when(loanDocumentStore.attach(eq(1L), eq(2), any())).thenAnswer(invocation -> {
+            assertArrayEquals(document, Files.readAllBytes(invocation.getArgument(2)));
+            return true;
+        });
+        UploadStatus completed = chunkedUploadService.complete(created.uploadId());
+
+        assertTrue(completed.isComplete());
+        verify(loanDocumentStore).attach(eq(1L), eq(2), any());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void appendChunk_WrongOffset_ConflictsAndKeepsOffset() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        append(created.uploadId(), 0, 1_000);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> append(created.uploadId(), 2_000, 3_000));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertEquals(1_000, chunkedUploadService.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void appendChunk_ChecksumMismatch_DiscardsChunk() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        byte[] chunk = Arrays.copyOfRange(document, 0, 1_000);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.appendChunk(created.uploadId(), 0, new ByteArrayInputStream(chunk), checksum(new byte[]{1})));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatusCode());
+        assertEquals(0, chunkedUploadService.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void appendChunk_ConnectionDropped_KeepsReceivedBytesWithoutChecksum() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        InputStream dropping = new InputStream() {
+            private int sent;
+
+            @Override
+            public int read() throws IOException {
+                if (sent == 5_000) throw new IOException("connection reset");
+                return document[sent++] & 0xFF;
+            }
+        };
+
+        assertThrows(ResponseStatusException.class, () -> chunkedUploadService.appendChunk(created.uploadId(), 0, dropping, null));
+        assertEquals(5_000, chunkedUploadService.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void appendChunk_SlowClient_DoesNotBlockStatusOrAbort() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<UploadStatus> chunk = executor.submit(() -> chunkedUploadService.appendChunk(created.uploadId(), 0, slow, null));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals(0, chunkedUploadService.status(created.uploadId()).offset());
+                ResponseStatusException busy = assertThrows(ResponseStatusException.class,
+                        () -> chunkedUploadService.appendChunk(created.uploadId(), 0, new ByteArrayInputStream(new byte[1]), null));
+                assertEquals(HttpStatus.CONFLICT, busy.getStatusCode());
+                chunkedUploadService.abort(created.uploadId());
+            });
+            release.countDown();
+
+            ExecutionException aborted = assertThrows(ExecutionException.class, () -> chunk.get(5, TimeUnit.SECONDS));
+            assertEquals(HttpStatus.NOT_FOUND, ((ResponseStatusException) aborted.getCause()).getStatusCode());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void appendChunk_ClientStreamFails_BadRequest() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.appendChunk(created.uploadId(), 0, failing, null));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    public void appendChunk_LocalWriteFails_ServerErrorAndOffsetKept() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        Path part = directory.resolve(created.uploadId() + ".part");
+        Files.delete(part);
+        Files.createDirectory(part);
+
+        assertThrows(UncheckedIOException.class, () -> append(created.uploadId(), 0, 1_000));
+        assertEquals(0, chunkedUploadService.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void appendChunk_PastDeclaredLength_Rejected() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, 10, null);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.appendChunk(created.uploadId(), 0, new ByteArrayInputStream(new byte[11]), null));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exception.getStatusCode());
+        assertEquals(0, chunkedUploadService.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void complete_Incomplete_Conflicts() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, null);
+        append(created.uploadId(), 0, 1_000);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.complete(created.uploadId()));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verifyNoInteractions(loanDocumentStore);
+    }
+
+    @Test
+    public void complete_DocumentChecksumMismatch_RestartsUpload() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 1, document.length, "00".repeat(32));
+        append(created.uploadId(), 0, document.length);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.complete(created.uploadId()));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatusCode());
+        assertEquals(0, chunkedUploadService.status(created.uploadId()).offset());
+        verifyNoInteractions(loanDocumentStore);
+    }
+
+    @Test
+    public void init_AfterRestart_ResumesFromRecordedOffset() throws Exception {
+        UploadStatus created = chunkedUploadService.create(1L, 3, document.length, null);
+        append(created.uploadId(), 0, 50_000);
+
+        ChunkedUploadService restarted = newService();
+        assertEquals(50_000, restarted.status(created.uploadId()).offset());
+    }
+
+    @Test
+    public void create_UnknownLoan_NotFound() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.create(99L, 1, 10, null));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void create_InvalidSlot_BadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> chunkedUploadService.create(1L, 5, 10, null));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+}
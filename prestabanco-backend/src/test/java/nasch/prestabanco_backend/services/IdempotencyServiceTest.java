@@ -0,0 +1,262 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.entities.IdempotencyKeyEntity;
+import nasch.prestabanco_backend.repositories.IdempotencyKeyRepository;
+import nasch.prestabanco_backend.services.IdempotencyService.Response;
+import nasch.prestabanco_backend.services.IdempotencyService.StoredResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final String HASH = "a1";
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+
+    // The idempotency_key table, shared by the instances of a test.
+    private final Map<String, IdempotencyKeyEntity> claims = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = open();
+    }
+
+    private IdempotencyService open() throws Exception {
+        IdempotencyService idempotencyService = new IdempotencyService();
+        idempotencyService.idempotencyKeyRepository = keyRepository();
+        idempotencyService.meterRegistry = meterRegistry;
+        idempotencyService.ttl = Duration.ofMinutes(5);
+        idempotencyService.maxMemory = DataSize.ofMegabytes(1);
+        idempotencyService.memoryThreshold = DataSize.ofBytes(16);
+        idempotencyService.maxDisk = DataSize.ofMegabytes(1);
+        idempotencyService.directory = directory;
+        idempotencyService.lockTimeout = Duration.ofSeconds(5);
+        idempotencyService.abandonAfter = Duration.ofMinutes(5);
+        idempotencyService.init();
+        return idempotencyService;
+    }
+
+    private IdempotencyKeyRepository keyRepository() {
+        IdempotencyKeyRepository repository = mock(IdempotencyKeyRepository.class);
+        when(repository.claim(anyString(), anyString(), any(), any(), any())).thenAnswer(invocation ->
+                claims.putIfAbsent(invocation.getArgument(0), new IdempotencyKeyEntity(invocation.getArgument(0),
+                        invocation.getArgument(1), null, invocation.getArgument(2))) == null ? 1 : 0);
+        when(repository.complete(anyString(), anyString(), anyInt())).thenAnswer(invocation -> {
+            IdempotencyKeyEntity claim = claims.get(invocation.<String>getArgument(0));
+            claim.setStatus(invocation.getArgument(2));
+            return 1;
+        });
+        when(repository.release(anyString(), anyString())).thenAnswer(invocation ->
+                claims.remove(invocation.<String>getArgument(0)) != null ? 1 : 0);
+        when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(claims.get(invocation.<String>getArgument(0))));
+        return repository;
+    }
+
+    private static Response ok(String body) {
+        return new Response(200, Map.of("Content-Type", List.of("application/json")), body.getBytes());
+    }
+
+    private static String body(StoredResponse stored) throws Exception {
+        try (InputStream in = stored.openBody()) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("prestabanco.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    public void execute_FirstRequest_RunsAction() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        assertNull(idempotencyService.execute("k1", HASH, () -> {
+            runs.incrementAndGet();
+            return ok("{\"id\":1}");
+        }));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void execute_Duplicate_ReplaysStoredResponse() throws Exception {
+        idempotencyService.execute("k1", HASH, () -> ok("{\"id\":1}"));
+        StoredResponse replay = idempotencyService.execute("k1", HASH, () -> fail("must not run again"));
+
+        assertEquals(200, replay.getStatus());
+        assertEquals(List.of("application/json"), replay.getHeaders().get("Content-Type"));
+        assertEquals("{\"id\":1}", body(replay));
+        assertEquals(1.0, count("replayed"));
+    }
+
+    @Test
+    public void execute_LargeBody_KeptOnDiskAndReplayed() throws Exception {
+        String large = "x".repeat(1000);
+        idempotencyService.execute("k1", HASH, () -> ok(large));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(large, body(idempotencyService.execute("k1", HASH, () -> fail("must not run again"))));
+    }
+
+    @Test
+    public void execute_SpilledBodies_BoundedByMaxDisk() throws Exception {
+        idempotencyService.maxDisk = DataSize.ofBytes(4000);
+        idempotencyService.init();
+
+        for (int i = 0; i < 20; i++) idempotencyService.execute("k" + i, HASH, () -> ok("x".repeat(1000)));
+
+        long spilled = Long.MAX_VALUE;
+        for (int i = 0; i < 500 && spilled > 4000; i++) {
+            Thread.sleep(10); // Evictions and file deletions run in the cache's maintenance.
+            try (var files = Files.list(directory)) {
+                spilled = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+        }
+        assertTrue(spilled <= 4000, "spilled " + spilled + " bytes");
+        // The cache chooses which bodies to keep; the others are refused, never executed again.
+        int replayed = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                assertEquals("x".repeat(1000), body(idempotencyService.execute("k" + i, HASH, () -> fail("must not run again"))));
+                replayed++;
+            } catch (IdempotencyService.ResponseUnavailableException e) {
+                assertTrue(e.getMessage().contains("status 200"));
+            }
+        }
+        assertTrue(replayed > 0 && replayed < 20, replayed + " replayed");
+    }
+
+    @Test
+    public void execute_SameKeyDifferentRequest_Rejected() throws Exception {
+        idempotencyService.execute("k1", HASH, () -> ok("{\"id\":1}"));
+
+        assertThrows(IdempotencyService.IdempotencyMismatchException.class,
+                () -> idempotencyService.execute("k1", "b2", () -> fail("must not run")));
+        assertEquals(1.0, count("refused"));
+    }
+
+    @Test
+    public void execute_RetryOnAnotherInstance_NotRunAgain() throws Exception {
+        IdempotencyService other = open();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<StoredResponse> leader = executor.submit(() -> idempotencyService.execute("k1", HASH, () -> {
+                started.countDown();
+                release.await();
+                return ok("{}");
+            }));
+            started.await();
+            assertThrows(IdempotencyService.IdempotencyConflictException.class,
+                    () -> other.execute("k1", HASH, () -> fail("must not run while executing elsewhere")));
+            release.countDown();
+            assertNull(leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThrows(IdempotencyService.ResponseUnavailableException.class,
+                () -> other.execute("k1", HASH, () -> fail("must not run after it was answered elsewhere")));
+        assertThrows(IdempotencyService.IdempotencyMismatchException.class,
+                () -> other.execute("k1", "b2", () -> fail("must not run")));
+    }
+
+    @Test
+    public void execute_FailedResponse_NotStored() throws Exception {
+        idempotencyService.execute("k1", HASH, () -> new Response(500, Map.of(), new byte[0]));
+        AtomicInteger runs = new AtomicInteger();
+        assertNull(idempotencyService.execute("k1", HASH, () -> {
+            runs.incrementAndGet();
+            return ok("{}");
+        }));
+        assertEquals(1, runs.get());
+        assertEquals(200, claims.get("k1").getStatus());
+    }
+
+    @Test
+    public void execute_ActionThrows_ReleasesKey() throws Exception {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("k1", HASH, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertNull(idempotencyService.execute("k1", HASH, () -> ok("{}")));
+    }
+
+    @Test
+    public void execute_ConcurrentDuplicates_RunActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<StoredResponse> leader = executor.submit(() -> idempotencyService.execute("k1", HASH, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await();
+                return ok("{\"id\":1}");
+            }));
+            started.await();
+            List<Future<StoredResponse>> duplicates = List.of(
+                    executor.submit(() -> idempotencyService.execute("k1", HASH, () -> ok("duplicate"))),
+                    executor.submit(() -> idempotencyService.execute("k1", HASH, () -> ok("duplicate"))));
+            release.countDown();
+
+            assertNull(leader.get(5, TimeUnit.SECONDS));
+            for (Future<StoredResponse> duplicate : duplicates) assertEquals("{\"id\":1}", body(duplicate.get(5, TimeUnit.SECONDS)));
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_LeaderTooSlow_Conflicts() throws Exception {
+        idempotencyService.lockTimeout = Duration.ofMillis(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> idempotencyService.execute("k1", HASH, () -> {
+                started.countDown();
+                release.await();
+                return ok("{}");
+            }));
+            started.await();
+            assertThrows(IdempotencyService.IdempotencyConflictException.class,
+                    () -> idempotencyService.execute("k1", HASH, () -> ok("duplicate")));
+            assertEquals(1.0, count("conflict"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void execute_DifferentKeys_RunIndependently() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        idempotencyService.execute("k1", HASH, () -> { runs.incrementAndGet(); return ok("1"); });
+        idempotencyService.execute("k2", HASH, () -> { runs.incrementAndGet(); return ok("2"); });
+        assertEquals(2, runs.get());
+    }
+}
@@ -0,0 +1,204 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoanArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private LoanArchive archive;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        archive = open();
+    }
+
+    private LoanArchive open() throws IOException {
+        LoanArchive opened = new LoanArchive();
+        opened.loanRepository = mock(LoanRepository.class);
+        opened.loanEventRepository = mock(LoanEventRepository.class);
+        opened.jdbcTemplate = mock(JdbcTemplate.class);
+        opened.auditLog = mock(AuditLog.class);
+        opened.objectMapper = new ObjectMapper().findAndRegisterModules();
+        opened.transactionManager = mock(PlatformTransactionManager.class);
+        opened.meterRegistry = new SimpleMeterRegistry();
+        opened.enabled = true;
+        opened.directory = directory;
+        opened.terminalStates = List.of("Rechazada", "Cancelada");
+        opened.minAge = Duration.ofDays(180);
+        opened.batchSize = 200;
+        opened.init();
+        return opened;
+    }
+
+    private static List<LoanEntity> loans(long firstId, int count) {
+        List<LoanEntity> loans = new ArrayList<>();
+        for (long id = firstId; id < firstId + count; id++) {
+            LoanEntity loan = new LoanEntity(id, "rut-" + (id % 50), "Primera Vivienda", 100000000, 80000000, 30, 4.5f,
+                    2000000, 5, 40, "Rechazada", new byte[]{(byte) id, 2, 3}, null, null, null);
+            loan.setVersion(3);
+            loan.setUpdated_at(Instant.parse("2025-01-01T00:00:00Z"));
+            loans.add(loan);
+        }
+        return loans;
+    }
+
+    private void archive(List<LoanEntity> loans) {
+        when(archive.loanEventRepository.tryAdvisoryLock(anyLong())).thenReturn(true);
+        List<Long> ids = loans.stream().map(LoanEntity::getId).toList();
+        when(archive.loanRepository.findArchivableIds(eq(List.of("Rechazada", "Cancelada")), any(Instant.class), any(Pageable.class))).thenReturn(ids);
+        when(archive.loanRepository.findWithDocumentsByIdIn(ids)).thenReturn(loans);
+        assertEquals(loans.size(), archive.archiveBatch());
+    }
+
+    @Test
+    public void archiveBatch_WritesASegment_AndDeletesTheLoans() throws IOException {
+        List<LoanEntity> loans = loans(1, 150);
+        archive(loans);
+
+        verify(archive.loanRepository).deleteAllByIdInBatch(loans.stream().map(LoanEntity::getId).toList());
+        ArgumentCaptor<LoanEventEntity> events = ArgumentCaptor.forClass(LoanEventEntity.class);
+        verify(archive.loanEventRepository, times(150)).save(events.capture());
+        assertEquals(LoanEventEntity.DELETED, events.getValue().getEvent_type());
+        assertEquals(150L, events.getValue().getLoan_id());
+        assertEquals("Rechazada", events.getValue().getPayload().get("previous_state"));
+        verify(archive.auditLog, times(150)).recordAfterCommit(eq("loan"), eq("DELETE"), anyLong(), eq(3L), anyString(), startsWith("archived to loans-"));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("loans-00000000000000000001.seg"), files.map(file -> file.getFileName().toString()).toList());
+        }
+        assertEquals(150.0, archive.meterRegistry.get("prestabanco.archive.loans").counter().count());
+    }
+
+    @Test
+    public void findById_ReadsTheLoanBackWithItsDocuments() {
+        archive(loans(1, 150));
+
+        LoanEntity loan = archive.findById(130L).orElseThrow();
+        assertEquals(loans(130, 1).get(0), loan);
+        assertArrayEquals(new byte[]{(byte) 130, 2, 3}, loan.getDocument1());
+        assertEquals(Instant.parse("2025-01-01T00:00:00Z"), loan.getUpdated_at());
+        assertTrue(archive.findById(151L).isEmpty());
+    }
+
+    @Test
+    public void findByRut_ReadsEveryArchivedLoanOfTheApplicant() {
+        archive(loans(1, 150));
+        archive(loans(151, 50));
+
+        List<LoanEntity> loans = archive.findByRut("rut-7");
+        assertEquals(List.of(157L, 7L, 57L, 107L), loans.stream().map(LoanEntity::getId).toList());
+        assertTrue(archive.findByRut("nobody").isEmpty());
+    }
+
+    @Test
+    public void init_ReopensTheSegmentsAfterARestart() throws IOException {
+        archive(loans(1, 100));
+        Path abandoned = Files.writeString(directory.resolve("loans-00000000000000000002.seg.a.tmp"), "unfinished");
+        Files.setLastModifiedTime(abandoned, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        Path inProgress = Files.writeString(directory.resolve("loans-00000000000000000002.seg.b.tmp"), "being written");
+
+        LoanArchive reopened = open();
+
+        assertEquals("rut-1", reopened.findById(51L).orElseThrow().getRut());
+        assertFalse(Files.exists(abandoned));
+        assertTrue(Files.exists(inProgress));
+        archive = reopened;
+        archive(loans(101, 10));
+        assertTrue(Files.exists(directory.resolve("loans-00000000000000000002.seg")));
+    }
+
+    @Test
+    public void archiveBatch_TwoInstancesSharingTheDirectory_NeitherReplacesTheOthersSegment() throws IOException {
+        LoanArchive first = archive;
+        LoanArchive second = open(); // Scanned the directory before the first instance archived anything.
+
+        archive(loans(1, 10));
+        archive = second;
+        archive(loans(11, 10));
+
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("loans-00000000000000000001.seg", "loans-00000000000000000002.seg"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+        assertEquals("rut-5", second.findById(5L).orElseThrow().getRut());
+        assertEquals(List.of(15L), first.findByRut("rut-15").stream().map(LoanEntity::getId).toList());
+        assertEquals("rut-15", first.findById(15L).orElseThrow().getRut());
+    }
+
+    @Test
+    public void write_NameAlreadyTaken_FailsAndKeepsTheExistingSegment() throws IOException {
+        archive(loans(1, 10));
+        Path file = directory.resolve("loans-00000000000000000001.seg");
+        byte[] existing = Files.readAllBytes(file);
+
+        assertThrows(FileAlreadyExistsException.class,
+                () -> LoanArchive.ArchiveSegment.write(file, loans(11, 10), archive.objectMapper));
+        assertArrayEquals(existing, Files.readAllBytes(file));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void archiveBatch_DeletionFails_RemovesTheSegment() throws IOException {
+        doThrow(new IllegalStateException("database down")).when(archive.loanRepository).deleteAllByIdInBatch(any());
+
+        assertThrows(IllegalStateException.class, () -> archive(loans(1, 10)));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        assertTrue(archive.findById(1L).isEmpty());
+    }
+
+    @Test
+    public void findById_CorruptBlock_Fails() throws IOException {
+        archive(loans(1, 10));
+        try (FileChannel channel = FileChannel.open(directory.resolve("loans-00000000000000000001.seg"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), 20);
+        }
+
+        assertThrows(UncheckedIOException.class, () -> archive.findById(5L));
+    }
+
+    @Test
+    public void archiveBatch_NothingEligible_WritesNothing() throws IOException {
+        when(archive.loanEventRepository.tryAdvisoryLock(anyLong())).thenReturn(true);
+        when(archive.loanRepository.findArchivableIds(any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, archive.archiveBatch());
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.dto.LoanStreamFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LoanEventBroadcasterTest {
+
+    @Mock
+    private LoanService loanService;
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private volatile boolean blocking;
+    private SimpleMeterRegistry meterRegistry;
+    private LoanEventBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new LoanEventBroadcaster() {
+            @Override
+            SseEmitter newEmitter() {
+                return new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) throws IOException {
+                        if (blocking) {
+                            try {
+                                unblock.await();
+                            } catch (InterruptedException e) {
+                                throw new IOException(e);
+                            }
+                        }
+                        sent.add(builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()));
+                    }
+                };
+            }
+        };
+        broadcaster.loanService = loanService;
+        broadcaster.meterRegistry = meterRegistry;
+        broadcaster.bufferSize = 2;
+        broadcaster.maxSubscribers = 10;
+        broadcaster.senderThreads = 2;
+        broadcaster.timeout = Duration.ofMinutes(1);
+        broadcaster.pollBatch = 100;
+        broadcaster.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        unblock.countDown();
+        broadcaster.shutdown();
+    }
+
+    private static LoanChangeEvent event(long sequence, long loanId, String type, String state, String rut) {
+        return new LoanChangeEvent(sequence, loanId, type, Map.of("state", state, "type", "Primera Vivienda", "rut", rut), Instant.now());
+    }
+
+    private static LoanChangeEvent event(long sequence, long loanId, String type, String previousState, String state, String rut) {
+        return new LoanChangeEvent(sequence, loanId, type,
+                Map.of("previous_state", previousState, "state", state, "type", "Primera Vivienda", "rut", rut), Instant.now());
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        for (int i = 0; i < 200 && sent.size() < count; i++) Thread.sleep(10);
+        assertEquals(count, sent.size());
+    }
+
+    @Test
+    public void broadcast_MatchingSubscriber_ReceivesNotification() throws Exception {
+        broadcaster.subscribe(new LoanStreamFilter(null, null, Set.of("12345678-9")), null);
+
+        broadcaster.broadcast(event(1, 1L, "CREATED", "En Revisión Inicial", "12345678-9"));
+        broadcaster.broadcast(event(2, 2L, "CREATED", "En Revisión Inicial", "98765432-1"));
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("event:CREATED"));
+        assertTrue(sent.get(0).contains("loanId=1"));
+    }
+
+    @Test
+    public void broadcast_StateChange_NotifiesTransitionToSubscribersOfEitherState() throws Exception {
+        broadcaster.broadcast(event(1, 1L, "CREATED", "En Evaluación", "12345678-9"));
+        broadcaster.subscribe(new LoanStreamFilter(Set.of("En Evaluación"), null, null), null);
+
+        broadcaster.broadcast(event(2, 1L, "UPDATED", "En Evaluación", "Aprobada", "12345678-9"));
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("event:STATE_CHANGED"));
+    }
+
+    @Test
+    public void broadcast_FirstEventSeenForLoan_TransitionTakenFromPayload() throws Exception {
+        broadcaster.subscribe(new LoanStreamFilter(Set.of("En Evaluación"), null, null), null);
+
+        broadcaster.broadcast(event(7, 1L, "UPDATED", "En Evaluación", "Aprobada", "12345678-9"));
+        broadcaster.broadcast(event(8, 2L, "UPDATED", "En Evaluación", "En Evaluación", "12345678-9"));
+
+        awaitSent(2);
+        assertTrue(sent.get(0).contains("event:STATE_CHANGED"));
+        assertTrue(sent.get(0).contains("previousState=En Evaluación"));
+        assertTrue(sent.get(1).contains("event:UPDATED"));
+    }
+
+    @Test
+    public void broadcast_Deletion_ReachesSubscribersOfTheStateLeft() throws Exception {
+        broadcaster.subscribe(new LoanStreamFilter(Set.of("Aprobada"), null, null), null);
+
+        broadcaster.broadcast(new LoanChangeEvent(3, 1L, "DELETED", Map.of("previous_state", "Aprobada"), Instant.now()));
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("event:DELETED"));
+    }
+
+    @Test
+    public void broadcast_SlowSubscriber_IsEvicted() throws Exception {
+        blocking = true;
+        broadcaster.subscribe(new LoanStreamFilter(null, null, null), null);
+
+        // One notification is stuck in send, two fill the buffer, the next one overflows it.
+        for (int i = 1; i <= 5; i++) broadcaster.broadcast(event(i, i, "CREATED", "E1", "12345678-9"));
+
+        assertEquals(0, broadcaster.subscriberCount());
+        assertEquals(1.0, meterRegistry.get("prestabanco.sse.evictions").counter().count());
+    }
+
+    @Test
+    public void subscribe_WithLastEventId_ReplaysMissedEvents() throws Exception {
+        when(loanService.getLastEventSequence()).thenReturn(5L);
+        when(loanService.getEventsAfter(3L, 2)).thenReturn(List.of(
+                event(4, 1L, "UPDATED", "E1", "12345678-9"),
+                event(5, 2L, "UPDATED", "E2", "12345678-9")));
+
+        broadcaster.subscribe(new LoanStreamFilter(null, null, null), 3L);
+
+        awaitSent(2);
+        assertTrue(sent.get(0).contains("id:4"));
+        assertTrue(sent.get(1).contains("id:5"));
+    }
+
+    @Test
+    public void subscribe_StreamMovedWhileReplaying_ReadsOnUpToLivePosition() throws Exception {
+        when(loanService.getLastEventSequence()).thenReturn(4L);
+        when(loanService.getEventsAfter(3L, 2)).thenReturn(List.of(), List.of(event(4, 1L, "UPDATED", "E1", "12345678-9")));
+
+        broadcaster.subscribe(new LoanStreamFilter(null, null, null), 3L);
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("id:4"));
+        verify(loanService, times(2)).getEventsAfter(3L, 2);
+        assertEquals(1, broadcaster.subscriberCount());
+    }
+
+    @Test
+    public void subscribe_MissedMoreThanBuffer_SendsResetAtLivePosition() throws Exception {
+        when(loanService.getLastEventSequence()).thenReturn(10L);
+        when(loanService.getEventsAfter(1L, 2)).thenReturn(List.of(
+                event(2, 1L, "UPDATED", "E1", "12345678-9"),
+                event(3, 2L, "UPDATED", "E2", "12345678-9")));
+
+        broadcaster.subscribe(new LoanStreamFilter(null, null, Set.of("98765432-1")), 1L);
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("id:10"));
+        assertTrue(sent.get(0).contains("event:RESET"));
+        assertEquals(1.0, meterRegistry.get("prestabanco.sse.resets").counter().count());
+        assertEquals(1, broadcaster.subscriberCount());
+    }
+
+    @Test
+    public void poll_NoSubscribers_DoesNotQueryDatabase() {
+        broadcaster.poll();
+        verify(loanService, never()).getEventsAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    public void poll_WithSubscriber_TailsFromLastSequence() throws Exception {
+        when(loanService.getLastEventSequence()).thenReturn(10L);
+        when(loanService.getEventsAfter(10L, 100)).thenReturn(List.of(event(11, 1L, "CREATED", "E1", "12345678-9")));
+        broadcaster.subscribe(new LoanStreamFilter(null, null, null), null);
+
+        broadcaster.poll();
+
+        awaitSent(1);
+        assertTrue(sent.get(0).contains("id:11"));
+    }
+}
@@ -0,0 +1,136 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoanOutboxRelayTest {
+
+    @Mock
+    private LoanEventRepository loanEventRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<List<LoanChangeEvent>> received = new ArrayList<>();
+    private LoanOutboxRelay relay;
+
+    private LoanEventSink sink(String name) {
+        return new LoanEventSink() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void publish(List<LoanChangeEvent> events) {
+                received.add(events);
+            }
+        };
+    }
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(loanEventRepository.tryAdvisoryLock(anyLong())).thenReturn(true);
+
+        relay = new LoanOutboxRelay();
+        relay.loanEventRepository = loanEventRepository;
+        relay.transactionManager = transactionManager;
+        relay.meterRegistry = new SimpleMeterRegistry();
+        relay.sinks = List.of(sink("in-process"), sink("file"));
+        relay.enabledSinks = List.of("in-process");
+        relay.batchSize = 2;
+        relay.retention = Duration.ofDays(7);
+        relay.init();
+    }
+
+    private static LoanEventEntity event(long loanId) {
+        LoanEntity loan = new LoanEntity(loanId, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Revisión", null, null, null, null);
+        return LoanEventEntity.of(LoanEventEntity.UPDATED, loanId, loan);
+    }
+
+    @Test
+    public void publishBatch_PendingEvents_NumbersFromLastSequence() {
+        LoanEventEntity first = event(1L);
+        LoanEventEntity second = event(2L);
+        when(loanEventRepository.findUnpublished(any(Pageable.class))).thenReturn(List.of(first, second));
+        when(loanEventRepository.findLastSequence()).thenReturn(41L);
+
+        assertEquals(2, relay.publishBatch());
+
+        assertEquals(42L, first.getSequence());
+        assertEquals(43L, second.getSequence());
+        assertNotNull(first.getPublished_at());
+        assertEquals(1, received.size());
+        assertEquals(List.of(42L, 43L), received.get(0).stream().map(LoanChangeEvent::sequence).toList());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void publishBatch_OnlyEnabledSinks_ReceiveEvents() {
+        when(loanEventRepository.findUnpublished(any(Pageable.class))).thenReturn(List.of(event(1L)));
+
+        relay.publishBatch();
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void publishBatch_SinkFails_RollsBack() {
+        relay.sinks = List.of(new LoanEventSink() {
+            @Override
+            public String getName() {
+                return "in-process";
+            }
+
+            @Override
+            public void publish(List<LoanChangeEvent> events) throws Exception {
+                throw new Exception("unreachable");
+            }
+        });
+        when(loanEventRepository.findUnpublished(any(Pageable.class))).thenReturn(List.of(event(1L)));
+
+        assertThrows(IllegalStateException.class, () -> relay.publishBatch());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    public void publishBatch_LockHeldElsewhere_PublishesNothing() {
+        when(loanEventRepository.tryAdvisoryLock(anyLong())).thenReturn(false);
+
+        assertEquals(0, relay.publishBatch());
+        verify(loanEventRepository, never()).findUnpublished(any());
+    }
+
+    @Test
+    public void relay_FullBatches_DrainsOutbox() {
+        when(loanEventRepository.findUnpublished(any(Pageable.class)))
+                .thenReturn(List.of(event(1L), event(2L)))
+                .thenReturn(List.of(event(3L)));
+
+        relay.relay();
+
+        assertEquals(2, received.size());
+        verify(loanEventRepository, times(2)).findUnpublished(any());
+    }
+}
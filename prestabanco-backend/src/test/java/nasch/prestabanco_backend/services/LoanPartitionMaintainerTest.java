@@ -0,0 +1,66 @@
+package nasch.prestabanco_backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LoanPartitionMaintainerTest {
+
+    private static final String CREATE = "SELECT create_loan_partition(?)";
+
+    private LoanPartitionMaintainer maintainer;
+
+    @BeforeEach
+    public void setUp() {
+        maintainer = new LoanPartitionMaintainer();
+        maintainer.jdbcTemplate = mock(JdbcTemplate.class);
+        maintainer.monthsAhead = 3;
+    }
+
+    private static OffsetDateTime month(int year, int month) {
+        return OffsetDateTime.of(year, month, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    }
+
+    @Test
+    public void createPartitions_CurrentAndComingMonths_AcrossTheYearEnd() {
+        when(maintainer.jdbcTemplate.queryForObject(eq(CREATE), eq(String.class), any(OffsetDateTime.class)))
+                .thenAnswer(invocation -> {
+                    OffsetDateTime start = invocation.getArgument(2);
+                    return String.format("loan_y%04dm%02d", start.getYear(), start.getMonthValue());
+                });
+
+        List<String> created = maintainer.createPartitions(LocalDate.of(2026, 11, 19));
+
+        assertEquals(List.of("loan_y2026m11", "loan_y2026m12", "loan_y2027m01", "loan_y2027m02"), created);
+    }
+
+    @Test
+    public void createPartitions_ExistingPartitions_NotReported() {
+        when(maintainer.jdbcTemplate.queryForObject(eq(CREATE), eq(String.class), any(OffsetDateTime.class))).thenReturn(null);
+        when(maintainer.jdbcTemplate.queryForObject(CREATE, String.class, month(2027, 1))).thenReturn("loan_y2027m01");
+
+        assertEquals(List.of("loan_y2027m01"), maintainer.createPartitions(LocalDate.of(2026, 10, 31)));
+    }
+
+    @Test
+    public void createPartitions_FailedMonth_OthersStillCreated() {
+        when(maintainer.jdbcTemplate.queryForObject(eq(CREATE), eq(String.class), any(OffsetDateTime.class))).thenReturn("created");
+        when(maintainer.jdbcTemplate.queryForObject(CREATE, String.class, month(2026, 10)))
+                .thenThrow(new DataIntegrityViolationException("updated partition constraint for default partition would be violated"));
+
+        List<String> created = maintainer.createPartitions(LocalDate.of(2026, 10, 1));
+
+        assertEquals(3, created.size());
+        verify(maintainer.jdbcTemplate, times(4)).queryForObject(eq(CREATE), eq(String.class), any(OffsetDateTime.class));
+    }
+}
@@ -0,0 +1,88 @@
+package nasch.prestabanco_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.dto.LoanProduct;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanProductCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    private LoanProductCatalog catalog;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        catalog = new LoanProductCatalog();
+        catalog.resourceLoader = new DefaultResourceLoader();
+        catalog.objectMapper = new ObjectMapper();
+        catalog.meterRegistry = new SimpleMeterRegistry();
+        catalog.location = "classpath:loan-products.json";
+        catalog.init();
+    }
+
+    @Test
+    public void init_BundledCatalog_LoadsTheFourProducts() {
+        assertEquals(4, catalog.getProducts().size());
+        LoanProduct primera = catalog.getProduct("Primera Vivienda").orElseThrow();
+        assertEquals(30, primera.max_term());
+        assertEquals(3.5f, primera.min_rate());
+        assertEquals(5.0f, primera.max_rate());
+        assertEquals(80, primera.max_financing());
+    }
+
+    @Test
+    public void validate_WithinRules_Passes() {
+        assertDoesNotThrow(() -> catalog.validate("Primera Vivienda", 100000000L, 80000000, 30, 4.5f));
+        assertDoesNotThrow(() -> catalog.validate("Remodelación", null, 999999999, 15, 6.0f));
+    }
+
+    @Test
+    public void validate_BrokenRules_ListsEveryViolation() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> catalog.validate("Segunda Vivienda", 100000000L, 70000001, 25, 3.0f));
+
+        assertTrue(exception.getMessage().contains("term"));
+        assertTrue(exception.getMessage().contains("interest_rate"));
+        assertTrue(exception.getMessage().contains("70%"));
+    }
+
+    @Test
+    public void validate_UnknownType_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> catalog.validate("Auto", 1000L, 100, 5, 4.5f));
+    }
+
+    @Test
+    public void reload_ChangedFile_SwapsCatalog() throws Exception {
+        Path file = directory.resolve("products.json");
+        Files.writeString(file, "[{\"name\":\"Primera Vivienda\",\"max_term\":35,\"min_rate\":3.0,\"max_rate\":5.0,\"max_financing\":90}]");
+        catalog.location = file.toUri().toString();
+
+        catalog.reload();
+
+        assertEquals(1, catalog.getProducts().size());
+        assertEquals(35, catalog.getProduct("Primera Vivienda").orElseThrow().max_term());
+        assertTrue(catalog.getProduct("Remodelación").isEmpty());
+    }
+
+    @Test
+    public void reload_InvalidCatalog_KeepsCurrentOne() throws Exception {
+        Path file = directory.resolve("products.json");
+        Files.writeString(file, "[{\"name\":\"Primera Vivienda\",\"max_term\":30,\"min_rate\":6.0,\"max_rate\":5.0,\"max_financing\":80}]");
+        catalog.location = file.toUri().toString();
+
+        assertThrows(IllegalArgumentException.class, () -> catalog.reload());
+
+        assertEquals(4, catalog.getProducts().size());
+        assertEquals(3.5f, catalog.getProduct("Primera Vivienda").orElseThrow().min_rate());
+    }
+}
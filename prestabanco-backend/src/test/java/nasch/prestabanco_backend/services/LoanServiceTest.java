@@ -1,18 +1,43 @@
 package nasch.prestabanco_backend.services;
 
+import nasch.prestabanco_backend.dto.CollectionStamp;
+import nasch.prestabanco_backend.dto.LoanRevision;
+import nasch.prestabanco_backend.dto.LoanProduct;
+import nasch.prestabanco_backend.dto.MaxAmountRequest;
+import nasch.prestabanco_backend.dto.MaxAmountResult;
 import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
 import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
 import nasch.prestabanco_backend.services.LoanService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +47,21 @@ class LoanServiceTest {
     @Mock
     private LoanRepository loanRepository;
 
+    @Mock
+    private LoanEventRepository loanEventRepository;
+
+    @Mock
+    private FieldProjectionRepository fieldProjectionRepository;
+
+    @Mock
+    private LoanProductCatalog loanProductCatalog;
+
+    @Mock
+    private LoanSummaryRepository loanSummaryRepository;
+
+    @Mock
+    private LoanArchive loanArchive;
+
     @InjectMocks
     private LoanService loanService;
 
@@ -331,8 +371,41 @@ class LoanServiceTest {
         verify(loanRepository, times(1)).save(any(LoanEntity.class));
     }
 
+    @Test
+    public void updateLoan_ExistingLoan_CarriesStoredVersion() {
+        when(loanRepository.findRevisionById(1L)).thenReturn(Optional.of(new LoanRevision(4L, null, null)));
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LoanEntity result = loanService.updateLoan(1L, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Evaluación", null, null, null, null);
+
+        assertEquals(4L, result.getVersion());
+    }
+
+    @Test
+    public void getLoansStamp_ReturnsRepositoryStamp() {
+        CollectionStamp stamp = new CollectionStamp(2L, 3L, Instant.ofEpochMilli(1000), 7L);
+        when(loanRepository.findCollectionStamp()).thenReturn(stamp);
+
+        CollectionStamp result = loanService.getLoansStamp();
+
+        assertEquals("\"2-3-7\"", result.eTag());
+        assertEquals(1000, result.lastModifiedMillis());
+    }
+
+    @Test
+    public void eTag_FieldSet_WeakAndDistinctPerProjection() {
+        CollectionStamp stamp = new CollectionStamp(2L, 3L, Instant.ofEpochMilli(1000), 7L);
+
+        assertEquals("W/\"2-3-7\"", stamp.eTag(null));
+        assertTrue(stamp.eTag("id,rut").startsWith("W/\"2-3-7-f"));
+        assertEquals(stamp.eTag("id,rut"), stamp.eTag(" rut, id"));
+        assertNotEquals(stamp.eTag("id,rut"), stamp.eTag("id,state"));
+        assertNotEquals(stamp.eTag(null), stamp.eTag("id,rut"));
+    }
+
     @Test
     public void deleteLoan_ExistingId_ReturnsTrue() throws Exception {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
         doNothing().when(loanRepository).deleteById(anyLong());
 
         boolean result = loanService.deleteLoan(1L);
@@ -343,6 +416,7 @@ class LoanServiceTest {
 
     @Test
     public void deleteLoan_ValidId_DeletionSuccessful_ReturnsTrue() throws Exception {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
         Long validId = 1L;
         doNothing().when(loanRepository).deleteById(validId);
 
@@ -353,17 +427,31 @@ class LoanServiceTest {
     }
 
     @Test
-    public void deleteLoan_NonExistingId_ThrowsException() {
-        doThrow(new RuntimeException("Entity not found")).when(loanRepository).deleteById(anyLong());
+    public void updateLoan_NonExistingId_ThrowsNotFound() {
+        when(loanRepository.findRevisionById(999L)).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.updateLoan(999L,
+                "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Evaluación", null, null, null, null));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verify(loanRepository, never()).save(any());
+        verifyNoInteractions(loanEventRepository);
+    }
+
+    @Test
+    public void deleteLoan_NonExistingId_ThrowsNotFound() {
+        when(loanRepository.findRevisionById(999L)).thenReturn(Optional.empty());
 
-        Exception exception = assertThrows(Exception.class, () -> loanService.deleteLoan(999L));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.deleteLoan(999L));
 
-        assertEquals("Entity not found", exception.getMessage());
-        verify(loanRepository, times(1)).deleteById(999L);
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verify(loanRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(loanEventRepository);
     }
 
     @Test
     public void deleteLoan_RepositoryThrowsException_ThrowsException() {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
         doThrow(new RuntimeException("Database error")).when(loanRepository).deleteById(anyLong());
 
         Exception exception = assertThrows(Exception.class, () -> loanService.deleteLoan(1L));
@@ -374,6 +462,7 @@ class LoanServiceTest {
 
     @Test
     public void deleteLoan_MultipleDeletions_VerifiesRepositoryInteraction() throws Exception {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
         doNothing().when(loanRepository).deleteById(anyLong());
 
         loanService.deleteLoan(1L);
@@ -385,6 +474,7 @@ class LoanServiceTest {
 
     @Test
     public void deleteLoan_InvalidId_ThrowsException() {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
         doThrow(new RuntimeException("Invalid ID")).when(loanRepository).deleteById(anyLong());
 
         Exception exception = assertThrows(Exception.class, () -> loanService.deleteLoan(-1L));
@@ -464,4 +554,321 @@ class LoanServiceTest {
         double result = loanService.totalCostCalculation(2000000, -5.0f, 30, 0.01f, 0.005f);
         assertTrue(result > 0, "Expected a valid total cost even with negative interest rate");
     }
+
+    @Test
+    public void saveLoan_ValidData_RecordsCreatedEvent() {
+        LoanEntity saved = new LoanEntity(5L, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Revisión", null, null, null, null);
+        when(loanRepository.save(any(LoanEntity.class))).thenReturn(saved);
+
+        loanService.saveLoan(null, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Revisión", new byte[]{1}, null, null, null);
+
+        verify(loanEventRepository).save(argThat(event -> LoanEventEntity.CREATED.equals(event.getEvent_type())
+                && event.getLoan_id() == 5L
+                && "En Revisión".equals(event.getPayload().get("state"))
+                && !event.getPayload().containsKey("document1")
+                && event.getSequence() == null));
+    }
+
+    @Test
+    public void deleteLoan_ExistingId_RecordsDeletedEvent() throws Exception {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
+        loanService.deleteLoan(9L);
+
+        verify(loanEventRepository).save(argThat(event -> LoanEventEntity.DELETED.equals(event.getEvent_type())
+                && event.getLoan_id() == 9L));
+    }
+
+    @Test
+    public void updateLoan_StateChanged_RecordsPreviousStateInEvent() {
+        when(loanRepository.findRevisionById(1L)).thenReturn(Optional.of(new LoanRevision(0L, null, "En Revisión Inicial")));
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        loanService.updateLoan(1L, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Evaluación", null, null, null, null);
+
+        verify(loanEventRepository).save(argThat(event -> LoanEventEntity.UPDATED.equals(event.getEvent_type())
+                && "En Revisión Inicial".equals(event.getPayload().get("previous_state"))
+                && "En Evaluación".equals(event.getPayload().get("state"))));
+    }
+
+    @Test
+    public void deleteLoan_ExistingId_RecordsStateLeftInEvent() throws Exception {
+        when(loanRepository.findRevisionById(9L)).thenReturn(Optional.of(new LoanRevision(0L, null, "Aprobada")));
+
+        loanService.deleteLoan(9L);
+
+        verify(loanEventRepository).save(argThat(event -> LoanEventEntity.DELETED.equals(event.getEvent_type())
+                && "Aprobada".equals(event.getPayload().get("previous_state"))));
+    }
+
+    @Test
+    public void deleteLoan_RepositoryThrowsException_RecordsNoEvent() {
+        when(loanRepository.findRevisionById(anyLong())).thenReturn(Optional.of(new LoanRevision(0L, null, null)));
+        doThrow(new RuntimeException("Database error")).when(loanRepository).deleteById(anyLong());
+
+        assertThrows(Exception.class, () -> loanService.deleteLoan(1L));
+        verifyNoInteractions(loanEventRepository);
+    }
+
+    @Test
+    public void getAllLoansFields_KnownFields_ReturnsProjection() {
+        when(fieldProjectionRepository.getFieldNames(LoanEntity.class)).thenReturn(Set.of("id", "rut", "state", "amount"));
+        List<String> fields = List.of("id", "rut", "state");
+        List<Map<String, Object>> rows = List.of(Map.of("id", 1L, "rut", "12345678-9", "state", "En Revisión"));
+        when(fieldProjectionRepository.findAll(LoanEntity.class, fields)).thenReturn(rows);
+
+        assertEquals(rows, loanService.getAllLoans("id,rut,state,rut"));
+    }
+
+    @Test
+    public void getAllLoansFields_UnknownField_ThrowsBadRequest() {
+        when(fieldProjectionRepository.getFieldNames(LoanEntity.class)).thenReturn(Set.of("id", "rut", "state", "amount"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.getAllLoans("id,password"));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verify(fieldProjectionRepository, never()).findAll(any(), any());
+    }
+
+    @Test
+    public void maxAffordableAmount_PaymentBound_SimulatesToTheLimit() {
+        MaxAmountResult result = loanService.maxAffordableAmount(new MaxAmountRequest(1000000, 5.0f, 30, 0.35, null, null, null, null, null));
+
+        assertEquals(350000, loanService.mortgageCreditSimulation(result.amount(), 5.0f, 30), 0.1);
+        assertTrue(loanService.mortgageCreditSimulation(result.amount(), 5.0f, 30) <= 350000);
+        assertTrue(loanService.mortgageCreditSimulation(result.amount() + 1, 5.0f, 30) > 350000);
+        assertNull(result.monthly_cost());
+    }
+
+    @Test
+    public void maxAffordableAmount_TotalCostBound_IsLargestAmountWithinLimit() {
+        MaxAmountRequest request = new MaxAmountRequest(1500000, 4.5f, 20, 0.35, 0.0003f, 0.01f, new int[]{20000, 5000}, null, null);
+
+        MaxAmountResult result = loanService.maxAffordableAmount(request);
+
+        long amount = result.amount();
+        assertTrue(loanService.totalCostCalculation(amount, 4.5f, 20, 0.0003f, 0.01f, 20000, 5000) <= 525000);
+        assertTrue(loanService.totalCostCalculation(amount + 1, 4.5f, 20, 0.0003f, 0.01f, 20000, 5000) > 525000);
+        assertEquals(loanService.totalCostCalculation(amount, 4.5f, 20, 0.0003f, 0.01f, 20000, 5000), result.monthly_cost());
+    }
+
+    @Test
+    public void maxAffordableAmount_FixedCostsAboveLimit_ReturnsZero() {
+        MaxAmountResult result = loanService.maxAffordableAmount(new MaxAmountRequest(100000, 4.5f, 20, 0.35, null, null, new int[]{50000}, null, null));
+
+        assertEquals(0L, result.amount());
+    }
+
+    @Test
+    public void maxAffordableAmount_InvalidRatio_ThrowsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loanService.maxAffordableAmount(new MaxAmountRequest(1000000, 5.0f, 30, 1.5, null, null, null, null, null)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    public void maxAffordableAmounts_InvalidApplicant_ReportsErrorAndSolvesTheRest() {
+        List<MaxAmountResult> results = loanService.maxAffordableAmounts(List.of(
+                new MaxAmountRequest(1000000, 5.0f, 30, 0.35, null, null, null, null, null),
+                new MaxAmountRequest(1000000, 0.0f, 30, 0.35, null, null, null, null, null),
+                new MaxAmountRequest(2000000, 5.0f, 30, 0.35, null, null, null, null, null)));
+
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).amount());
+        assertNull(results.get(1).amount());
+        assertNotNull(results.get(1).error());
+        assertTrue(results.get(2).amount() > results.get(0).amount());
+    }
+
+    @Test
+    public void largestAmount_PoorEstimate_StillFindsTheBoundary() {
+        assertEquals(12345, LoanService.largestAmount(a -> a, 12345.5, 0));
+        assertEquals(12345, LoanService.largestAmount(a -> a, 12345.5, 1e12));
+    }
+
+    @Test
+    public void saveLoan_BreaksProductRules_ThrowsBadRequestAndSavesNothing() {
+        doThrow(new IllegalArgumentException("Primera Vivienda: term must be between 1 and 30 years"))
+                .when(loanProductCatalog).validate("Primera Vivienda", 100000000L, 80000000, 40, 4.5f);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loanService.saveLoan(null, "12345678-9", "Primera Vivienda", 100000000, 80000000, 40, 4.5f,
+                        3000000, 5, 35, "En Revisión", null, null, null, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verify(loanRepository, never()).save(any());
+        verify(loanEventRepository, never()).save(any());
+    }
+
+    @Test
+    public void maxAffordableAmount_ProductType_CapsAtMaxFinancing() {
+        when(loanProductCatalog.getProduct("Primera Vivienda"))
+                .thenReturn(Optional.of(new LoanProduct("Primera Vivienda", 30, 3.5f, 5.0f, 80)));
+
+        MaxAmountResult result = loanService.maxAffordableAmount(
+                new MaxAmountRequest(1000000, 5.0f, 30, 0.35, null, null, null, "Primera Vivienda", 50000000L));
+
+        assertEquals(40000000L, result.amount());
+        verify(loanProductCatalog).validate("Primera Vivienda", null, 0, 30, 5.0f);
+    }
+
+    @Test
+    public void saveLoan_StoresAffordabilityMetrics() {
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LoanEntity result = loanService.saveLoan(null, "12345678-9", "Primera Vivienda", 100000000, 80000000, 30, 4.5f, 2000000, 5, 40, "En Revisión", null, null, null, null);
+
+        double payment = loanService.mortgageCreditSimulation(80000000, 4.5f, 30);
+        assertEquals(payment, result.getMonthly_payment());
+        assertEquals(payment * 100 / 2000000, result.getPayment_to_income());
+        assertEquals(80.0, result.getLoan_to_value());
+        assertEquals(70, result.getAge_at_maturity());
+    }
+
+    @Test
+    public void updateLoan_RecomputesAffordabilityMetrics() {
+        when(loanRepository.findRevisionById(1L)).thenReturn(Optional.of(new LoanRevision(2L, null, null)));
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LoanEntity result = loanService.updateLoan(1L, "12345678-9", "Primera Vivienda", 0, 12000000, 10, 0f, 0, 5, 40, "Aprobada", null, null, null, null);
+
+        assertEquals(100000.0, result.getMonthly_payment());
+        assertNull(result.getPayment_to_income());
+        assertNull(result.getLoan_to_value());
+        assertEquals(50, result.getAge_at_maturity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getByAffordability_QueriesBySpecificationInIdOrder() {
+        LoanEntity loan = new LoanEntity(1L, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Evaluación", null, null, null, null);
+        FluentQuery.FetchableFluentQuery<LoanEntity> query = mock(FluentQuery.FetchableFluentQuery.class, RETURNS_SELF);
+        when(query.all()).thenReturn(List.of(loan));
+        when(loanRepository.findBy(any(Specification.class), any())).thenAnswer(invocation ->
+                invocation.<Function<FluentQuery.FetchableFluentQuery<LoanEntity>, List<LoanEntity>>>getArgument(1).apply(query));
+
+        List<LoanEntity> result = loanService.getByAffordability("En Evaluación", 35.0, null, null, null, 0, 50);
+
+        assertEquals(List.of(loan), result);
+        verify(query).sortBy(Sort.by("id"));
+        verify(query).limit(50);
+    }
+
+    @Test
+    public void getByAffordability_LimitOutOfRange_ThrowsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loanService.getByAffordability(null, null, null, null, null, 0, LoanService.MAX_PAGE_SIZE + 1));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(loanRepository);
+    }
+
+    @Test
+    public void getByRut_ArchivedLoan_ReadThroughTheArchive() {
+        LoanEntity archived = new LoanEntity(9L, "11111111-1", "Mortgage", 50000000, 20000000, 20, 3.5f, 1000000, 5, 35, "Rechazada", null, null, null, null);
+        when(loanRepository.findByRut("11111111-1")).thenReturn(null);
+        when(loanArchive.findByRut("11111111-1")).thenReturn(List.of(archived));
+
+        assertEquals(archived, loanService.getByRut("11111111-1"));
+    }
+
+    @Test
+    public void getDocument_ArchivedLoan_ReadThroughTheArchive() {
+        LoanEntity archived = new LoanEntity(9L, "11111111-1", "Mortgage", 50000000, 20000000, 20, 3.5f, 1000000, 5, 35, "Rechazada", null, null, new byte[]{3}, null);
+        when(loanRepository.findById(9L)).thenReturn(Optional.empty());
+        when(loanArchive.findById(9L)).thenReturn(Optional.of(archived));
+
+        assertArrayEquals(new byte[]{3}, loanService.getDocument(9L, 3));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.getDocument(9L, 1));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void getDocument_InvalidSlot_ThrowsBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.getDocument(1L, 5));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(loanRepository);
+    }
+
+    @Test
+    public void getById_NeitherInTableNorArchive_ThrowsNotFound() {
+        when(loanRepository.findById(9L)).thenReturn(Optional.empty());
+        when(loanArchive.findById(9L)).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanService.getById(9L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void updateLoan_ExistingLoan_CarriesCreationTime() {
+        Instant created = Instant.parse("2026-03-14T10:00:00Z");
+        when(loanRepository.findRevisionById(1L)).thenReturn(Optional.of(new LoanRevision(0L, created, null)));
+        when(loanRepository.save(any(LoanEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        LoanEntity result = loanService.updateLoan(1L, "12345678-9", "Mortgage", 50000000, 20000000, 240, 3.5f, 1000000, 5, 35, "En Evaluación", null, null, null, null);
+
+        assertEquals(created, result.getCreated_at());
+    }
+
+    @Test
+    public void getCreatedBetween_ReversedRange_ThrowsBadRequest() {
+        Instant from = Instant.parse("2026-10-01T00:00:00Z");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loanService.getCreatedBetween(from, from.minusSeconds(1), 0, 100));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verify(loanRepository, never()).findCreatedBetween(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    public void getCreatedBetween_ReadsOnePageAfterTheLastId() {
+        Instant from = Instant.parse("2026-09-01T00:00:00Z");
+        Instant to = Instant.parse("2026-10-01T00:00:00Z");
+
+        loanService.getCreatedBetween(from, to, 42, 50);
+
+        verify(loanRepository).findCreatedBetween(from, to, 42, PageRequest.of(0, 50));
+    }
+
+    @Test
+    public void getCreatedBetween_LimitOutOfRange_ThrowsBadRequest() {
+        Instant from = Instant.parse("2026-09-01T00:00:00Z");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loanService.getCreatedBetween(from, from.plusSeconds(1), 0, LoanService.MAX_PAGE_SIZE + 1));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    public void getRecent_LooksBackTheGivenDays() {
+        loanService.getRecent(7, 0, 100);
+
+        ArgumentCaptor<Instant> from = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> to = ArgumentCaptor.forClass(Instant.class);
+        verify(loanRepository).findCreatedBetween(from.capture(), to.capture(), eq(0L), eq(PageRequest.of(0, 100)));
+        assertEquals(Duration.ofDays(7), Duration.between(from.getValue(), to.getValue()));
+    }
+
+    @Test
+    public void exportCreatedBetween_WritesOneCsvRowPerLoan() throws Exception {
+        Instant from = Instant.parse("2026-09-01T00:00:00Z");
+        Instant to = Instant.parse("2026-10-01T00:00:00Z");
+        Instant created = Instant.parse("2026-09-15T12:30:00Z");
+        when(loanRepository.streamExportRows(from, to)).thenReturn(Stream.<Object[]>of(
+                new Object[]{5L, "12345678-9", "Primera Vivienda", 100000000L, 80000000L, 20, 4.5f, 1500000L, 3, 35,
+                        "Aprobada", 506100.5, 33.74, 80.0, 55, created, null},
+                new Object[]{6L, "1,2", "Segunda \"Vivienda\"", 0L, 1000L, 1, 0f, 0L, 0, 18,
+                        "En Revisión Inicial", null, null, null, null, created, created}));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = loanService.exportCreatedBetween(from, to, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(LoanService.EXPORT_CSV_HEADER, lines[0]);
+        assertEquals("5,12345678-9,Primera Vivienda,100000000,80000000,20,4.5,1500000,3,35,Aprobada,506100.5,33.74,80.0,55,"
+                + "2026-09-15T12:30:00Z,", lines[1]);
+        assertEquals("6,\"1,2\",\"Segunda \"\"Vivienda\"\"\",0,1000,1,0.0,0,0,18,En Revisión Inicial,,,,,"
+                + "2026-09-15T12:30:00Z,2026-09-15T12:30:00Z", lines[2]);
+    }
 }
@@ -0,0 +1,227 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nasch.prestabanco_backend.dto.SubmissionStatus;
+import nasch.prestabanco_backend.dto.SubmissionStatus.State;
+import nasch.prestabanco_backend.entities.LoanEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoanSubmissionServiceTest {
+
+    @Mock
+    private LoanService loanService;
+
+    @Mock
+    private LoanDocumentStore loanDocumentStore;
+
+    @TempDir
+    Path spoolDirectory;
+
+    private LoanSubmissionService loanSubmissionService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        loanSubmissionService = newService(Duration.ofMillis(1));
+
+        LoanEntity saved = new LoanEntity(7L, "12345678-9", "Primera Vivienda", 100000000, 80000000, 20, 4.5f, 1500000, 3, 35, "En Revisión Inicial", null, null, null, null);
+        when(loanService.saveLoan(isNull(), anyString(), anyString(), anyLong(), anyLong(), anyInt(), anyFloat(), anyLong(), anyInt(), anyInt(), anyString(),
+                isNull(), isNull(), isNull(), isNull())).thenReturn(saved);
+    }
+
+    private LoanSubmissionService newService(Duration retryBackoff) throws Exception {
+        LoanSubmissionService service = new LoanSubmissionService();
+        service.loanService = loanService;
+        service.loanDocumentStore = loanDocumentStore;
+        service.meterRegistry = new SimpleMeterRegistry();
+        service.spoolDirectory = spoolDirectory;
+        service.workers = 2;
+        service.queueCapacity = 2;
+        service.maxAttempts = 3;
+        service.retryBackoff = retryBackoff;
+        service.maxDocumentSize = DataSize.ofKilobytes(1);
+        service.statusTtl = Duration.ofHours(1);
+        service.init();
+        return service;
+    }
+
+    // Simulates a restart: the running pipeline stops and a new one starts over the same spool directory.
+    private void restart() throws Exception {
+        loanSubmissionService.shutdown();
+        loanSubmissionService = newService(Duration.ofMillis(1));
+    }
+
+    private SubmissionStatus.DocumentStatus awaitAttempt(String trackingId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            SubmissionStatus.DocumentStatus document = loanSubmissionService.status(trackingId).documents().get(0);
+            if (document.state() == State.PENDING && document.attempts() > 0) return document;
+            Thread.sleep(10);
+        }
+        fail("Document was never attempted");
+        return null;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loanSubmissionService.shutdown();
+    }
+
+    private SubmissionStatus submit(Map<Integer, MultipartFile> documents) throws Exception {
+        return loanSubmissionService.submit("12345678-9", "Primera Vivienda", 100000000, 80000000, 20, 4.5f, 1500000, 3, 35, "En Revisión Inicial", documents);
+    }
+
+    private SubmissionStatus awaitFinished(String trackingId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            SubmissionStatus status = loanSubmissionService.status(trackingId);
+            if (status.state() == State.COMPLETED || status.state() == State.FAILED) return status;
+            Thread.sleep(10);
+        }
+        fail("Submission did not finish");
+        return null;
+    }
+
+    private static MockMultipartFile file(String name, byte[] content) {
+        return new MockMultipartFile(name, name + ".pdf", "application/pdf", content);
+    }
+
+    @Test
+    public void submit_CommitsLoanWithoutDocumentsAndStoresThemInBackground() throws Exception {
+        when(loanDocumentStore.attach(eq(7L), anyInt(), any())).thenReturn(true);
+        Map<Integer, MultipartFile> documents = new HashMap<>();
+        documents.put(1, file("document1", "income".getBytes()));
+        documents.put(3, file("document3", "appraisal".getBytes()));
+
+        SubmissionStatus accepted = submit(documents);
+        assertEquals(7L, accepted.loanId());
+        verify(loanService).saveLoan(isNull(), eq("12345678-9"), anyString(), anyLong(), anyLong(), anyInt(), anyFloat(), anyLong(), anyInt(), anyInt(), anyString(),
+                isNull(), isNull(), isNull(), isNull());
+
+        SubmissionStatus finished = awaitFinished(accepted.trackingId());
+        assertEquals(State.COMPLETED, finished.state());
+        assertEquals(2, finished.documents().size());
+        assertNotNull(finished.documents().get(0).sha256());
+        verify(loanDocumentStore).attach(eq(7L), eq(1), any());
+        verify(loanDocumentStore).attach(eq(7L), eq(3), any());
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void process_TransientStorageFailure_Retries() throws Exception {
+        when(loanDocumentStore.attach(eq(7L), eq(2), any()))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenThrow(new RuntimeException("connection reset"))
+                .thenReturn(true);
+
+        SubmissionStatus finished = awaitFinished(submit(Map.of(2, file("document2", new byte[]{1, 2, 3}))).trackingId());
+        assertEquals(State.COMPLETED, finished.state());
+        assertEquals(3, finished.documents().get(0).attempts());
+    }
+
+    @Test
+    public void process_PersistentStorageFailure_FailsAfterMaxAttempts() throws Exception {
+        when(loanDocumentStore.attach(eq(7L), eq(2), any())).thenThrow(new RuntimeException("database down"));
+
+        SubmissionStatus finished = awaitFinished(submit(Map.of(2, file("document2", new byte[]{1}))).trackingId());
+        assertEquals(State.FAILED, finished.state());
+        assertEquals(3, finished.documents().get(0).attempts());
+        assertEquals("database down", finished.documents().get(0).error());
+    }
+
+    @Test
+    public void process_OversizedDocument_FailsWithoutStoring() throws Exception {
+        SubmissionStatus finished = awaitFinished(submit(Map.of(4, file("document4", new byte[2048]))).trackingId());
+        assertEquals(State.FAILED, finished.state());
+        assertEquals(1, finished.documents().get(0).attempts());
+        verifyNoInteractions(loanDocumentStore);
+    }
+
+    @Test
+    public void submit_PipelineFull_RejectsBeforeCommitting() {
+        Map<Integer, MultipartFile> documents = Map.of(1, file("document1", new byte[]{1}),
+                2, file("document2", new byte[]{1}), 3, file("document3", new byte[]{1}));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> submit(documents));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        verifyNoInteractions(loanService);
+    }
+
+    @Test
+    public void submit_NoDocuments_CompletesImmediately() throws Exception {
+        assertEquals(State.COMPLETED, submit(Map.of()).state());
+    }
+
+    @Test
+    public void status_UnknownTrackingId_NotFound() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> loanSubmissionService.status("missing"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void restart_PendingDocuments_ResumedAndStored() throws Exception {
+        loanSubmissionService.shutdown();
+        loanSubmissionService = newService(Duration.ofHours(1)); // A failed attempt is not retried before the restart.
+        when(loanDocumentStore.attach(eq(7L), eq(2), any())).thenThrow(new RuntimeException("database down"));
+        String trackingId = submit(Map.of(2, file("document2", new byte[]{1, 2, 3}))).trackingId();
+        awaitAttempt(trackingId);
+
+        doReturn(true).when(loanDocumentStore).attach(eq(7L), eq(2), any());
+        restart();
+
+        SubmissionStatus finished = awaitFinished(trackingId);
+        assertEquals(State.COMPLETED, finished.state());
+        assertEquals(7L, finished.loanId());
+        assertEquals(2, finished.documents().get(0).attempts());
+        try (var files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void restart_SpooledDocumentMissing_MarkedFailed() throws Exception {
+        loanSubmissionService.shutdown();
+        loanSubmissionService = newService(Duration.ofHours(1));
+        when(loanDocumentStore.attach(eq(7L), eq(2), any())).thenThrow(new RuntimeException("database down"));
+        String trackingId = submit(Map.of(2, file("document2", new byte[]{1}))).trackingId();
+        awaitAttempt(trackingId);
+        Files.delete(spoolDirectory.resolve(trackingId).resolve("document2"));
+
+        restart();
+
+        SubmissionStatus status = loanSubmissionService.status(trackingId);
+        assertEquals(State.FAILED, status.state());
+        assertEquals("Spooled document was lost", status.documents().get(0).error());
+    }
+
+    @Test
+    public void restart_SpoolWithoutManifest_Discarded() throws Exception {
+        Path orphan = Files.createDirectories(spoolDirectory.resolve("orphan"));
+        Files.write(orphan.resolve("document1"), new byte[]{1});
+
+        restart();
+
+        assertFalse(Files.exists(orphan));
+        verifyNoInteractions(loanDocumentStore);
+    }
+}
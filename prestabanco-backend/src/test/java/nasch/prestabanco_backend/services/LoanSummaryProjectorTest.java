@@ -0,0 +1,181 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import nasch.prestabanco_backend.dto.LoanChangeEvent;
+import nasch.prestabanco_backend.entities.LoanEventEntity;
+import nasch.prestabanco_backend.entities.LoanSummaryEntity;
+import nasch.prestabanco_backend.repositories.LoanEventRepository;
+import nasch.prestabanco_backend.repositories.LoanRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
+import nasch.prestabanco_backend.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoanSummaryProjectorTest {
+
+    private LoanSummaryProjector projector;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        projector = new LoanSummaryProjector();
+        projector.loanSummaryRepository = mock(LoanSummaryRepository.class);
+        projector.loanRepository = mock(LoanRepository.class);
+        projector.loanEventRepository = mock(LoanEventRepository.class);
+        projector.userRepository = mock(UserRepository.class);
+        projector.entityManager = mock(EntityManager.class);
+        projector.meterRegistry = meterRegistry;
+        projector.transactionManager = new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, org.springframework.transaction.TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+        projector.rebuildBatchSize = 2;
+        projector.init();
+    }
+
+    private static LoanChangeEvent event(long sequence, String type, String state) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (!LoanEventEntity.DELETED.equals(type)) {
+            payload.put("rut", "12.345.678-9");
+            payload.put("type", "Primera Vivienda");
+            payload.put("property_price", 100000000);
+            payload.put("amount", 80000000);
+            payload.put("term", 30);
+            payload.put("interest_rate", 4.5);
+            payload.put("income", 2000000);
+            payload.put("state", state);
+        }
+        return new LoanChangeEvent(sequence, 7L, type, payload, Instant.now());
+    }
+
+    @Test
+    public void apply_Created_InsertsTheSummaryWithItsFigures() {
+        when(projector.loanSummaryRepository.findById(7L)).thenReturn(Optional.empty());
+        when(projector.userRepository.findNameByRut("12.345.678-9")).thenReturn("Ana");
+
+        projector.apply(event(5, LoanEventEntity.CREATED, "En Revisión Inicial"));
+
+        ArgumentCaptor<LoanSummaryEntity> captor = ArgumentCaptor.forClass(LoanSummaryEntity.class);
+        verify(projector.entityManager).persist(captor.capture());
+        LoanSummaryEntity summary = captor.getValue();
+        double payment = LoanService.monthlyPayment(80000000, 4.5f, 30);
+        assertEquals(7L, summary.getId());
+        assertEquals("Ana", summary.getUser_name());
+        assertEquals("En Revisión Inicial", summary.getState());
+        assertEquals(payment, summary.getMonthly_payment());
+        assertEquals(payment * 100 / 2000000, summary.getPayment_to_income());
+        assertEquals(80.0, summary.getFinancing_ratio());
+        assertEquals(5, summary.getLast_sequence());
+    }
+
+    @Test
+    public void apply_Updated_ReplacesTheSummary() {
+        LoanSummaryEntity current = LoanSummaryProjector.summarize(7L, "12.345.678-9", "Ana", "Primera Vivienda",
+                100000000, 80000000, 30, 4.5f, 2000000, "En Revisión Inicial", 5);
+        when(projector.loanSummaryRepository.findById(7L)).thenReturn(Optional.of(current));
+
+        projector.apply(event(6, LoanEventEntity.UPDATED, "Aprobada"));
+
+        ArgumentCaptor<LoanSummaryEntity> captor = ArgumentCaptor.forClass(LoanSummaryEntity.class);
+        verify(projector.loanSummaryRepository).save(captor.capture());
+        assertEquals("Aprobada", captor.getValue().getState());
+        assertEquals(6, captor.getValue().getLast_sequence());
+    }
+
+    @Test
+    public void apply_RedeliveredEvent_IsSkipped() {
+        LoanSummaryEntity current = LoanSummaryProjector.summarize(7L, "12.345.678-9", "Ana", "Primera Vivienda",
+                100000000, 80000000, 30, 4.5f, 2000000, "Aprobada", 6);
+        when(projector.loanSummaryRepository.findById(7L)).thenReturn(Optional.of(current));
+
+        projector.apply(event(5, LoanEventEntity.UPDATED, "En Revisión Inicial"));
+        projector.apply(event(6, LoanEventEntity.UPDATED, "Aprobada"));
+
+        verify(projector.loanSummaryRepository, never()).save(any());
+        verify(projector.entityManager, never()).persist(any());
+        assertEquals(2.0, meterRegistry.get("prestabanco.summary.events").tag("outcome", "skipped").counter().count());
+    }
+
+    @Test
+    public void apply_Deleted_RemovesTheSummary() {
+        LoanSummaryEntity current = LoanSummaryProjector.summarize(7L, "12.345.678-9", "Ana", "Primera Vivienda",
+                100000000, 80000000, 30, 4.5f, 2000000, "Aprobada", 6);
+        when(projector.loanSummaryRepository.findById(7L)).thenReturn(Optional.of(current));
+
+        projector.apply(event(8, LoanEventEntity.DELETED, null));
+
+        verify(projector.loanSummaryRepository).delete(current);
+    }
+
+    @Test
+    public void apply_ProjectionFails_CountedAndSkippedWithoutFailingThePublication() {
+        when(projector.loanSummaryRepository.findById(7L)).thenReturn(Optional.empty());
+        when(projector.userRepository.findNameByRut("12.345.678-9")).thenThrow(new IllegalStateException("database error"));
+
+        assertDoesNotThrow(() -> projector.apply(event(5, LoanEventEntity.CREATED, "En Revisión Inicial")));
+
+        verify(projector.entityManager, never()).persist(any());
+        assertEquals(1.0, meterRegistry.get("prestabanco.summary.events").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    public void summarize_UnknownIncomeAndPrice_LeavesRatiosEmpty() {
+        LoanSummaryEntity summary = LoanSummaryProjector.summarize(1L, null, null, "Remodelación", 0, 1200, 1, 0f, 0, null, 0);
+
+        assertEquals(100.0, summary.getMonthly_payment());
+        assertNull(summary.getPayment_to_income());
+        assertNull(summary.getFinancing_ratio());
+    }
+
+    @Test
+    public void rebuild_ReadsAllPages_AndStampsTheLastSequence() {
+        when(projector.loanEventRepository.findLastSequence()).thenReturn(42L);
+        List<Object[]> first = new ArrayList<>();
+        first.add(new Object[]{1L, "1-9", "Ana", "Primera Vivienda", 100000000L, 80000000L, 30, 4.5f, 2000000L, "Aprobada"});
+        first.add(new Object[]{2L, "2-7", null, "Segunda Vivienda", 90000000L, 60000000L, 20, 5.0f, 1500000L, "En Evaluación"});
+        List<Object[]> second = new ArrayList<>();
+        second.add(new Object[]{5L, "3-5", "Luis", "Remodelación", 50000000L, 20000000L, 15, 6.0f, 0L, "Cancelada"});
+        when(projector.loanRepository.findSummarySourcesAfter(eq(0L), any(Pageable.class))).thenReturn(first);
+        when(projector.loanRepository.findSummarySourcesAfter(eq(2L), any(Pageable.class))).thenReturn(second);
+
+        assertEquals(3, projector.rebuild());
+
+        verify(projector.loanEventRepository).advisoryLock(LoanOutboxRelay.RELAY_LOCK);
+        verify(projector.loanSummaryRepository).deleteAllInBatch();
+        ArgumentCaptor<LoanSummaryEntity> captor = ArgumentCaptor.forClass(LoanSummaryEntity.class);
+        verify(projector.entityManager, times(3)).persist(captor.capture());
+        assertEquals(List.of(1L, 2L, 5L), captor.getAllValues().stream().map(LoanSummaryEntity::getId).toList());
+        assertTrue(captor.getAllValues().stream().allMatch(summary -> summary.getLast_sequence() == 42));
+    }
+}
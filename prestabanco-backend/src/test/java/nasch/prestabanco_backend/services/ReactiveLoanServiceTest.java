@@ -0,0 +1,83 @@
+package nasch.prestabanco_backend.services;
+
+import nasch.prestabanco_backend.entities.LoanEntity;
+import nasch.prestabanco_backend.entities.LoanReadEntity;
+import nasch.prestabanco_backend.repositories.LoanReadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveLoanServiceTest {
+
+    @Mock
+    private LoanReadRepository loanReadRepository;
+
+    @Mock
+    private LoanArchive loanArchive;
+
+    @InjectMocks
+    private ReactiveLoanService reactiveLoanService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reactiveLoanService.prefetch = 16;
+    }
+
+    private static LoanReadEntity read(long id) {
+        return new LoanReadEntity(id, "12345678-9", "Primera Vivienda", 100000000, 80000000, 20, 4.5f, 1500000, 3, 35,
+                "En Evaluación", null, null, null, null, null);
+    }
+
+    private static LoanEntity archived(long id) {
+        return new LoanEntity(id, "12345678-9", "Primera Vivienda", 100000000, 80000000, 20, 4.5f, 1500000, 3, 35,
+                "Rechazada", null, null, null, null);
+    }
+
+    @Test
+    public void getById_InTable_DoesNotReadTheArchive() {
+        when(loanReadRepository.findById(5L)).thenReturn(Mono.just(read(5L)));
+
+        assertEquals(5L, reactiveLoanService.getById(5L).block().getId());
+        verifyNoInteractions(loanArchive);
+    }
+
+    @Test
+    public void getById_Archived_ReadThroughTheArchive() {
+        when(loanReadRepository.findById(7L)).thenReturn(Mono.empty());
+        when(loanArchive.findById(7L)).thenReturn(Optional.of(archived(7L)));
+
+        LoanReadEntity loan = reactiveLoanService.getById(7L).block();
+
+        assertEquals(7L, loan.getId());
+        assertEquals("Rechazada", loan.getState());
+    }
+
+    @Test
+    public void getById_Nowhere_Empty() {
+        when(loanReadRepository.findById(8L)).thenReturn(Mono.empty());
+        when(loanArchive.findById(8L)).thenReturn(Optional.empty());
+
+        assertNull(reactiveLoanService.getById(8L).block());
+    }
+
+    @Test
+    public void getByRut_TableLoansFollowedByArchivedOnes() {
+        when(loanReadRepository.findByRut("12345678-9")).thenReturn(Flux.just(read(3L)));
+        when(loanArchive.findByRut("12345678-9")).thenReturn(List.of(archived(1L)));
+
+        List<LoanReadEntity> loans = reactiveLoanService.getByRut("12345678-9").collectList().block();
+
+        assertEquals(List.of(3L, 1L), loans.stream().map(LoanReadEntity::getId).toList());
+    }
+}
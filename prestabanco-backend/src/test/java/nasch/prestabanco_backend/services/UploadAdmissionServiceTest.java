@@ -0,0 +1,101 @@
+package nasch.prestabanco_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadAdmissionServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UploadAdmissionService uploadAdmissionService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        uploadAdmissionService = new UploadAdmissionService();
+        uploadAdmissionService.meterRegistry = meterRegistry;
+        uploadAdmissionService.maxConcurrentUploads = 2;
+        uploadAdmissionService.maxQueuedUploads = 0;
+        uploadAdmissionService.maxInFlightBytes = DataSize.ofMegabytes(10);
+        uploadAdmissionService.maxRequestSize = DataSize.ofMegabytes(4);
+        uploadAdmissionService.maxQueueWait = Duration.ZERO;
+        uploadAdmissionService.init();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.get("prestabanco.admission.uploads").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    public void tryAdmit_UnderBudget_ReturnsPermit() throws Exception {
+        UploadAdmissionService.Permit permit = uploadAdmissionService.tryAdmit(1024);
+        assertNotNull(permit);
+        assertEquals(1.0, count("admitted"));
+    }
+
+    @Test
+    public void tryAdmit_TooManyConcurrentUploads_Rejects() throws Exception {
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+        assertNull(uploadAdmissionService.tryAdmit(1024));
+        assertEquals(1.0, count("rejected"));
+    }
+
+    @Test
+    public void tryAdmit_ByteBudgetExhausted_Rejects() throws Exception {
+        assertNotNull(uploadAdmissionService.tryAdmit(DataSize.ofMegabytes(8).toBytes()));
+        assertNull(uploadAdmissionService.tryAdmit(DataSize.ofMegabytes(4).toBytes()));
+    }
+
+    @Test
+    public void tryAdmit_UnknownLength_ChargesMaxRequestSize() throws Exception {
+        assertNotNull(uploadAdmissionService.tryAdmit(-1));
+        assertEquals(DataSize.ofMegabytes(4).toBytes(), meterRegistry.get("prestabanco.admission.in.flight.bytes").gauge().value());
+    }
+
+    @Test
+    public void tryAdmit_LargerThanBudget_AdmittedAlone() throws Exception {
+        UploadAdmissionService.Permit permit = uploadAdmissionService.tryAdmit(DataSize.ofMegabytes(50).toBytes());
+        assertNotNull(permit);
+        assertNull(uploadAdmissionService.tryAdmit(1024));
+        permit.close();
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+    }
+
+    @Test
+    public void close_ReleasesBudgetOnlyOnce() throws Exception {
+        UploadAdmissionService.Permit permit = uploadAdmissionService.tryAdmit(1024);
+        permit.close();
+        permit.close();
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+        assertNull(uploadAdmissionService.tryAdmit(1024));
+    }
+
+    @Test
+    public void tryAdmit_QueuedUpload_AdmittedWhenBudgetFreed() throws Exception {
+        uploadAdmissionService.maxQueuedUploads = 1;
+        uploadAdmissionService.maxQueueWait = Duration.ofSeconds(5);
+        UploadAdmissionService.Permit first = uploadAdmissionService.tryAdmit(1024);
+        UploadAdmissionService.Permit second = uploadAdmissionService.tryAdmit(1024);
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            first.close();
+        });
+        releaser.start();
+
+        assertNotNull(uploadAdmissionService.tryAdmit(1024));
+        assertEquals(1.0, count("queued"));
+        releaser.join();
+        second.close();
+    }
+}
@@ -1,6 +1,9 @@
 package nasch.prestabanco_backend.services;
 
+import nasch.prestabanco_backend.dto.CollectionStamp;
 import nasch.prestabanco_backend.entities.UserEntity;
+import nasch.prestabanco_backend.repositories.FieldProjectionRepository;
+import nasch.prestabanco_backend.repositories.LoanSummaryRepository;
 import nasch.prestabanco_backend.repositories.UserRepository;
 import nasch.prestabanco_backend.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,10 +13,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,6 +31,12 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private FieldProjectionRepository fieldProjectionRepository;
+
+    @Mock
+    private LoanSummaryRepository loanSummaryRepository;
+
     @InjectMocks
     private UserService userService;
 
@@ -184,6 +198,15 @@ public class UserServiceTest {
         assertNull(result);
     }
 
+    @Test
+    public void getUserDocument_UserWithoutDocument_ThrowsNotFound() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(new UserEntity(1L, "12345678-9", "John Doe", "john@example.com", null)));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> userService.getUserDocument(1L));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
     @Test
     public void getUserById_UserWithoutDocument_ReturnsUser() {
         UserEntity user = new UserEntity(1L, "12345678-9", "John Doe", "john@example.com", null);
@@ -365,4 +388,86 @@ public class UserServiceTest {
         verify(userRepository, times(1)).deleteById(1L);
     }
 
+    @Test
+    public void getUserVersion_ExistingUser_ReturnsVersion() {
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+
+        assertEquals(3L, userService.getUserVersion(1L));
+    }
+
+    @Test
+    public void getUserVersion_NonExistingUser_ReturnsNull() {
+        when(userRepository.findVersionById(99L)).thenReturn(Optional.empty());
+
+        assertNull(userService.getUserVersion(99L));
+    }
+
+    @Test
+    public void updateUser_ExistingUser_CarriesCreationTime() {
+        Instant created = Instant.parse("2026-03-14T10:00:00Z");
+        when(userRepository.findCreatedAtById(1L)).thenReturn(Optional.of(created));
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserEntity result = userService.updateUser(1L, "12345678-9", "John Doe", "john@example.com", new byte[]{});
+
+        assertEquals(created, result.getCreated_at());
+    }
+
+    @Test
+    public void updateUser_ExistingUser_CarriesStoredVersion() {
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(2L));
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserEntity result = userService.updateUser(1L, "12345678-9", "John Doe", "john@example.com", new byte[]{});
+
+        assertEquals(2L, result.getVersion());
+    }
+
+    @Test
+    public void getUsersStamp_NoUsers_ReturnsEmptyStamp() {
+        when(userRepository.findCollectionStamp()).thenReturn(new CollectionStamp(0L, 0L, null, 0L));
+
+        CollectionStamp result = userService.getUsersStamp();
+
+        assertEquals(-1, result.lastModifiedMillis());
+    }
+
+    @Test
+    public void getUserByIdFields_ExistingUser_ReturnsProjection() {
+        when(fieldProjectionRepository.getFieldNames(UserEntity.class)).thenReturn(Set.of("id", "rut", "name", "email"));
+        List<String> fields = List.of("id", "name");
+        when(fieldProjectionRepository.findById(UserEntity.class, 1L, fields)).thenReturn(Optional.of(Map.of("id", 1L, "name", "John Doe")));
+
+        Map<String, Object> result = userService.getUserById(1L, "id, name");
+
+        assertEquals("John Doe", result.get("name"));
+    }
+
+    @Test
+    public void getUserByIdFields_NonExistingUser_ThrowsNotFound() {
+        when(fieldProjectionRepository.getFieldNames(UserEntity.class)).thenReturn(Set.of("id", "rut", "name", "email"));
+        when(fieldProjectionRepository.findById(UserEntity.class, 2L, List.of("id"))).thenReturn(Optional.empty());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> userService.getUserById(2L, "id"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    public void getAllUsersFields_UnknownField_ThrowsBadRequest() {
+        when(fieldProjectionRepository.getFieldNames(UserEntity.class)).thenReturn(Set.of("id", "rut", "name", "email"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> userService.getAllUsers("salary"));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    public void updateUser_NewName_CopiedToTheLoanSummary() {
+        UserEntity user = new UserEntity(1L, "12345678-9", "Jane Doe", "jane@example.com", null);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
+        when(userRepository.save(any(UserEntity.class))).thenReturn(user);
+
+        userService.updateUser(1L, "12345678-9", "Jane Doe", "jane@example.com", null);
+
+        verify(loanSummaryRepository).updateUserName("12345678-9", "Jane Doe");
+    }
 }